@@ -7,45 +7,83 @@
 package hu.arheu.gds.client;
 
 import hu.arheu.gds.message.FullGdsMessage;
+import hu.arheu.gds.message.clienttypes.AttachmentResult;
+import hu.arheu.gds.message.clienttypes.EventDocumentResponse;
+import hu.arheu.gds.message.clienttypes.EventResponse;
+import hu.arheu.gds.message.clienttypes.QueryResponse;
 import hu.arheu.gds.message.data.*;
 import hu.arheu.gds.message.data.impl.AckStatus;
+import hu.arheu.gds.message.data.impl.AttachmentResponseAckResultHolderImpl;
+import hu.arheu.gds.message.data.impl.AttachmentResultHolderImpl;
+import hu.arheu.gds.message.errors.ReadException;
 import hu.arheu.gds.message.errors.ValidationException;
 import hu.arheu.gds.message.header.MessageHeader;
 import hu.arheu.gds.message.header.MessageHeaderBase;
+import hu.arheu.gds.message.util.ChainedByteBufMessageBufferInput;
+import hu.arheu.gds.message.util.EventMessageEncoder;
+import hu.arheu.gds.message.util.MessageFragmenter;
 import hu.arheu.gds.message.util.MessageManager;
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.websocketx.*;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketClientExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.DeflateFrameClientExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateClientExtensionHandshaker;
 import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketClientCompressionHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.ClientAuth;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.EventExecutor;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.Value;
 
 import javax.net.ssl.KeyManagerFactory;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanRegistrationException;
+import javax.management.ObjectName;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
+import java.nio.channels.WritableByteChannel;
 import java.net.URISyntaxException;
 import java.security.*;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.logging.*;
 
 
@@ -56,9 +94,16 @@ import java.util.logging.*;
 @SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
 public final class AsyncGDSClient implements AutoCloseable {
 
+    private static final long DEFAULT_MAX_REASSEMBLED_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_MAX_FRAME_PAYLOAD_LENGTH = 10485760;
+    private static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    private static final int MAX_COMPRESSION_WINDOW_BITS = 15;
+
     public final static class AsyncGDSClientBuilder {
 
-        private NioEventLoopGroup nioEventLoopGroup;
+        private EventLoopGroup eventLoopGroup;
+        private Class<? extends SocketChannel> socketChannelClass;
+        private boolean nativeTransport;
         private GDSMessageListener listener;
         private Logger logger;
         private boolean shutdownByClose;
@@ -68,11 +113,38 @@ public final class AsyncGDSClient implements AutoCloseable {
         private String userName;
         private String userPassword;
         private long timeout;
+        private boolean decodeQueryHitsAsColumns;
+        private long requestTimeout;
+        private Executor connectionWatcherExecutor;
+        private long reconnectInitialDelay;
+        private long reconnectMaxDelay;
+        private int maxReconnectAttempts;
+        private int fragmentTransmissionUnit;
+        private long maxReassembledBytes;
+        private int messagePublisherCapacity;
+        private Executor messagePublisherExecutor;
+        private Executor listenerExecutor;
+        private int maxConsolidatedFlushes;
+        private WriteBufferWaterMark writeBufferWaterMark;
+        private int maxFramePayloadLength;
+        private int maxAggregatedMessageSize;
+        private boolean compression;
+        private int compressionLevel;
+        private int compressionWindowBits;
+        private boolean streamingDecoding;
+        private String jmxMetricsName;
 
         private AsyncGDSClientBuilder() {
             shutdownByClose = true;
             serveOnTheSameConnection = true;
             timeout = 3000L;
+            maxReassembledBytes = DEFAULT_MAX_REASSEMBLED_BYTES;
+            nativeTransport = true;
+            maxFramePayloadLength = DEFAULT_MAX_FRAME_PAYLOAD_LENGTH;
+            maxAggregatedMessageSize = DEFAULT_MAX_FRAME_PAYLOAD_LENGTH;
+            compression = true;
+            compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+            compressionWindowBits = MAX_COMPRESSION_WINDOW_BITS;
         }
 
         /**
@@ -80,7 +152,45 @@ public final class AsyncGDSClient implements AutoCloseable {
          * @return this builder
          */
         public AsyncGDSClientBuilder withNioEventLoopGroup(NioEventLoopGroup nioEventLoopGroup) {
-            this.nioEventLoopGroup = nioEventLoopGroup;
+            return withEventLoopGroup(nioEventLoopGroup, NioSocketChannel.class);
+        }
+
+        /**
+         * Sets the event loop group to be used, of any transport recognized by
+         * {@link Transports#socketChannelClass(EventLoopGroup)} (io_uring, epoll, kqueue or NIO).
+         *
+         * @param eventLoopGroup the EventLoopGroup to be used
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withEventLoopGroup(EventLoopGroup eventLoopGroup) {
+            return withEventLoopGroup(eventLoopGroup, null);
+        }
+
+        /**
+         * Sets the event loop group to be used, together with the class of the socket channels of its transport.
+         *
+         * @param eventLoopGroup     the EventLoopGroup to be used
+         * @param socketChannelClass the class of the socket channels supported by the group, {@code null} to select
+         *                           it by the type of the group
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withEventLoopGroup(EventLoopGroup eventLoopGroup,
+                                                        Class<? extends SocketChannel> socketChannelClass) {
+            this.eventLoopGroup = eventLoopGroup;
+            this.socketChannelClass = socketChannelClass;
+            return this;
+        }
+
+        /**
+         * Sets whether the event loop group created by the client (if no group is set) should use the native
+         * transport of the platform if available (see {@link Transports#newEventLoopGroup()}), or NIO. The default
+         * value is {@code true}.
+         *
+         * @param nativeTransport whether the native transport should be preferred
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withNativeTransport(boolean nativeTransport) {
+            this.nativeTransport = nativeTransport;
             return this;
         }
 
@@ -103,7 +213,7 @@ public final class AsyncGDSClient implements AutoCloseable {
         }
 
         /**
-         * Sets whether the {@link AsyncGDSClientBuilder#nioEventLoopGroup} should be shut down when the client is
+         * Sets whether the {@link AsyncGDSClientBuilder#eventLoopGroup} should be shut down when the client is
          * closed or not. This parameter is only taken into account if the EventLoopGroup is set, otherwise the value
          * will always be used as {@code true} regardless of the one specified here.
          *
@@ -207,8 +317,360 @@ public final class AsyncGDSClient implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Sets an already created SSL context for the WebSocket to use for TLS encryption towards the GDS servers.
+         * This can be created by the {@link AsyncGDSClient#createSSLContext(InputStream, char[])} method.
+         *
+         * @param sslContext the SSL context, {@code null} if TLS is not used
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withSslContext(SslContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        /**
+         * Sets whether the hits of the incoming query responses should be unpacked directly into a column oriented
+         * representation ({@link QueryResponseHolder#getColumnarHits()}) instead of lists of MessagePack values.
+         * The list representation ({@link QueryResponseHolder#getHits()}) is still available, but it is only
+         * created when it is first requested. Disabled by default.
+         *
+         * @param decodeQueryHitsAsColumns whether the query hits should be unpacked into columns
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withColumnarQueryHits(boolean decodeQueryHitsAsColumns) {
+            this.decodeQueryHitsAsColumns = decodeQueryHitsAsColumns;
+            return this;
+        }
+
+        /**
+         * Sets the time the replies for the requests sent by the {@code send...Async} methods (e.g.
+         * {@link AsyncGDSClient#sendQueryRequest10Async(MessageData10QueryRequest)}) have to arrive within, otherwise
+         * their futures are completed with a {@link GDSTimeoutException}. If not set, the connection timeout
+         * ({@link #withTimeout(long)}) is used.
+         *
+         * @param requestTimeout the timeout of the requests in milliseconds
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public AsyncGDSClientBuilder withRequestTimeout(long requestTimeout) throws IllegalArgumentException {
+            if (requestTimeout < 1) {
+                throw new IllegalArgumentException("The request timeout has to be positive! Specified: " + requestTimeout);
+            }
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the executor running the task that awaits the login reply after {@link AsyncGDSClient#connect()} was
+         * called (and reports the timeout to the listener). The task blocks until the login finishes, so the executor
+         * should be able to run it without holding up other work, e.g. an executor creating a virtual thread for each
+         * task. If not set, a new platform thread is started for it.
+         *
+         * @param connectionWatcherExecutor the executor used for the connection watcher task
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withConnectionWatcherExecutor(Executor connectionWatcherExecutor) {
+            this.connectionWatcherExecutor = connectionWatcherExecutor;
+            return this;
+        }
+
+        /**
+         * Enables the automatic reconnection. If the connection is lost after a successful login, the client tries to
+         * connect and log in again (reusing its event loop group and SSL context), waiting an exponentially growing
+         * (jittered) delay between the attempts, starting from {@code initialDelay} and capped at {@code maxDelay}.
+         * <p>
+         * While reconnecting, the state of the client is {@link ConnectionState#RECONNECTING} and no messages can be
+         * sent. The pending requests sent by the {@code send...Async} methods that can be safely sent again (query,
+         * next query page and attachment requests) are kept, and re-sent after the login, while the rest of them fail.
+         * See {@link GDSMessageListener#onReconnect(Channel, MessageHeaderBase, MessageData1ConnectionAck, long)} and
+         * {@link AsyncGDSClient#getReconnectStatistics()}.
+         *
+         * @param initialDelay the delay before the first attempt in milliseconds
+         * @param maxDelay     the maximum delay between two attempts in milliseconds
+         * @return this builder
+         * @throws IllegalArgumentException if the initial delay is not positive or the maximum delay is less than that
+         */
+        public AsyncGDSClientBuilder withAutoReconnect(long initialDelay, long maxDelay) throws IllegalArgumentException {
+            if (initialDelay < 1 || maxDelay < initialDelay) {
+                throw new IllegalArgumentException("The reconnect delays have to be positive and the maximum cannot be" +
+                        " less than the initial one! Specified: " + initialDelay + ", " + maxDelay);
+            }
+            this.reconnectInitialDelay = initialDelay;
+            this.reconnectMaxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets how many reconnection attempts the client should make in a row before giving up (and calling
+         * {@link GDSMessageListener#onConnectionFailure(Channel, Either)}). Unlimited by default.
+         *
+         * @param maxReconnectAttempts the maximum number of attempts, {@code 0} for unlimited
+         * @return this builder
+         * @throws IllegalArgumentException if the value is negative
+         */
+        public AsyncGDSClientBuilder withMaxReconnectAttempts(int maxReconnectAttempts) throws IllegalArgumentException {
+            if (maxReconnectAttempts < 0) {
+                throw new IllegalArgumentException("The number of reconnect attempts cannot be negative! Specified: " + maxReconnectAttempts);
+            }
+            this.maxReconnectAttempts = maxReconnectAttempts;
+            return this;
+        }
+
+        /**
+         * Enables the fragmentation of the messages. The login message announces that the client supports
+         * fragmentation with the given fragment size, and if the GDS accepts it, the messages whose data part is larger
+         * than the negotiated size are sent in fragments. The data is serialized only once, and the fragments are
+         * written one after the other, so other messages can be sent between them. The fragmented messages sent by the
+         * GDS are reassembled by the client in any case (see {@link #withMaxReassembledBytes(long)}).
+         *
+         * @param fragmentTransmissionUnit the maximum size of the data chunk carried by a fragment in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public AsyncGDSClientBuilder withFragmentation(int fragmentTransmissionUnit) throws IllegalArgumentException {
+            if (fragmentTransmissionUnit < 1) {
+                throw new IllegalArgumentException("The fragment transmission unit has to be positive! Specified: " + fragmentTransmissionUnit);
+            }
+            this.fragmentTransmissionUnit = fragmentTransmissionUnit;
+            return this;
+        }
+
+        /**
+         * Sets the maximum total size of the fragmented messages being reassembled at the same time. The messages that
+         * would exceed this limit are dropped (and reported to the log). The default value is 64 MiB.
+         *
+         * @param maxReassembledBytes the maximum size in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public AsyncGDSClientBuilder withMaxReassembledBytes(long maxReassembledBytes) throws IllegalArgumentException {
+            if (maxReassembledBytes < 1) {
+                throw new IllegalArgumentException("The maximum size of the reassembled messages has to be positive! Specified: " + maxReassembledBytes);
+            }
+            this.maxReassembledBytes = maxReassembledBytes;
+            return this;
+        }
+
+        /**
+         * Enables publishing the incoming messages through {@link AsyncGDSClient#getMessagePublisher()} instead of
+         * passing them to the listener. The subscriber is called on the {@link ForkJoinPool#commonPool()}.
+         * See {@link #withMessagePublisher(int, Executor)} for the details.
+         *
+         * @param maxQueuedMessages the number of messages waiting for the subscriber above which the client stops
+         *                          reading the connection
+         * @return this builder
+         * @throws IllegalArgumentException if the value is less than 2
+         */
+        public AsyncGDSClientBuilder withMessagePublisher(int maxQueuedMessages) throws IllegalArgumentException {
+            return withMessagePublisher(maxQueuedMessages, ForkJoinPool.commonPool());
+        }
+
+        /**
+         * Enables publishing the incoming messages through {@link AsyncGDSClient#getMessagePublisher()} instead of
+         * passing them to the listener. The messages are queued by the event loop of the connection, and delivered
+         * to the subscriber on the given executor, so a slow subscriber does not block the event loop. If the
+         * subscriber falls behind by the given number of messages, the client stops reading the connection (until
+         * half of them are processed), so the GDS is slowed down by the TCP flow control instead of the messages
+         * filling the memory. The replies awaited by the futures returned by the client are sent on the same
+         * connection, so they are delayed as well while the reading is stopped.
+         * <p>
+         * The login reply and the connection changes are still reported to the listener, and its
+         * {@link GDSMessageListener#acceptIncomingMessage(MessageHeaderBase)} method is still used to filter the
+         * incoming messages.
+         *
+         * @param maxQueuedMessages the number of messages waiting for the subscriber above which the client stops
+         *                          reading the connection
+         * @param executor          the executor the subscriber is called on
+         * @return this builder
+         * @throws IllegalArgumentException if the value is less than 2
+         */
+        public AsyncGDSClientBuilder withMessagePublisher(int maxQueuedMessages, Executor executor) throws IllegalArgumentException {
+            if (maxQueuedMessages < 2) {
+                throw new IllegalArgumentException("The maximum number of queued messages has to be at least 2! Specified: " + maxQueuedMessages);
+            }
+            Objects.requireNonNull(executor, "The executor of the message publisher cannot be null!");
+            this.messagePublisherCapacity = maxQueuedMessages;
+            this.messagePublisherExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the executor the incoming messages are processed on. By default, the messages are decoded and passed
+         * to the listener by the event loop of the connection, so a slow listener delays the reading of every other
+         * message (and the ping-pong) on the connection. If set, the event loop only unpacks the message headers,
+         * while the data parts are decoded and the listener (or the future of the request) is called on the given
+         * executor.
+         * <p>
+         * The messages with the same message ID (e.g. the fragments of a message) are processed in the order they
+         * arrived, one after the other, but the messages with different IDs can be processed in parallel, in any
+         * order. The listener has to be thread-safe in this case.
+         *
+         * @param listenerExecutor the executor used to process the incoming messages
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withListenerExecutor(Executor listenerExecutor) {
+            this.listenerExecutor = listenerExecutor;
+            return this;
+        }
+
+        /**
+         * Enables coalescing the writes of the messages. By default, every message is flushed to the socket on its
+         * own, meaning a system call (and a TLS record) for each of them. If enabled, the messages sent in a burst
+         * (e.g. many small events sent by a bulk loader) are written to the socket together, once per event loop
+         * iteration, or after the given number of messages at the latest. The flushes are consolidated by a
+         * {@link FlushConsolidationHandler}, so the latency of a single message is not increased by waiting for more.
+         *
+         * @param maxConsolidatedFlushes the maximum number of messages written before the socket is flushed
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public AsyncGDSClientBuilder withWriteCoalescing(int maxConsolidatedFlushes) throws IllegalArgumentException {
+            if (maxConsolidatedFlushes < 1) {
+                throw new IllegalArgumentException("The maximum number of consolidated flushes has to be positive! Specified: " + maxConsolidatedFlushes);
+            }
+            this.maxConsolidatedFlushes = maxConsolidatedFlushes;
+            return this;
+        }
+
+        /**
+         * Sets the water marks of the outbound buffer of the connection. If the size of the messages waiting to be
+         * written to the socket exceeds the high water mark, the connection becomes unwritable until it drops below
+         * the low water mark. The changes are reported by
+         * {@link GDSMessageListener#onWritabilityChanged(Channel, boolean)}, and used by
+         * {@link AsyncGDSClient#trySendMessage(MessageHeader, MessageData)} and
+         * {@link AsyncGDSClient#sendMessageWithBackpressure(MessageHeader, MessageData, long)} to throttle the
+         * producers to the capacity of the socket. The default values (of Netty) are 32 KiB and 64 KiB.
+         *
+         * @param low  the low water mark in bytes
+         * @param high the high water mark in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the low water mark is negative or the high water mark is less than it
+         */
+        public AsyncGDSClientBuilder withWriteBufferWaterMark(int low, int high) throws IllegalArgumentException {
+            if (low < 0 || high < low) {
+                throw new IllegalArgumentException("The water marks have to satisfy 0 <= low <= high! Specified: low = "
+                        + low + ", high = " + high);
+            }
+            this.writeBufferWaterMark = new WriteBufferWaterMark(low, high);
+            return this;
+        }
+
+        /**
+         * Sets the maximum payload length of a single WebSocket frame accepted from the GDS. A larger frame closes
+         * the connection. The default value is 10 MiB.
+         *
+         * @param maxFramePayloadLength the maximum payload length in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public AsyncGDSClientBuilder withMaxFramePayloadLength(int maxFramePayloadLength) throws IllegalArgumentException {
+            if (maxFramePayloadLength < 1) {
+                throw new IllegalArgumentException("The maximum frame payload length has to be positive! Specified: " + maxFramePayloadLength);
+            }
+            this.maxFramePayloadLength = maxFramePayloadLength;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a message sent by the GDS in more WebSocket frames (a binary frame followed by
+         * continuation frames). The frames of such a message are aggregated before the message is processed, so
+         * this limits the memory used by a single message. A larger message closes the connection. The default
+         * value is 10 MiB.
+         *
+         * @param maxAggregatedMessageSize the maximum size of an aggregated message in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public AsyncGDSClientBuilder withFrameAggregation(int maxAggregatedMessageSize) throws IllegalArgumentException {
+            if (maxAggregatedMessageSize < 1) {
+                throw new IllegalArgumentException("The maximum size of an aggregated message has to be positive! Specified: " + maxAggregatedMessageSize);
+            }
+            this.maxAggregatedMessageSize = maxAggregatedMessageSize;
+            return this;
+        }
+
+        /**
+         * Enables decoding the messages sent by the GDS in more WebSocket frames while their frames are arriving,
+         * instead of aggregating the frames first (see {@link #withFrameAggregation(int)}). The header of such a
+         * message is unpacked from its first frame, so the message can be dropped (see
+         * {@link GDSMessageListener#acceptIncomingMessage(MessageHeaderBase)}) without receiving the rest of it into
+         * the memory, and the data part (e.g. the hits of a large query page, record by record) is unpacked on the
+         * listener executor as the frames arrive. This way the message is ready right after its last frame, and its
+         * frames are released once they are unpacked.
+         * <p>
+         * Requires a listener executor (see {@link #withListenerExecutor(Executor)}), as the decoding thread waits
+         * for the frames. Without it, the frames are aggregated. The fragments of the GDS level fragmentation are
+         * aggregated as well. The frames of a message are aggregated until its header can be unpacked. The limit of
+         * the frame aggregation applies to the whole message decoded this way as well, as its frames are queued
+         * until they are unpacked. A larger message closes the connection.
+         *
+         * @param streamingDecoding whether the messages sent in more frames are decoded while they arrive
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withStreamingDecoding(boolean streamingDecoding) {
+            this.streamingDecoding = streamingDecoding;
+            return this;
+        }
+
+        /**
+         * Enables or disables offering the compression of the messages (the {@code permessage-deflate} and
+         * {@code deflate-frame} WebSocket extensions) to the GDS. The compression is offered by default. It saves
+         * bandwidth on slow networks, but it costs CPU time on both sides, which is not worth it on a fast local
+         * network.
+         *
+         * @param compression whether the compression is offered
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withCompression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Enables offering the compression of the messages (see {@link #withCompression(boolean)}) with the given
+         * parameters of the {@code permessage-deflate} extension.
+         *
+         * @param compressionLevel the level the messages sent by the client are compressed with, from {@code 0} (no
+         *                         compression) to {@code 9} (best compression), the default value is {@code 6}
+         * @param windowBits       the base-2 logarithm of the window size requested for the messages compressed by
+         *                         the GDS, from {@code 8} to {@code 15}, the default value is {@code 15}. Smaller
+         *                         windows use less memory per connection, but compress worse. The GDS has to
+         *                         support compressing with the requested window (a Netty based server needs JZlib
+         *                         for windows smaller than the default).
+         * @return this builder
+         * @throws IllegalArgumentException if either value is out of its range
+         */
+        public AsyncGDSClientBuilder withCompression(int compressionLevel, int windowBits) throws IllegalArgumentException {
+            if (compressionLevel < 0 || compressionLevel > 9) {
+                throw new IllegalArgumentException("The compression level has to be between 0 and 9! Specified: " + compressionLevel);
+            }
+            if (windowBits < 8 || windowBits > MAX_COMPRESSION_WINDOW_BITS) {
+                throw new IllegalArgumentException("The window bits have to be between 8 and 15! Specified: " + windowBits);
+            }
+            this.compression = true;
+            this.compressionLevel = compressionLevel;
+            this.compressionWindowBits = windowBits;
+            return this;
+        }
+
+        /**
+         * Registers the metrics of the client (see {@link AsyncGDSClient#getMetrics()}) as an MXBean on the platform
+         * MBean server under the name {@code hu.arheu.gds:type=GDSClient,name=<name>}, so they can be watched with
+         * JConsole, or collected by any JMX exporter. The MXBean is unregistered when the client is closed.
+         * The metrics are collected even if they are not registered.
+         *
+         * @param name the name of the client in the object name of the MXBean (quoted if needed), {@code null} to
+         *             not register the metrics. It has to be unique in the JVM.
+         * @return this builder
+         */
+        public AsyncGDSClientBuilder withJmxMetrics(String name) {
+            this.jmxMetricsName = name;
+            return this;
+        }
+
         public AsyncGDSClient build() {
-            return new AsyncGDSClient(URI, userName, userPassword, timeout, logger, listener, sslContext, nioEventLoopGroup, shutdownByClose, serveOnTheSameConnection);
+            return new AsyncGDSClient(URI, userName, userPassword, timeout, logger, listener, sslContext, eventLoopGroup, shutdownByClose, serveOnTheSameConnection, this);
         }
     }
 
@@ -226,7 +688,8 @@ public final class AsyncGDSClient implements AutoCloseable {
     private final NettyWebSocketClient client;
     private final CountDownLatch countDownLatch;
 
-    private final NioEventLoopGroup eventLoopGroup;
+    private final EventLoopGroup eventLoopGroup;
+    private final Class<? extends SocketChannel> socketChannelClass;
     private final GDSMessageListener listener;
     private final Logger log;
     private final boolean serveOnTheSameConnection;
@@ -236,6 +699,50 @@ public final class AsyncGDSClient implements AutoCloseable {
     private final String userName;
     private final String userPassword;
     private final long timeout;
+    private final boolean decodeQueryHitsAsColumns;
+    private final ThreadLocal<EventMessageEncoder> eventEncoders;
+    private final PendingRequests pendingRequests;
+    private final long requestTimeout;
+    private final Executor connectionWatcherExecutor;
+    private final long reconnectInitialDelay;
+    private final long reconnectMaxDelay;
+    private final int maxReconnectAttempts;
+    private final ReconnectStatistics reconnectStatistics;
+    private final ClientMetrics metrics;
+    //null if the metrics are not registered to JMX
+    private final ObjectName metricsObjectName;
+    //identifies the current reconnection attempt, incremented whenever an attempt is finished (or cancelled)
+    private final AtomicInteger reconnectAttemptId;
+    private volatile boolean reconnecting;
+    private volatile int reconnectAttemptsInRow;
+    private volatile long connectionLostAt;
+    private volatile Channel reconnectChannel;
+    //fails the current reconnection attempt if the login is not acknowledged in time
+    private volatile ScheduledFuture<?> reconnectLoginTimeout;
+    private volatile Channel loggedInChannel;
+    private final int requestedFragmentTransmissionUnit;
+    //the fragment size accepted by the GDS on the login, 0 if the messages are not fragmented
+    private volatile int fragmentTransmissionUnit;
+    private final FragmentReassembler fragmentReassembler;
+    //the channels the attachments of the requests are written to, by the IDs of the attachment requests
+    private final Map<String, WritableByteChannel> attachmentSinks;
+    //null if the incoming messages are passed to the listener
+    private final GDSMessagePublisher messagePublisher;
+    //null if the incoming messages are processed by the event loop
+    private final OrderedExecutor listenerExecutor;
+    //0 if every message is flushed on its own
+    private final int maxConsolidatedFlushes;
+    //null if the default water marks of Netty are used
+    private final WriteBufferWaterMark writeBufferWaterMark;
+    private final int maxFramePayloadLength;
+    private final int maxAggregatedMessageSize;
+    private final boolean compression;
+    private final int compressionLevel;
+    private final int compressionWindowBits;
+    private final boolean streamingDecoding;
+    //signalled when the connection becomes writable (or is lost), awaited by the senders throttled by the backpressure
+    private final ReentrantLock writabilityLock;
+    private final Condition writableCondition;
 
     /**
      * Creates a new AsyncGDSClient with the specified parameters.
@@ -260,6 +767,18 @@ public final class AsyncGDSClient implements AutoCloseable {
                           GDSMessageListener listener, SslContext sslCtx, NioEventLoopGroup eventLoopGroup,
                           boolean shutdownByClose, boolean serveOnTheSameConnection) {
 
+        this(uri, userName, userPassword, timeout, log, listener, sslCtx, eventLoopGroup, shutdownByClose,
+                serveOnTheSameConnection, getBuilder());
+    }
+
+    /**
+     * Creates the client from the explicit parameters of the public constructor, while the rest of the settings
+     * are taken from the given builder.
+     */
+    AsyncGDSClient(String uri, String userName, String userPassword, long timeout, Logger log,
+                   GDSMessageListener listener, SslContext sslCtx, EventLoopGroup eventLoopGroup,
+                   boolean shutdownByClose, boolean serveOnTheSameConnection, AsyncGDSClientBuilder options) {
+
         Objects.requireNonNull(uri, "The URI for the GDS cannot be null!");
         Objects.requireNonNull(userName, "The username for the GDS cannot be null!");
         Objects.requireNonNull(listener, "The GDSMessageListener for the GDS cannot be null!");
@@ -276,14 +795,18 @@ public final class AsyncGDSClient implements AutoCloseable {
         this.serveOnTheSameConnection = serveOnTheSameConnection;
 
         if (eventLoopGroup == null) {
-            this.eventLoopGroup = new NioEventLoopGroup();
+            this.eventLoopGroup = options.nativeTransport ? Transports.newEventLoopGroup() : new NioEventLoopGroup();
             this.shutdownByClose = true;
         } else {
             this.eventLoopGroup = eventLoopGroup;
             this.shutdownByClose = shutdownByClose;
         }
+        this.socketChannelClass = eventLoopGroup != null && options.socketChannelClass != null
+                ? options.socketChannelClass
+                : Transports.socketChannelClass(this.eventLoopGroup);
 
         this.log = Objects.requireNonNullElseGet(log, () -> createDefaultLogger("AsyncGDSClient"));
+        this.log.config("Using the " + Transports.transportName(this.eventLoopGroup) + " transport.");
         this.sslCtx = sslCtx;
 
         try {
@@ -300,6 +823,39 @@ public final class AsyncGDSClient implements AutoCloseable {
         this.userName = userName;
         this.userPassword = userPassword;
         this.timeout = timeout;
+        this.decodeQueryHitsAsColumns = options.decodeQueryHitsAsColumns;
+        this.eventEncoders = ThreadLocal.withInitial(() -> new EventMessageEncoder(userName));
+        this.reconnectStatistics = new ReconnectStatistics();
+        this.metrics = new ClientMetrics(this::getNumberOfPendingRequests, reconnectStatistics, this::getChannel);
+        this.pendingRequests = new PendingRequests(metrics);
+        this.requestTimeout = options.requestTimeout > 0 ? options.requestTimeout : timeout;
+        this.connectionWatcherExecutor = Objects.requireNonNullElse(options.connectionWatcherExecutor,
+                command -> new Thread(command, "gds-connection-watcher").start());
+        this.reconnectInitialDelay = options.reconnectInitialDelay;
+        this.reconnectMaxDelay = options.reconnectMaxDelay;
+        this.maxReconnectAttempts = options.maxReconnectAttempts;
+        this.reconnectAttemptId = new AtomicInteger();
+        this.requestedFragmentTransmissionUnit = options.fragmentTransmissionUnit;
+        this.fragmentReassembler = new FragmentReassembler(options.maxReassembledBytes);
+        this.attachmentSinks = new ConcurrentHashMap<>();
+        this.messagePublisher = options.messagePublisherCapacity > 0
+                ? new GDSMessagePublisher(options.messagePublisherCapacity, options.messagePublisherExecutor, this::setReading)
+                : null;
+        this.listenerExecutor = options.listenerExecutor != null ? new OrderedExecutor(options.listenerExecutor) : null;
+        this.maxConsolidatedFlushes = options.maxConsolidatedFlushes;
+        this.writeBufferWaterMark = options.writeBufferWaterMark;
+        this.maxFramePayloadLength = options.maxFramePayloadLength;
+        this.maxAggregatedMessageSize = options.maxAggregatedMessageSize;
+        this.compression = options.compression;
+        this.compressionLevel = options.compressionLevel;
+        this.compressionWindowBits = options.compressionWindowBits;
+        if (options.streamingDecoding && options.listenerExecutor == null) {
+            this.log.warning("The streaming decoding requires a listener executor, the frames of the messages are aggregated instead.");
+        }
+        this.streamingDecoding = options.streamingDecoding && options.listenerExecutor != null;
+        this.writabilityLock = new ReentrantLock();
+        this.writableCondition = writabilityLock.newCondition();
+        this.metricsObjectName = options.jmxMetricsName != null ? registerMetrics(options.jmxMetricsName) : null;
 
         this.countDownLatch = new CountDownLatch(1);
         this.state = new AtomicReference<>(ConnectionState.NOT_CONNECTED);
@@ -358,7 +914,7 @@ public final class AsyncGDSClient implements AutoCloseable {
      */
     public void connect() {
         if (state.compareAndSet(ConnectionState.NOT_CONNECTED, ConnectionState.INITIALIZING)) {
-            new Thread(() -> {
+            connectionWatcherExecutor.execute(() -> {
                 client.connect();
                 try {
                     if (!countDownLatch.await(timeout, TimeUnit.MILLISECONDS)) {
@@ -376,7 +932,7 @@ public final class AsyncGDSClient implements AutoCloseable {
                                 Either.fromLeft(new RuntimeException(ie)));
                     }
                 }
-            }).start();
+            });
         } else {
             throw new IllegalStateException("Could not initialize connection because the state is not " + ConnectionState.NOT_CONNECTED
                     + " but " + getState() + "! (The client is already in use.)");
@@ -391,7 +947,54 @@ public final class AsyncGDSClient implements AutoCloseable {
         if (getState() != ConnectionState.FAILED) {
             state.set(ConnectionState.DISCONNECTED);
         }
+        //cancels the reconnection, if in progress
+        reconnecting = false;
+        reconnectAttemptId.incrementAndGet();
+        cancelReconnectLoginTimeout();
+        Channel attemptChannel = reconnectChannel;
+        if (attemptChannel != null) {
+            attemptChannel.close();
+        }
         client.close();
+        pendingRequests.failAll(new IllegalStateException("The client was closed before the reply arrived!"));
+        if (messagePublisher != null) {
+            messagePublisher.complete(null);
+        }
+        if (metricsObjectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsObjectName);
+            } catch (InstanceNotFoundException e) {
+                //already unregistered by a previous close
+            } catch (MBeanRegistrationException e) {
+                log.warning("Could not unregister the metrics " + metricsObjectName + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Registers the metrics of the client on the platform MBean server.
+     *
+     * @return the object name of the registered MXBean, {@code null} if it could not be registered
+     */
+    private ObjectName registerMetrics(String name) {
+        try {
+            ObjectName objectName = new ObjectName("hu.arheu.gds:type=GDSClient,name=" + quoteIfNeeded(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+            log.config("The metrics are registered as " + objectName);
+            return objectName;
+        } catch (JMException e) {
+            log.warning("Could not register the metrics of the client to JMX: " + e);
+            return null;
+        }
+    }
+
+    private static String quoteIfNeeded(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (",=:*?\"\\\n".indexOf(value.charAt(i)) >= 0) {
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
     }
 
 
@@ -566,6 +1169,36 @@ public final class AsyncGDSClient implements AutoCloseable {
         return sendMessage(header, event);
     }
 
+    /**
+     * Returns the event encoder of the calling thread, reset and ready to be filled with the next event.
+     * The encoder is reused by every subsequent call on the same thread, so it must not be shared with other threads.
+     *
+     * @return the (reset) event encoder of the current thread
+     */
+    public EventMessageEncoder getEventEncoder() {
+        return eventEncoders.get().reset();
+    }
+
+    /**
+     * Sends the event currently held by the given encoder. The message is encoded directly into a buffer taken
+     * from the allocator of the channel, the encoder can be reset and reused once this method returns.
+     *
+     * @param encoder the encoder holding the event, see {@link AsyncGDSClient#getEventEncoder()}
+     * @return the {@link ChannelFuture} instance associated with the communication channel
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if the event has no operations or has invalid priority levels
+     */
+    public ChannelFuture sendEvent2(EventMessageEncoder encoder) throws IOException, ValidationException {
+        if (log.isLoggable(Level.CONFIG)) {
+            log.config("Sending message with ID " + encoder.getMessageId() + " of type " + MessageDataType.EVENT_2);
+        }
+        ConnectionState state = getState();
+        if (state != ConnectionState.LOGGED_IN) {
+            throw new IllegalStateException("Could not send message! Expected client state 'LOGGED_IN' but got " + state);
+        }
+        return client.send(encoder);
+    }
+
 
     /**
      * Sends an attachment request message
@@ -1118,57 +1751,726 @@ public final class AsyncGDSClient implements AutoCloseable {
      * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
      */
     public ChannelFuture sendMessage(MessageHeader header, MessageData data) throws ValidationException, IOException {
-        log.config("Sending message with ID " + header.asBaseMessageHeader().getMessageId()
-                + " of type " + data.getMessageDataType());
-        return sendMessage(MessageManager.createMessage(header, data));
+        if (log.isLoggable(Level.CONFIG)) {
+            log.config("Sending message with ID " + header.asBaseMessageHeader().getMessageId()
+                    + " of type " + data.getMessageDataType());
+        }
+        ConnectionState state = getState();
+        if (state != ConnectionState.LOGGED_IN) {
+            throw new IllegalStateException("Could not send message! Expected client state 'LOGGED_IN' but got " + state);
+        }
+        return client.send(header, data);
     }
 
-    //</editor-fold>
+    /**
+     * Sends a message towards the GDS only if it can be written without exceeding the high water mark of the
+     * outbound buffer (see {@link AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}).
+     *
+     * @param data the message data sent to the GDS.
+     * @return the {@link ChannelFuture} instance associated with the communication channel, {@code null} if the
+     * connection is not writable (the message was not sent)
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public ChannelFuture trySendMessage(MessageData data) throws ValidationException, IOException {
+        return trySendMessage(MessageManager.createMessageHeaderBase(userName, data.getMessageDataType()), data);
+    }
 
     /**
-     * Sends a WebSocket Ping message to the GDS.
+     * Sends a message towards the GDS only if it can be written without exceeding the high water mark of the
+     * outbound buffer (see {@link AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}).
      *
-     * @return the {@link ChannelFuture} instance associated with the communication channel
+     * @param header the message header
+     * @param data   the message data sent to the GDS.
+     * @return the {@link ChannelFuture} instance associated with the communication channel, {@code null} if the
+     * connection is not writable (the message was not sent)
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
      */
-    public ChannelFuture sendPingMessage() {
-        ConnectionState state = getState();
-        if (state != ConnectionState.LOGGED_IN) {
-            throw new IllegalStateException("Could not send message! Expected client state 'LOGGED_IN' but got " + state);
+    public ChannelFuture trySendMessage(MessageHeader header, MessageData data) throws ValidationException, IOException {
+        if (getState() == ConnectionState.LOGGED_IN && !isWritable()) {
+            return null;
         }
-        return client.sendPingMessage();
+        return sendMessage(header, data);
     }
 
     /**
-     * Sends the message without any further validation than checking the connection.
+     * Sends a message towards the GDS, waiting until the outbound buffer drops below its low water mark if the
+     * connection is not writable (see {@link AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}).
      * <p>
-     * This should not be called by client code natively as it bypasses any message format checking
-     * (although the GDS will drop it if it's incorrect)
+     * Cannot be called on an I/O thread of the client (e.g. from a {@link GDSMessageListener} callback or a
+     * dependent action of a returned future), see {@link #awaitWritable(long)}.
      *
-     * @param message the raw message to be sent
+     * @param data    the message data sent to the GDS.
+     * @param timeout the maximum time to wait for the connection to become writable, in milliseconds
      * @return the {@link ChannelFuture} instance associated with the communication channel
+     * @throws IOException           if the message cannot be packed
+     * @throws ValidationException   if any value constraints the restrictions in the structure of the header or the body.
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     * @throws GDSTimeoutException   if the connection did not become writable within the timeout
+     * @throws IllegalStateException if called on an I/O thread of the client
      */
-    private ChannelFuture sendMessage(byte[] message) {
-        ConnectionState state = getState();
-        if (state != ConnectionState.LOGGED_IN) {
-            throw new IllegalStateException("Could not send message! Expected client state 'LOGGED_IN' but got " + state);
-        }
-        return client.send(message);
+    public ChannelFuture sendMessageWithBackpressure(MessageData data, long timeout)
+            throws ValidationException, IOException, InterruptedException {
+        return sendMessageWithBackpressure(MessageManager.createMessageHeaderBase(userName, data.getMessageDataType()),
+                data, timeout);
     }
 
     /**
-     * Processes the given message, trying to parse it.
-     * If any error occurs, will print it to the log. Otherwise, will call the {@link AsyncGDSClient#listener} with the
-     * right message type.
+     * Sends a message towards the GDS, waiting until the outbound buffer drops below its low water mark if the
+     * connection is not writable (see {@link AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}).
+     * <p>
+     * Cannot be called on an I/O thread of the client (e.g. from a {@link GDSMessageListener} callback or a
+     * dependent action of a returned future), see {@link #awaitWritable(long)}.
      *
-     * @param message the binary containing the incoming message
+     * @param header  the message header
+     * @param data    the message data sent to the GDS.
+     * @param timeout the maximum time to wait for the connection to become writable, in milliseconds
+     * @return the {@link ChannelFuture} instance associated with the communication channel
+     * @throws IOException           if the message cannot be packed
+     * @throws ValidationException   if any value constraints the restrictions in the structure of the header or the body.
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     * @throws GDSTimeoutException   if the connection did not become writable within the timeout
+     * @throws IllegalStateException if called on an I/O thread of the client
      */
-    private void handleIncomingMessage(byte[] message) {
-        try {
-            FullGdsMessage fullGdsMessage = new FullGdsMessage(message);
-            MessageHeaderBase header = fullGdsMessage.getHeader();
-            MessageData body = fullGdsMessage.getData();
+    public ChannelFuture sendMessageWithBackpressure(MessageHeader header, MessageData data, long timeout)
+            throws ValidationException, IOException, InterruptedException {
+        if (!awaitWritable(timeout)) {
+            throw new GDSTimeoutException("The connection did not become writable within " + timeout + " ms!");
+        }
+        return sendMessage(header, data);
+    }
 
-            log.config("Incoming message of type " + header.getDataType() + " with ID: " + header.getMessageId());
+    /**
+     * Returns whether the messages can be written to the connection without exceeding the high water mark of its
+     * outbound buffer (see {@link AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}).
+     *
+     * @return true if the client is connected and its connection is writable
+     */
+    public boolean isWritable() {
+        Channel channel = client.channel;
+        return channel != null && channel.isWritable();
+    }
+
+    /**
+     * Waits until the connection becomes writable (see {@link #isWritable()}), or it is lost (the client is not
+     * logged in anymore).
+     * <p>
+     * Cannot be called on an I/O thread of the client (e.g. from a {@link GDSMessageListener} callback or a
+     * dependent action of a returned future), as the outbound buffer is written to the socket by these threads, so
+     * the connection cannot become writable while one of them is waiting (and every connection served by the
+     * blocked thread would stall). The I/O threads should use {@link #trySendMessage(MessageHeader, MessageData)}
+     * instead.
+     *
+     * @param timeout the maximum time to wait, in milliseconds
+     * @return false if the timeout elapsed before the connection became writable, true otherwise
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     * @throws IllegalStateException if called on an I/O thread of the client
+     */
+    public boolean awaitWritable(long timeout) throws InterruptedException {
+        for (EventExecutor eventLoop : eventLoopGroup) {
+            if (eventLoop.inEventLoop()) {
+                throw new IllegalStateException("The writability of the connection cannot be awaited on an I/O thread"
+                        + " of the client, as it blocks the writing! Use trySendMessage() on this thread.");
+            }
+        }
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        writabilityLock.lock();
+        try {
+            while (mustAwaitWritability()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = writableCondition.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            writabilityLock.unlock();
+        }
+    }
+
+    private boolean mustAwaitWritability() {
+        Channel channel = client.channel;
+        return getState() == ConnectionState.LOGGED_IN && channel != null && channel.isActive() && !channel.isWritable();
+    }
+
+    private void signalWritabilityChanged() {
+        writabilityLock.lock();
+        try {
+            writableCondition.signalAll();
+        } finally {
+            writabilityLock.unlock();
+        }
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="Methods returning futures completed by the replies of the GDS">
+
+    /**
+     * Sends an event message, returning a future completed with the reply of the GDS. The reply is not passed to the
+     * listener of the client. If the reply does not arrive within the request timeout, the future is completed with
+     * a {@link GDSTimeoutException}.
+     * <p>
+     * The futures are completed by the I/O thread of the client, so dependent actions should not block (or should
+     * use the {@code ...Async} methods of the future with an executor).
+     *
+     * @param event the event to be sent to the GDS.
+     * @return the future completed with the event ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventResponse> sendEvent2Async(MessageData2Event event)
+            throws IOException, ValidationException {
+        return sendEvent2Async(MessageManager.createMessageHeaderBase(userName, MessageDataType.EVENT_2), event);
+    }
+
+    /**
+     * Sends an event message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param header the message header
+     * @param event  the event to be sent to the GDS.
+     * @return the future completed with the event ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventResponse> sendEvent2Async(MessageHeaderBase header, MessageData2Event event)
+            throws IOException, ValidationException {
+        String messageID = header.getMessageId();
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply = registerRequest(messageID, false, false,
+                () -> sendEvent2(header, event));
+        return reply.thenApply(pair -> new EventResponse(pair.getFirst(),
+                requireReplyType(pair, MessageData::isEventAckMessageData3, messageID).asEventAckMessageData3()));
+    }
+
+    /**
+     * Sends the event currently held by the given encoder, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)} and {@link AsyncGDSClient#sendEvent2(EventMessageEncoder)}.
+     *
+     * @param encoder the encoder holding the event, see {@link AsyncGDSClient#getEventEncoder()}
+     * @return the future completed with the event ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if the event has no operations or has invalid priority levels
+     */
+    public CompletableFuture<EventResponse> sendEvent2Async(EventMessageEncoder encoder)
+            throws IOException, ValidationException {
+        String messageID = encoder.getMessageId();
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply = registerRequest(messageID, false, false,
+                () -> sendEvent2(encoder));
+        return reply.thenApply(pair -> new EventResponse(pair.getFirst(),
+                requireReplyType(pair, MessageData::isEventAckMessageData3, messageID).asEventAckMessageData3()));
+    }
+
+    /**
+     * Sends an attachment request message, returning a future completed with the reply of the GDS.
+     * If the GDS does not have the attachment yet, the future is completed by the attachment response sent later
+     * (which is acknowledged automatically), otherwise by the attachment request ACK.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param request the attachment request to be sent to the GDS.
+     * @return the future completed with the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<AttachmentResult> sendAttachmentRequest4Async(MessageData4AttachmentRequest request)
+            throws IOException, ValidationException {
+        return sendAttachmentRequest4Async(
+                MessageManager.createMessageHeaderBase(userName, MessageDataType.ATTACHMENT_REQUEST_4), request);
+    }
+
+    /**
+     * Sends an attachment request message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendAttachmentRequest4Async(MessageData4AttachmentRequest)}.
+     *
+     * @param header  the message header
+     * @param request the attachment request to be sent to the GDS.
+     * @return the future completed with the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<AttachmentResult> sendAttachmentRequest4Async(MessageHeaderBase header,
+                                                                           MessageData4AttachmentRequest request)
+            throws IOException, ValidationException {
+        String messageID = header.getMessageId();
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply = registerRequest(messageID, true, true,
+                () -> sendAttachmentRequest4(header, request));
+        return reply.thenApply(pair -> {
+            MessageData data = requireReplyType(pair, d -> d.isAttachmentRequestAckMessageData5()
+                    || d.isAttachmentResponseMessageData6(), messageID);
+            return data.isAttachmentRequestAckMessageData5()
+                    ? new AttachmentResult(pair.getFirst(), Either.fromLeft(data.asAttachmentRequestAckMessageData5()))
+                    : new AttachmentResult(pair.getFirst(), Either.fromRight(data.asAttachmentResponseMessageData6()));
+        });
+    }
+
+    /**
+     * Sends an attachment request message, returning a future completed with the reply of the GDS. The attachment
+     * is not kept in memory, but written to the given channel while the reply is unpacked (so the
+     * {@link AttachmentResultHolder#getAttachment()} of the result is {@code null}, and the number of bytes written is
+     * returned by {@link AttachmentResultHolder#getStreamedAttachmentSize()}).
+     * See {@link AsyncGDSClient#sendAttachmentRequest4Async(MessageData4AttachmentRequest)}.
+     * <p>
+     * The channel is written by the thread of the event loop and it is not closed by the client. Since the content
+     * of the channel cannot be taken back, the request is not sent again after an automatic reconnection.
+     *
+     * @param request        the attachment request to be sent to the GDS.
+     * @param attachmentSink the channel the attachment is written to
+     * @return the future completed with the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<AttachmentResult> sendAttachmentRequest4Async(MessageData4AttachmentRequest request,
+                                                                           WritableByteChannel attachmentSink)
+            throws IOException, ValidationException {
+        return sendAttachmentRequest4Async(
+                MessageManager.createMessageHeaderBase(userName, MessageDataType.ATTACHMENT_REQUEST_4), request,
+                attachmentSink);
+    }
+
+    /**
+     * Sends an attachment request message, writing the attachment to the given channel.
+     * See {@link AsyncGDSClient#sendAttachmentRequest4Async(MessageData4AttachmentRequest, WritableByteChannel)}.
+     *
+     * @param header         the message header
+     * @param request        the attachment request to be sent to the GDS.
+     * @param attachmentSink the channel the attachment is written to
+     * @return the future completed with the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<AttachmentResult> sendAttachmentRequest4Async(MessageHeaderBase header,
+                                                                           MessageData4AttachmentRequest request,
+                                                                           WritableByteChannel attachmentSink)
+            throws IOException, ValidationException {
+        Objects.requireNonNull(attachmentSink, "The attachment sink cannot be null!");
+        String messageID = header.getMessageId();
+        registerAttachmentSink(messageID, attachmentSink);
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply;
+        try {
+            reply = registerRequest(messageID, true, false, () -> sendAttachmentRequest4(header, request));
+        } catch (IOException | RuntimeException e) {
+            removeAttachmentSink(messageID);
+            throw e;
+        }
+        reply.whenComplete((pair, throwable) -> removeAttachmentSink(messageID));
+        return reply.thenApply(pair -> {
+            MessageData data = requireReplyType(pair, d -> d.isAttachmentRequestAckMessageData5()
+                    || d.isAttachmentResponseMessageData6(), messageID);
+            return data.isAttachmentRequestAckMessageData5()
+                    ? new AttachmentResult(pair.getFirst(), Either.fromLeft(data.asAttachmentRequestAckMessageData5()))
+                    : new AttachmentResult(pair.getFirst(), Either.fromRight(data.asAttachmentResponseMessageData6()));
+        });
+    }
+
+    /**
+     * Sets the channel the attachment replied for the request with the given ID is written to, instead of keeping
+     * it in memory.
+     */
+    private void registerAttachmentSink(String messageID, WritableByteChannel attachmentSink) {
+        attachmentSinks.put(messageID, attachmentSink);
+    }
+
+    private void removeAttachmentSink(String messageID) {
+        attachmentSinks.remove(messageID);
+    }
+
+    /**
+     * Sends an event document message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param eventDocument the event document to be sent to the GDS.
+     * @return the future completed with the event document ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventDocumentResponse> sendEventDocument8Async(MessageData8EventDocument eventDocument)
+            throws IOException, ValidationException {
+        return sendEventDocument8Async(
+                MessageManager.createMessageHeaderBase(userName, MessageDataType.EVENT_DOCUMENT_8), eventDocument);
+    }
+
+    /**
+     * Sends an event document message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param header        the message header
+     * @param eventDocument the event document to be sent to the GDS.
+     * @return the future completed with the event document ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventDocumentResponse> sendEventDocument8Async(MessageHeaderBase header,
+                                                                            MessageData8EventDocument eventDocument)
+            throws IOException, ValidationException {
+        String messageID = header.getMessageId();
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply = registerRequest(messageID, false, false,
+                () -> sendEventDocument8(header, eventDocument));
+        return reply.thenApply(pair -> new EventDocumentResponse(pair.getFirst(),
+                requireReplyType(pair, MessageData::isEventDocumentAckMessageData9, messageID)
+                        .asEventDocumentAckMessageData9()));
+    }
+
+    /**
+     * Sends a query request message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param request the query request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<QueryResponse> sendQueryRequest10Async(MessageData10QueryRequest request)
+            throws IOException, ValidationException {
+        return sendQueryRequest10Async(
+                MessageManager.createMessageHeaderBase(userName, MessageDataType.QUERY_REQUEST_10), request);
+    }
+
+    /**
+     * Sends a query request message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param header  the message header
+     * @param request the query request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<QueryResponse> sendQueryRequest10Async(MessageHeaderBase header,
+                                                                    MessageData10QueryRequest request)
+            throws IOException, ValidationException {
+        String messageID = header.getMessageId();
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply = registerRequest(messageID, false, true,
+                () -> sendQueryRequest10(header, request));
+        return reply.thenApply(pair -> new QueryResponse(pair.getFirst(),
+                requireReplyType(pair, MessageData::isQueryRequestAckMessageData11, messageID)
+                        .asQueryRequestAckMessageData11()));
+    }
+
+    /**
+     * Sends a next query page request message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param request the next query page request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<QueryResponse> sendNextQueryPage12Async(MessageData12NextQueryPage request)
+            throws IOException, ValidationException {
+        return sendNextQueryPage12Async(
+                MessageManager.createMessageHeaderBase(userName, MessageDataType.NEXT_QUERY_PAGE_12), request);
+    }
+
+    /**
+     * Sends a next query page request message, returning a future completed with the reply of the GDS.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param header  the message header
+     * @param request the next query page request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<QueryResponse> sendNextQueryPage12Async(MessageHeaderBase header,
+                                                                     MessageData12NextQueryPage request)
+            throws IOException, ValidationException {
+        String messageID = header.getMessageId();
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply = registerRequest(messageID, false, true,
+                () -> sendNextQueryPage12(header, request));
+        return reply.thenApply(pair -> new QueryResponse(pair.getFirst(),
+                requireReplyType(pair, MessageData::isQueryRequestAckMessageData11, messageID)
+                        .asQueryRequestAckMessageData11()));
+    }
+
+    /**
+     * Sends a query request message, returning an iterator over all pages of its result. The next pages are
+     * requested automatically, up to {@code prefetchPages} pages ahead of the one being processed by the caller.
+     * See {@link QueryPages}.
+     *
+     * @param request       the query request to be sent to the GDS.
+     * @param prefetchPages the number of pages requested ahead of the consumer ({@code 0} to request the next page
+     *                      only when it is needed)
+     * @return the iterator over the pages of the query
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public QueryPages queryAllPages(MessageData10QueryRequest request, int prefetchPages)
+            throws IOException, ValidationException {
+        return new QueryPages(sendQueryRequest10Async(request), this::sendNextQueryPage12Async, request.getTimeout(),
+                prefetchPages);
+    }
+
+    /**
+     * Returns the publisher of the incoming messages, if enabled by
+     * {@link AsyncGDSClientBuilder#withMessagePublisher(int, Executor)}. The messages are published to a single
+     * subscriber, whose demand controls the reading of the connection. The subscriber is completed when the client
+     * is closed or the connection is lost (and not recovered by the automatic reconnection).
+     *
+     * @return the publisher of the incoming messages
+     * @throws IllegalStateException if the client was not built with the message publisher enabled
+     */
+    public Flow.Publisher<FullGdsMessage> getMessagePublisher() {
+        if (messagePublisher == null) {
+            throw new IllegalStateException("The message publisher is not enabled for the client!");
+        }
+        return messagePublisher;
+    }
+
+    /**
+     * Turns the reading of the current connection on or off, used for the backpressure of the message publisher.
+     */
+    private void setReading(boolean enabled) {
+        Channel channel = client.channel;
+        if (channel != null) {
+            channel.config().setAutoRead(enabled);
+        }
+    }
+
+    /**
+     * Returns the number of requests sent by the {@code send...Async} methods that are still waiting for the reply.
+     *
+     * @return the number of pending requests
+     */
+    public int getNumberOfPendingRequests() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Registers the request in the pending table and sends it. If the sending fails, the request is removed
+     * (and its future is completed exceptionally), unless it is replayable and the connection was lost while it
+     * was being written, in which case it is sent again once the client reconnected.
+     */
+    private CompletableFuture<Pair<MessageHeaderBase, MessageData>> registerRequest(String messageID,
+                                                                                   boolean awaitsAttachment,
+                                                                                   boolean replayable,
+                                                                                   PendingRequests.Sender sender)
+            throws IOException, ValidationException {
+
+        boolean replay = replayable && reconnectInitialDelay > 0;
+        CompletableFuture<Pair<MessageHeaderBase, MessageData>> reply =
+                pendingRequests.register(messageID, requestTimeout, awaitsAttachment, replay ? sender : null);
+        try {
+            sender.send().addListener((ChannelFuture future) -> {
+                if (!future.isSuccess() && !(replay && !future.channel().isActive())) {
+                    pendingRequests.fail(messageID, future.cause());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            pendingRequests.fail(messageID, e);
+            throw e;
+        }
+        return reply;
+    }
+
+    private MessageData requireReplyType(Pair<MessageHeaderBase, MessageData> reply,
+                                         Predicate<MessageData> expectedType,
+                                         String messageID) {
+        if (!expectedType.test(reply.getSecond())) {
+            String msg = "The type for the reply for the message with ID " + messageID + " is invalid.";
+            log.config(msg);
+            throw new IllegalStateException(msg);
+        }
+        return reply.getSecond();
+    }
+
+    /**
+     * Sends the ACK for an attachment response that completed a pending attachment request.
+     */
+    private void acknowledgeAttachmentResponse(MessageHeaderBase header, MessageData6AttachmentResponse response) {
+        try {
+            log.config("Sending attachment ACK for the received attachment response..");
+            sendAttachmentResponseAck7(header.getMessageId(), MessageManager.createMessageData7AttachmentResponseAck(
+                    AckStatus.OK,
+                    new AttachmentResponseAckResultHolderImpl(AckStatus.CREATED,
+                            new AttachmentResultHolderImpl(
+                                    response.getResult().getRequestIds(),
+                                    response.getResult().getOwnerTable(),
+                                    response.getResult().getAttachmentId()
+                            )),
+                    null));
+        } catch (IOException | ValidationException | IllegalStateException e) {
+            log.warning("Could not send the ACK for the attachment response with ID " + header.getMessageId() + ": " + e);
+        }
+    }
+
+    //</editor-fold>
+
+    /**
+     * Sends a WebSocket Ping message to the GDS.
+     *
+     * @return the {@link ChannelFuture} instance associated with the communication channel
+     */
+    public ChannelFuture sendPingMessage() {
+        ConnectionState state = getState();
+        if (state != ConnectionState.LOGGED_IN) {
+            throw new IllegalStateException("Could not send message! Expected client state 'LOGGED_IN' but got " + state);
+        }
+        return client.sendPingMessage();
+    }
+
+    /**
+     * Unpacks the header of the given message, and processes the message right away, or on the
+     * {@link AsyncGDSClient#listenerExecutor} if set.
+     *
+     * @param message          the buffer containing the incoming message. It is not released here.
+     * @param allocator        the allocator used to reassemble the fragmented messages
+     * @param reconnectAttempt the ID of the reconnection attempt the connection belongs to, {@code 0} for the initial
+     *                         connection
+     */
+    private void handleIncomingMessage(ByteBuf message, ByteBufAllocator allocator, int reconnectAttempt) {
+        int bytes = message.readableBytes();
+        FullGdsMessage fullGdsMessage;
+        try {
+            fullGdsMessage = new FullGdsMessage(message, true);
+        } catch (IOException e) {
+            log.info("The format of the incoming binary message is invalid! " + e);
+            return;
+        }
+        metrics.recordBytesReceived(fullGdsMessage.getHeader().getDataType(), bytes);
+        if (listenerExecutor == null) {
+            processIncomingMessage(fullGdsMessage, allocator, reconnectAttempt);
+            return;
+        }
+        String messageId = fullGdsMessage.getHeader().getMessageId();
+        //the data part is decoded from the buffer on the executor
+        message.retain();
+        try {
+            listenerExecutor.execute(messageId, () -> {
+                try {
+                    processIncomingMessage(fullGdsMessage, allocator, reconnectAttempt);
+                } catch (RuntimeException e) {
+                    log.severe("Could not process the message with ID " + messageId + ": " + e);
+                } finally {
+                    message.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            message.release();
+            log.warning("The message with ID " + messageId + " was dropped, as the listener executor rejected it: " + e);
+        }
+    }
+
+    /**
+     * Unpacks the header of a message received in more WebSocket frames, if it can already be unpacked from the
+     * frames received so far.
+     *
+     * @param received the frames of the message received so far
+     * @return the header, or {@code null} if the header is not complete yet (or it is invalid, which is reported
+     * once the message is aggregated)
+     */
+    private static MessageHeaderBase unpackHeader(ByteBuf received) {
+        try {
+            return new FullGdsMessage(received, true).getHeader();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts decoding a message received in more WebSocket frames on the {@link AsyncGDSClient#listenerExecutor}.
+     *
+     * @param header           the header of the message, unpacked from the frames received so far
+     * @param received         the frames of the message received so far. Released by the returned input.
+     * @param allocator        the allocator used to reassemble the fragmented messages
+     * @param reconnectAttempt the ID of the reconnection attempt the connection belongs to, {@code 0} for the initial
+     *                         connection
+     * @return the input the rest of the frames have to be added to
+     */
+    private ChainedByteBufMessageBufferInput streamIncomingMessage(MessageHeaderBase header, ByteBuf received,
+                                                                   ByteBufAllocator allocator, int reconnectAttempt) {
+        metrics.recordBytesReceived(header.getDataType(), received.readableBytes());
+        String messageId = header.getMessageId();
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Decoding the message with ID " + messageId + " while its frames are arriving");
+        }
+        ChainedByteBufMessageBufferInput input = new ChainedByteBufMessageBufferInput();
+        input.add(received);
+        try {
+            listenerExecutor.execute(messageId, () -> {
+                //the frames of the message are released by closing the unpacker, even if it is not decoded at all
+                try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(input)) {
+                    processIncomingMessage(new FullGdsMessage(unpacker), allocator, reconnectAttempt);
+                } catch (IOException e) {
+                    log.info("The format of the incoming binary message is invalid! " + e);
+                } catch (RuntimeException e) {
+                    log.severe("Could not process the message with ID " + messageId + ": " + e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //the rest of the frames are dropped as they arrive
+            input.close();
+            log.warning("The message with ID " + messageId + " was dropped, as the listener executor rejected it: " + e);
+        }
+        return input;
+    }
+
+    /**
+     * Processes the given message, decoding its data part.
+     * If any error occurs, will print it to the log. Otherwise, will call the {@link AsyncGDSClient#listener} with the
+     * right message type.
+     *
+     * @param fullGdsMessage   the message with its header unpacked, whose buffer is not released until this returns
+     * @param allocator        the allocator used to reassemble the fragmented messages
+     * @param reconnectAttempt the ID of the reconnection attempt the connection belongs to, {@code 0} for the initial
+     *                         connection
+     */
+    private void processIncomingMessage(FullGdsMessage fullGdsMessage, ByteBufAllocator allocator, int reconnectAttempt) {
+        ByteBuf reassembled = null;
+        try {
+            MessageHeaderBase header = fullGdsMessage.getHeader();
+
+            if (Boolean.TRUE.equals(header.getIsFragmented())) {
+                reassembled = fragmentReassembler.add(header, fullGdsMessage.getFragmentData(), allocator);
+                if (reassembled == null) {
+                    if (log.isLoggable(Level.FINEST)) {
+                        log.finest("Fragment of the message with ID " + header.getMessageId() + " received at offset " + header.getOffset());
+                    }
+                    return;
+                }
+                header = MessageManager.createMessageHeaderBase(header.getUserName(), header.getMessageId(),
+                        header.getCreateTime(), header.getRequestTime(), false, null, null, null, null,
+                        header.getDataType());
+                fullGdsMessage = new FullGdsMessage(header, reassembled);
+            }
+
+            if (log.isLoggable(Level.CONFIG)) {
+                log.config("Incoming message of type " + header.getDataType() + " with ID: " + header.getMessageId());
+            }
+
+            boolean loginReply = header.getDataType() == MessageDataType.CONNECTION_ACK_1;
+            boolean pendingReply = !loginReply && pendingRequests.isPending(header.getMessageId());
+            if (!loginReply && !pendingReply && !listener.acceptIncomingMessage(header)) {
+                if (log.isLoggable(Level.CONFIG)) {
+                    log.config("The message with ID " + header.getMessageId() + " was dropped by the listener.");
+                }
+                return;
+            }
+            //the data has to be decoded before the frame holding it is released
+            WritableByteChannel attachmentSink = attachmentSinks.isEmpty() ? null : attachmentSinks.get(header.getMessageId());
+            long start = System.nanoTime();
+            try {
+                fullGdsMessage.decodeData(decodeQueryHitsAsColumns, attachmentSink);
+                metrics.recordReceived(header.getDataType(), System.nanoTime() - start);
+            } catch (ReadException e) {
+                if (attachmentSink != null) {
+                    pendingRequests.fail(header.getMessageId(), e);
+                }
+                throw e;
+            }
+            MessageData body = fullGdsMessage.getData();
+
+            if (pendingReply && pendingRequests.complete(header, body)) {
+                if (body.isAttachmentResponseMessageData6()) {
+                    acknowledgeAttachmentResponse(header, body.asAttachmentResponseMessageData6());
+                }
+                return;
+            }
+
+            if (messagePublisher != null && !loginReply) {
+                messagePublisher.offer(fullGdsMessage);
+                return;
+            }
 
             switch (body.getMessageDataType()) {
                 case CONNECTION_ACK_1 -> {
@@ -1186,6 +2488,13 @@ public final class AsyncGDSClient implements AutoCloseable {
                         this.listener.onConnectionFailure(client.channel, Either.fromRight(new Pair<>(header, connectionAck)));
 
                     } else {
+                        //the attempt is claimed first, so it cannot fail (e.g. time out) once the client is logged in
+                        if (reconnectAttempt > 0 && !reconnectAttemptId.compareAndSet(reconnectAttempt, reconnectAttempt + 1)) {
+                            if (log.isLoggable(Level.CONFIG)) {
+                                log.config("The login of the reconnection attempt " + reconnectAttempt + " was acknowledged after the attempt failed.");
+                            }
+                            return;
+                        }
                         if (!state.compareAndSet(ConnectionState.LOGGING_IN, ConnectionState.LOGGED_IN)) {
                             if (getState() != ConnectionState.DISCONNECTED) {
                                 throw new IllegalStateException("Expected state is LOGGING_IN but got: " + getState());
@@ -1193,7 +2502,17 @@ public final class AsyncGDSClient implements AutoCloseable {
                                 return;
                             }
                         }
-                        this.listener.onConnectionSuccess(client.channel, header, connectionAck);
+                        loggedInChannel = client.channel;
+                        fragmentTransmissionUnit = negotiateFragmentTransmissionUnit(connectionAck);
+                        if (messagePublisher != null) {
+                            //the reading of the new connection has to be stopped as well if the subscriber is behind
+                            messagePublisher.refreshReading();
+                        }
+                        if (reconnectAttempt > 0) {
+                            finishReconnecting(header, connectionAck);
+                        } else {
+                            this.listener.onConnectionSuccess(client.channel, header, connectionAck);
+                        }
                     }
                 }
                 case EVENT_ACK_3 -> listener.onEventAck3(header, body.asEventAckMessageData3());
@@ -1215,6 +2534,176 @@ public final class AsyncGDSClient implements AutoCloseable {
             }
         } catch (IOException | ValidationException e) {
             log.info("The format of the incoming binary message is invalid! " + e);
+        } finally {
+            if (reassembled != null) {
+                reassembled.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the data chunks the messages are fragmented to, based on the login reply of the GDS.
+     *
+     * @return the fragment size, {@code 0} if the messages should not be fragmented
+     */
+    private int negotiateFragmentTransmissionUnit(MessageData1ConnectionAck connectionAck) {
+        if (requestedFragmentTransmissionUnit <= 0) {
+            return 0;
+        }
+        MessageData0Connection ackData = connectionAck.getAckDataOk();
+        if (ackData == null || !Boolean.TRUE.equals(ackData.getFragmentationSupported())) {
+            log.info("The GDS does not support fragmentation, the messages are sent in one piece.");
+            return 0;
+        }
+        Long unit = ackData.getFragmentTransmissionUnit();
+        if (unit == null || unit <= 0) {
+            return requestedFragmentTransmissionUnit;
+        }
+        return (int) Math.min(unit, requestedFragmentTransmissionUnit);
+    }
+
+    /**
+     * Returns the statistics of the automatic reconnections of the client.
+     *
+     * @return the reconnection statistics (updated live)
+     */
+    public ReconnectStatistics getReconnectStatistics() {
+        return reconnectStatistics;
+    }
+
+    /**
+     * Returns the metrics of the client: the messages and bytes sent and received by type, the time of encoding and
+     * decoding them, the reply latencies, and the state of the connection.
+     *
+     * @return the metrics (updated live)
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the current connection, {@code null} if there is none
+     */
+    private Channel getChannel() {
+        return client == null ? null : client.channel;
+    }
+
+    /**
+     * Called when a logged-in connection is lost. Starts reconnecting if the automatic reconnection is enabled.
+     *
+     * @return whether the client started reconnecting
+     */
+    private boolean startReconnecting(Channel channel) {
+        if (reconnectInitialDelay <= 0 || !state.compareAndSet(ConnectionState.LOGGED_IN, ConnectionState.RECONNECTING)) {
+            return false;
+        }
+        log.warning("The connection to the GDS was lost, reconnecting..");
+        connectionLostAt = System.nanoTime();
+        reconnectAttemptsInRow = 0;
+        reconnecting = true;
+        pendingRequests.failNotReplayable(new IllegalStateException("The connection was lost before the reply arrived!"));
+        fragmentReassembler.clear();
+        fragmentTransmissionUnit = 0;
+        listener.onDisconnect(channel);
+        scheduleReconnect(reconnectAttemptId.incrementAndGet());
+        return true;
+    }
+
+    private void scheduleReconnect(int attempt) {
+        long delay = reconnectInitialDelay << Math.min(reconnectAttemptsInRow, 30);
+        if (delay <= 0 || delay > reconnectMaxDelay) {
+            delay = reconnectMaxDelay;
+        }
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        log.config("Next reconnect attempt in " + delay + "ms.");
+        try {
+            eventLoopGroup.schedule(() -> reconnect(attempt), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            giveUpReconnecting(e);
+        }
+    }
+
+    private void reconnect(int attempt) {
+        if (reconnectAttemptId.get() != attempt || !state.compareAndSet(ConnectionState.RECONNECTING, ConnectionState.INITIALIZING)) {
+            return;
+        }
+        log.config("Reconnecting to the GDS..");
+        ChannelFuture connectFuture = client.connect(attempt);
+        if (connectFuture == null) {
+            return;
+        }
+        Channel channel = connectFuture.channel();
+        reconnectChannel = channel;
+        connectFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                reconnectAttemptFailed(attempt, future.cause());
+            }
+        });
+        reconnectLoginTimeout = eventLoopGroup.schedule(() -> reconnectAttemptFailed(attempt, new GDSTimeoutException(
+                "The GDS did not respond within " + timeout + "ms!")), timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called on any failure of a reconnection attempt, only the first call for the attempt has effect.
+     */
+    private void reconnectAttemptFailed(int attempt, Throwable cause) {
+        if (!reconnectAttemptId.compareAndSet(attempt, attempt + 1)) {
+            return;
+        }
+        cancelReconnectLoginTimeout();
+        Channel attemptChannel = reconnectChannel;
+        if (attemptChannel != null) {
+            attemptChannel.close();
+        }
+        ConnectionState current = getState();
+        if (current == ConnectionState.DISCONNECTED || current == ConnectionState.FAILED
+                || !state.compareAndSet(current, ConnectionState.RECONNECTING)) {
+            return;
+        }
+        reconnectStatistics.recordFailedAttempt();
+        log.info("Reconnect attempt failed: " + cause);
+        reconnectAttemptsInRow++;
+        if (maxReconnectAttempts > 0 && reconnectAttemptsInRow >= maxReconnectAttempts) {
+            giveUpReconnecting(cause);
+        } else {
+            scheduleReconnect(attempt + 1);
+        }
+    }
+
+    private void giveUpReconnecting(Throwable cause) {
+        log.severe("Could not reconnect to the GDS, giving up! Last error: " + cause);
+        state.set(ConnectionState.FAILED);
+        if (messagePublisher != null) {
+            messagePublisher.complete(cause);
+        }
+        close();
+        listener.onConnectionFailure(reconnectChannel, Either.fromLeft(cause));
+    }
+
+    private void cancelReconnectLoginTimeout() {
+        ScheduledFuture<?> loginTimeout = reconnectLoginTimeout;
+        if (loginTimeout != null) {
+            loginTimeout.cancel(false);
+        }
+    }
+
+    /**
+     * Called when the login on the new connection was acknowledged by the GDS.
+     */
+    private void finishReconnecting(MessageHeaderBase header, MessageData1ConnectionAck connectionAck) {
+        cancelReconnectLoginTimeout();
+        reconnecting = false;
+        reconnectChannel = null;
+        long reconnectNanos = System.nanoTime() - connectionLostAt;
+        reconnectStatistics.recordReconnect(reconnectNanos);
+        int replayed = pendingRequests.replay();
+        log.info("Reconnected to the GDS in " + TimeUnit.NANOSECONDS.toMillis(reconnectNanos) + "ms, "
+                + replayed + " pending requests were sent again.");
+        Channel channel = client.channel;
+        listener.onReconnect(channel, header, connectionAck, TimeUnit.NANOSECONDS.toMillis(reconnectNanos));
+        if (!channel.isActive()) {
+            //the connection was lost while the login was processed, before it could be seen as logged in
+            startReconnecting(channel);
         }
     }
 
@@ -1227,13 +2716,25 @@ public final class AsyncGDSClient implements AutoCloseable {
         }
 
         Channel channel;
-        private final Object lock = new Object();
+        private final ReentrantLock lock = new ReentrantLock();
 
         void connect() {
+            connect(0);
+        }
+
+        /**
+         * @param reconnectAttempt the ID of the reconnection attempt, {@code 0} for the initial connection
+         * @return the future of the connection, {@code null} if it could not be initiated
+         */
+        ChannelFuture connect(int reconnectAttempt) {
             try {
-                new Bootstrap()
+                Bootstrap bootstrap = new Bootstrap()
                         .group(eventLoopGroup)
-                        .channel(NioSocketChannel.class)
+                        .channel(socketChannelClass);
+                if (writeBufferWaterMark != null) {
+                    bootstrap.option(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark);
+                }
+                ChannelFuture connectFuture = bootstrap
                         .handler(new ChannelInitializer<SocketChannel>() {
                             @Override
                             protected void initChannel(SocketChannel ch) {
@@ -1242,14 +2743,26 @@ public final class AsyncGDSClient implements AutoCloseable {
                                 if (sslCtx != null) {
                                     pipeline.addFirst(sslCtx.newHandler(ch.alloc(), uri.getHost(), uri.getPort()));
                                 }
+                                if (maxConsolidatedFlushes > 0) {
+                                    //after the SSL handler, so the consolidated writes are encrypted together
+                                    pipeline.addLast(new FlushConsolidationHandler(maxConsolidatedFlushes, true));
+                                }
                                 pipeline.addLast(
                                         new HttpClientCodec(),
-                                        new HttpObjectAggregator(8192),
-                                        WebSocketClientCompressionHandler.INSTANCE,
+                                        new HttpObjectAggregator(8192));
+                                if (compression) {
+                                    pipeline.addLast(newCompressionHandler());
+                                }
+                                if (!streamingDecoding) {
+                                    //after the compression handler, so the decompressed frames are aggregated
+                                    pipeline.addLast(new WebSocketFrameAggregator(maxAggregatedMessageSize));
+                                }
+                                pipeline.addLast(
                                         new GDSWebSocketClientHandler(
                                                 WebSocketClientHandshakerFactory.newHandshaker(
                                                         uri, WebSocketVersion.V13, null, true,
-                                                        new DefaultHttpHeaders(), 10485760)));
+                                                        new DefaultHttpHeaders(), maxFramePayloadLength),
+                                                reconnectAttempt));
                             }
                         })
                         .connect(uri.getHost(), uri.getPort());
@@ -1258,25 +2771,45 @@ public final class AsyncGDSClient implements AutoCloseable {
                     if (getState() != ConnectionState.DISCONNECTED) {
                         throw new IllegalStateException("Expected state INITIALIZING but got " + getState());
                     } else {
-                        return;
+                        return null;
                     }
                 }
 
                 log.config("Netty channels initialized!");
+                return connectFuture;
 
             } catch (Throwable t) {
                 log.severe(t.toString());
 
+                if (reconnectAttempt > 0) {
+                    reconnectAttemptFailed(reconnectAttempt, t);
+                    return null;
+                }
                 close();
                 if (getState() != ConnectionState.FAILED) {
                     state.set(ConnectionState.FAILED);
                     listener.onConnectionFailure(channel, Either.fromLeft(t));
                 }
+                return null;
+            }
+        }
+
+        private ChannelHandler newCompressionHandler() {
+            if (compressionLevel == DEFAULT_COMPRESSION_LEVEL && compressionWindowBits == MAX_COMPRESSION_WINDOW_BITS) {
+                return WebSocketClientCompressionHandler.INSTANCE;
             }
+            //the same extensions as offered by the WebSocketClientCompressionHandler, with the given parameters
+            return new WebSocketClientExtensionHandler(
+                    new PerMessageDeflateClientExtensionHandshaker(compressionLevel,
+                            ZlibCodecFactory.isSupportingWindowSizeAndMemLevel(), compressionWindowBits,
+                            false, false),
+                    new DeflateFrameClientExtensionHandshaker(compressionLevel, false),
+                    new DeflateFrameClientExtensionHandshaker(compressionLevel, true));
         }
 
         void close() {
-            synchronized (lock) {
+            lock.lock();
+            try {
                 if (channel != null) {
                     channel.writeAndFlush(new CloseWebSocketFrame()).addListener(ChannelFutureListener.CLOSE);
                     channel = null;
@@ -1284,14 +2817,106 @@ public final class AsyncGDSClient implements AutoCloseable {
                 if (shutdownByClose) {
                     eventLoopGroup.shutdownGracefully();
                 }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+
+        ChannelFuture send(MessageHeader header, MessageData data) throws IOException, ValidationException {
+            int unit = fragmentTransmissionUnit;
+            if (unit > 0 && header.getMessageHeaderType() == MessageHeader.Type.BASE
+                    && !Boolean.TRUE.equals(header.asBaseMessageHeader().getIsFragmented())) {
+                return sendFragmented(header.asBaseMessageHeader(), data, unit);
+            }
+            long start = System.nanoTime();
+            ByteBuf message = MessageManager.createMessage(header, data, channel.alloc());
+            metrics.recordSent(data.getMessageDataType(), message.readableBytes(), System.nanoTime() - start);
+            return send(message);
+        }
+
+        /**
+         * Sends the message in fragments if its data part is larger than the given unit. The fragments are slices of
+         * the data serialized once, each of them is written after the previous one was, so other messages can be
+         * sent between them.
+         */
+        private ChannelFuture sendFragmented(MessageHeaderBase header, MessageData data, int unit)
+                throws IOException, ValidationException {
+            Channel ch = channel;
+            long start = System.nanoTime();
+            ByteBuf packedData = MessageFragmenter.packData(data, ch.alloc());
+            metrics.recordSent(data.getMessageDataType(), packedData.readableBytes(), System.nanoTime() - start);
+            return sendFragmented(ch, header, packedData, unit);
+        }
+
+        /**
+         * Sends the already packed data part of a message, in fragments if it is larger than the given unit.
+         * The buffer of the data is released when the message was sent.
+         */
+        private ChannelFuture sendFragmented(Channel ch, MessageHeaderBase header, ByteBuf packedData, int unit)
+                throws IOException, ValidationException {
+            if (packedData.readableBytes() <= unit) {
+                try {
+                    return send(MessageFragmenter.createMessage(header, packedData, ch.alloc()));
+                } catch (IOException | RuntimeException e) {
+                    packedData.release();
+                    throw e;
+                }
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Sending the message with ID " + header.getMessageId() + " of " + packedData.readableBytes()
+                        + " bytes in fragments of " + unit + " bytes");
             }
+            ChannelPromise promise = ch.newPromise();
+            promise.addListener(future -> packedData.release());
+            sendFragment(ch, header, packedData, 0, unit, promise);
+            return promise;
         }
 
+        private void sendFragment(Channel ch, MessageHeaderBase header, ByteBuf packedData, int offset, int unit,
+                                  ChannelPromise promise) {
+            int length = Math.min(unit, packedData.readableBytes() - offset);
+            ByteBuf fragment;
+            try {
+                fragment = MessageFragmenter.createFragment(header, packedData, offset, length, ch.alloc());
+            } catch (IOException | RuntimeException e) {
+                promise.tryFailure(e);
+                return;
+            }
+            boolean last = offset + length == packedData.readableBytes();
+            ch.writeAndFlush(new BinaryWebSocketFrame(fragment)).addListener(future -> {
+                if (!future.isSuccess()) {
+                    promise.tryFailure(future.cause());
+                } else if (last) {
+                    promise.trySuccess();
+                } else {
+                    sendFragment(ch, header, packedData, offset + length, unit, promise);
+                }
+            });
+        }
 
-        ChannelFuture send(byte[] message) {
-            WebSocketFrame frame = new BinaryWebSocketFrame(Unpooled.wrappedBuffer(message));
-            log.config("Sending BinaryWebSocketFrame..");
-            log.fine("Message is " + message.length + " bytes");
+        ChannelFuture send(EventMessageEncoder encoder) throws IOException, ValidationException {
+            int unit = fragmentTransmissionUnit;
+            if (unit > 0 && encoder.hasAttachmentSources()) {
+                Channel ch = channel;
+                MessageHeaderBase header = MessageManager.createMessageHeaderBase(userName, encoder.getMessageId(),
+                        MessageDataType.EVENT_2);
+                long start = System.nanoTime();
+                ByteBuf packedData = encoder.encodeData(ch.alloc());
+                metrics.recordSent(MessageDataType.EVENT_2, packedData.readableBytes(), System.nanoTime() - start);
+                return sendFragmented(ch, header, packedData, unit);
+            }
+            long start = System.nanoTime();
+            ByteBuf message = encoder.encode(channel.alloc());
+            metrics.recordSent(MessageDataType.EVENT_2, message.readableBytes(), System.nanoTime() - start);
+            return send(message);
+        }
+
+        private ChannelFuture send(ByteBuf message) {
+            WebSocketFrame frame = new BinaryWebSocketFrame(message);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Sending BinaryWebSocketFrame of " + message.readableBytes() + " bytes");
+            }
             return channel.writeAndFlush(frame);
         }
 
@@ -1305,10 +2930,19 @@ public final class AsyncGDSClient implements AutoCloseable {
      */
     private class GDSWebSocketClientHandler extends SimpleChannelInboundHandler<Object> {
         private final WebSocketClientHandshaker handshaker;
+        private final int reconnectAttempt;
         private ChannelPromise handshakeFuture;
-
-        GDSWebSocketClientHandler(WebSocketClientHandshaker handshaker) {
+        //the frames of the message being received in more frames, until its decoding is started (or its last frame)
+        private CompositeByteBuf pendingFrames;
+        //the input of the message being decoded while its frames are arriving
+        private ChainedByteBufMessageBufferInput streamedMessage;
+        private MessageDataType streamedMessageType;
+        //the number of bytes received of the message being decoded, limited the same way as the aggregated messages
+        private long streamedMessageSize;
+
+        GDSWebSocketClientHandler(WebSocketClientHandshaker handshaker, int reconnectAttempt) {
             this.handshaker = handshaker;
+            this.reconnectAttempt = reconnectAttempt;
             log.config("GDSWebSocketClientHandler initialized!");
         }
 
@@ -1323,9 +2957,46 @@ public final class AsyncGDSClient implements AutoCloseable {
             handshaker.handshake(ctx.channel());
         }
 
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            Channel ch = ctx.channel();
+            boolean writable = ch.isWritable();
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("WebSocketClient connection became " + (writable ? "writable" : "unwritable"));
+            }
+            if (writable) {
+                signalWritabilityChanged();
+            } else {
+                metrics.recordUnwritable();
+            }
+            if (ch == client.channel) {
+                listener.onWritabilityChanged(ch, writable);
+            }
+            super.channelWritabilityChanged(ctx);
+        }
+
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             log.info("WebSocketClient connection disconnected!");
+            //the throttled senders have to find out that the connection was lost
+            signalWritabilityChanged();
+            abandonFrames("The connection was closed before the last frame of the message!");
+            boolean loggedIn = ctx.channel() == loggedInChannel;
+            if (reconnectAttempt > 0 && !loggedIn) {
+                //the connection of a reconnection attempt was lost before the login
+                reconnectAttemptFailed(reconnectAttempt, new IllegalStateException("The connection was closed during the login!"));
+                super.channelInactive(ctx);
+                return;
+            }
+            if (loggedIn && startReconnecting(ctx.channel())) {
+                super.channelInactive(ctx);
+                return;
+            }
+            pendingRequests.failAll(new IllegalStateException("The connection was closed before the reply arrived!"));
+            fragmentReassembler.clear();
+            if (messagePublisher != null) {
+                messagePublisher.complete(null);
+            }
             //proper CLOSE after communications
             if (getState() == ConnectionState.DISCONNECTED ||
                     state.compareAndSet(ConnectionState.LOGGED_IN, ConnectionState.DISCONNECTED)) {
@@ -1342,14 +3013,22 @@ public final class AsyncGDSClient implements AutoCloseable {
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
             if (getState() == ConnectionState.FAILED) {
-                log.config("Incoming message but the client is already in a failed state! (msg: " + msg.toString() + ")");
+                if (log.isLoggable(Level.CONFIG)) {
+                    log.config("Incoming message but the client is already in a failed state! (msg: " + msg + ")");
+                }
                 return;
             }
             if (getState() == ConnectionState.DISCONNECTED) {
-                log.config("Incoming message but the client is already in a disconnected state! (msg: " + msg.toString() + ")");
+                if (log.isLoggable(Level.CONFIG)) {
+                    log.config("Incoming message but the client is already in a disconnected state! (msg: " + msg + ")");
+                }
                 return;
             }
             Channel ch = ctx.channel();
+            if (reconnectAttempt > 0 && ch != reconnectChannel && ch != loggedInChannel) {
+                log.config("Incoming message on the connection of an abandoned reconnect attempt!");
+                return;
+            }
             if (!handshaker.isHandshakeComplete()) {
                 try {
                     handshaker.finishHandshake(ch, (FullHttpResponse) msg);
@@ -1374,14 +3053,20 @@ public final class AsyncGDSClient implements AutoCloseable {
 
                     MessageHeader header = MessageManager.createMessageHeaderBase(userName, MessageDataType.CONNECTION_0);
                     //Current GDS version is 5.1
-                    MessageData data = MessageManager.createMessageData0Connection(serveOnTheSameConnection, (5 << 16 | 1), false, null, userPassword);
+                    MessageData data = requestedFragmentTransmissionUnit > 0
+                            ? MessageManager.createMessageData0Connection(serveOnTheSameConnection, (5 << 16 | 1), true, (long) requestedFragmentTransmissionUnit, userPassword)
+                            : MessageManager.createMessageData0Connection(serveOnTheSameConnection, (5 << 16 | 1), false, null, userPassword);
                     log.config("Sending login message..");
-                    byte[] message = MessageManager.createMessage(header, data);
-                    ch.writeAndFlush(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(message)));
+                    long start = System.nanoTime();
+                    ByteBuf login = MessageManager.createMessage(header, data, ch.alloc());
+                    metrics.recordSent(MessageDataType.CONNECTION_0, login.readableBytes(), System.nanoTime() - start);
+                    ch.writeAndFlush(new BinaryWebSocketFrame(login));
                 } catch (WebSocketHandshakeException e) {
                     log.info("WebSocketClient failed to connect!");
                     handshakeFuture.setFailure(e);
-                    if (getState() != ConnectionState.FAILED) {
+                    if (reconnectAttempt > 0) {
+                        reconnectAttemptFailed(reconnectAttempt, e);
+                    } else if (getState() != ConnectionState.FAILED) {
                         state.set(ConnectionState.FAILED);
                         listener.onConnectionFailure(ch, Either.fromLeft(e));
                     }
@@ -1396,11 +3081,14 @@ public final class AsyncGDSClient implements AutoCloseable {
             }
 
             WebSocketFrame frame = (WebSocketFrame) msg;
-            if (frame instanceof BinaryWebSocketFrame) {
+            if (frame instanceof BinaryWebSocketFrame && frame.isFinalFragment()) {
                 log.fine("WebSocketClient received BinaryWebSocketFrame");
-                byte[] binaryFrame = new byte[frame.content().readableBytes()];
-                frame.content().readBytes(binaryFrame);
-                handleIncomingMessage(binaryFrame);
+                abandonFrames("A new message was received before the last frame of the previous one!");
+                //the frame is released by the SimpleChannelInboundHandler once the message is decoded
+                handleIncomingMessage(frame.content(), ctx.alloc(), reconnectAttempt);
+            } else if (frame instanceof BinaryWebSocketFrame || frame instanceof ContinuationWebSocketFrame) {
+                //only received if the frames are not aggregated (streaming decoding)
+                handleMessageFrame(ctx, frame);
             } else if (frame instanceof TextWebSocketFrame) {
                 log.fine("WebSocketClient received TextWebSocketFrame");
             } else if (frame instanceof PingWebSocketFrame) {
@@ -1411,6 +3099,11 @@ public final class AsyncGDSClient implements AutoCloseable {
             } else if (frame instanceof CloseWebSocketFrame closeWebSocketFrame) {
                 log.config("WebSocketClient received closing frame..");
                 log.config("Close status: " + closeWebSocketFrame.statusCode() + ", reason: " + closeWebSocketFrame.reasonText());
+                if (reconnectInitialDelay > 0 && (reconnecting || getState() == ConnectionState.LOGGED_IN)) {
+                    //the reconnection is started (or the attempt is retried) when the channel becomes inactive
+                    ch.close();
+                    return;
+                }
                 if (getState() != ConnectionState.LOGGED_IN) {
                     state.set(ConnectionState.FAILED);
                     countDownLatch.countDown();
@@ -1418,7 +3111,86 @@ public final class AsyncGDSClient implements AutoCloseable {
                 }
                 close();
             } else {
-                log.fine("Unsupported frame type: " + frame.getClass().getName());
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Unsupported frame type: " + frame.getClass().getName());
+                }
+            }
+        }
+
+        private void handleMessageFrame(ChannelHandlerContext ctx, WebSocketFrame frame) {
+            if (frame instanceof BinaryWebSocketFrame) {
+                log.fine("WebSocketClient received the first frame of a message");
+                abandonFrames("A new message was received before the last frame of the previous one!");
+            } else if (pendingFrames == null && streamedMessage == null) {
+                log.fine("WebSocketClient received a continuation frame without the first frame of its message");
+                return;
+            }
+            ByteBuf content = frame.content().retain();
+            if (streamedMessage != null) {
+                streamedMessageSize += content.readableBytes();
+                if (streamedMessageSize > maxAggregatedMessageSize) {
+                    content.release();
+                    abandonMessageOverLimit(ctx);
+                    return;
+                }
+                metrics.recordBytesReceived(streamedMessageType, content.readableBytes());
+                streamedMessage.add(content);
+                if (frame.isFinalFragment()) {
+                    streamedMessage.end();
+                    streamedMessage = null;
+                }
+                return;
+            }
+            if (pendingFrames == null) {
+                pendingFrames = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+            }
+            pendingFrames.addComponent(true, content);
+            if (pendingFrames.readableBytes() > maxAggregatedMessageSize) {
+                abandonMessageOverLimit(ctx);
+                return;
+            }
+            if (frame.isFinalFragment()) {
+                CompositeByteBuf message = pendingFrames;
+                pendingFrames = null;
+                try {
+                    handleIncomingMessage(message, ctx.alloc(), reconnectAttempt);
+                } finally {
+                    message.release();
+                }
+                return;
+            }
+            MessageHeaderBase header = unpackHeader(pendingFrames);
+            //the fragments of the GDS level fragmentation are aggregated
+            if (header != null && !Boolean.TRUE.equals(header.getIsFragmented())) {
+                streamedMessageSize = pendingFrames.readableBytes();
+                streamedMessage = streamIncomingMessage(header, pendingFrames, ctx.alloc(), reconnectAttempt);
+                streamedMessageType = header.getDataType();
+                //released by the input
+                pendingFrames = null;
+            }
+        }
+
+        private void abandonMessageOverLimit(ChannelHandlerContext ctx) {
+            String reason = "The message received in more frames exceeds the limit of " + maxAggregatedMessageSize
+                    + " bytes, closing the connection!";
+            abandonFrames(reason);
+            log.warning(reason);
+            ctx.close();
+        }
+
+        /**
+         * Drops the message being received in more frames, if any.
+         *
+         * @param reason the reason reported to the decoder of the message, {@code null} if there is nothing to report
+         */
+        private void abandonFrames(String reason) {
+            if (pendingFrames != null) {
+                pendingFrames.release();
+                pendingFrames = null;
+            }
+            if (streamedMessage != null) {
+                streamedMessage.fail(new IOException(reason));
+                streamedMessage = null;
             }
         }
 
@@ -1428,6 +3200,11 @@ public final class AsyncGDSClient implements AutoCloseable {
             if (!handshakeFuture.isDone()) {
                 handshakeFuture.setFailure(cause);
             }
+            if (reconnectInitialDelay > 0 && (reconnecting || getState() == ConnectionState.LOGGED_IN)) {
+                //the reconnection is started (or the attempt is retried) when the channel becomes inactive
+                ctx.close();
+                return;
+            }
             client.close();
 
             state.set(ConnectionState.FAILED);
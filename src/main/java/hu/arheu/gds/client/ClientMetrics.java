@@ -0,0 +1,273 @@
+package hu.arheu.gds.client;
+
+import hu.arheu.gds.message.data.MessageDataType;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * The metrics of an {@link AsyncGDSClient} (and of the {@link SyncGDSClient} built on it), collected all the time.
+ * <p>
+ * The messages and their sizes are counted by their type. The time of encoding the sent messages and decoding the
+ * received ones is measured by the client, while the reply latency is measured from sending a request (with one of
+ * the methods returning a {@link java.util.concurrent.CompletableFuture}) until its reply is processed, so the time
+ * spent by the GDS and on the network is the reply latency minus the encoding and decoding times. The decoding time
+ * of a message decoded while its frames are arriving (see
+ * {@link AsyncGDSClient.AsyncGDSClientBuilder#withStreamingDecoding(boolean)}) includes waiting for its frames.
+ * <p>
+ * The metrics can be read through the getters (e.g. to bind them to Micrometer as function counters and gauges),
+ * or through JMX, see {@link AsyncGDSClient.AsyncGDSClientBuilder#withJmxMetrics(String)}.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public final class ClientMetrics implements ClientMetricsMXBean {
+
+    private static final MessageDataType[] TYPES = MessageDataType.values();
+
+    private final LongAdder[] messagesSent = newCounters();
+    private final LongAdder[] messagesReceived = newCounters();
+    private final LongAdder[] bytesSent = newCounters();
+    private final LongAdder[] bytesReceived = newCounters();
+    //created on the first use, as most of the types are only sent or only received
+    private final AtomicReferenceArray<LatencyHistogram> encodeTimes = new AtomicReferenceArray<>(TYPES.length);
+    private final AtomicReferenceArray<LatencyHistogram> decodeTimes = new AtomicReferenceArray<>(TYPES.length);
+    private final AtomicReferenceArray<LatencyHistogram> replyLatencies = new AtomicReferenceArray<>(TYPES.length);
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder unwritableTransitions = new LongAdder();
+
+    private final IntSupplier pendingRequests;
+    private final ReconnectStatistics reconnectStatistics;
+    //the current connection, null if there is none
+    private final Supplier<Channel> channel;
+
+    ClientMetrics(IntSupplier pendingRequests, ReconnectStatistics reconnectStatistics, Supplier<Channel> channel) {
+        this.pendingRequests = pendingRequests;
+        this.reconnectStatistics = reconnectStatistics;
+        this.channel = channel;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[TYPES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static LatencyHistogram histogram(AtomicReferenceArray<LatencyHistogram> histograms, MessageDataType type) {
+        LatencyHistogram histogram = histograms.get(type.ordinal());
+        if (histogram == null) {
+            histograms.compareAndSet(type.ordinal(), null, new LatencyHistogram());
+            histogram = histograms.get(type.ordinal());
+        }
+        return histogram;
+    }
+
+    void recordSent(MessageDataType type, int bytes, long encodeNanos) {
+        messagesSent[type.ordinal()].increment();
+        bytesSent[type.ordinal()].add(bytes);
+        histogram(encodeTimes, type).record(encodeNanos);
+    }
+
+    void recordBytesReceived(MessageDataType type, int bytes) {
+        bytesReceived[type.ordinal()].add(bytes);
+    }
+
+    void recordReceived(MessageDataType type, long decodeNanos) {
+        messagesReceived[type.ordinal()].increment();
+        histogram(decodeTimes, type).record(decodeNanos);
+    }
+
+    void recordReply(MessageDataType type, long latencyNanos) {
+        histogram(replyLatencies, type).record(latencyNanos);
+    }
+
+    void recordTimeout() {
+        timeouts.increment();
+    }
+
+    void recordUnwritable() {
+        unwritableTransitions.increment();
+    }
+
+    /**
+     * @param type the type of the messages
+     * @return the number of the messages of the given type sent by the client
+     */
+    public long getMessagesSent(MessageDataType type) {
+        return messagesSent[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type the type of the messages
+     * @return the number of the messages of the given type received (and decoded) by the client
+     */
+    public long getMessagesReceived(MessageDataType type) {
+        return messagesReceived[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type the type of the messages
+     * @return the number of bytes of the messages of the given type sent by the client
+     */
+    public long getBytesSent(MessageDataType type) {
+        return bytesSent[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type the type of the messages
+     * @return the number of bytes of the messages of the given type received by the client (after decompression)
+     */
+    public long getBytesReceived(MessageDataType type) {
+        return bytesReceived[type.ordinal()].sum();
+    }
+
+    /**
+     * @param type the type of the messages
+     * @return the time of encoding the sent messages of the given type, {@code null} if none was sent
+     */
+    public LatencyHistogram getEncodeTime(MessageDataType type) {
+        return encodeTimes.get(type.ordinal());
+    }
+
+    /**
+     * @param type the type of the messages
+     * @return the time of decoding the received messages of the given type, {@code null} if none was received
+     */
+    public LatencyHistogram getDecodeTime(MessageDataType type) {
+        return decodeTimes.get(type.ordinal());
+    }
+
+    /**
+     * @param type the type of the replies (e.g. {@link MessageDataType#EVENT_ACK_3})
+     * @return the time from sending the requests until their replies of the given type were processed,
+     * {@code null} if no such reply was received
+     */
+    public LatencyHistogram getReplyLatency(MessageDataType type) {
+        return replyLatencies.get(type.ordinal());
+    }
+
+    @Override
+    public Map<String, Long> getMessagesSent() {
+        return byType(this::getMessagesSent);
+    }
+
+    @Override
+    public Map<String, Long> getMessagesReceived() {
+        return byType(this::getMessagesReceived);
+    }
+
+    @Override
+    public Map<String, Long> getBytesSent() {
+        return byType(this::getBytesSent);
+    }
+
+    @Override
+    public Map<String, Long> getBytesReceived() {
+        return byType(this::getBytesReceived);
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getEncodeTimes() {
+        return byType(encodeTimes);
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getDecodeTimes() {
+        return byType(decodeTimes);
+    }
+
+    @Override
+    public Map<String, LatencyHistogram> getReplyLatencies() {
+        return byType(replyLatencies);
+    }
+
+    /**
+     * @return the number of the requests waiting for their replies
+     */
+    @Override
+    public int getPendingRequests() {
+        return pendingRequests.getAsInt();
+    }
+
+    /**
+     * @return the number of the requests failed with a {@link GDSTimeoutException}
+     */
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return the number of successful reconnections, see {@link ReconnectStatistics}
+     */
+    @Override
+    public long getReconnects() {
+        return reconnectStatistics.getNumberOfReconnects();
+    }
+
+    /**
+     * @return the number of failed reconnection attempts, see {@link ReconnectStatistics}
+     */
+    @Override
+    public long getFailedReconnectAttempts() {
+        return reconnectStatistics.getNumberOfFailedAttempts();
+    }
+
+    /**
+     * @return whether the current connection is writable (see
+     * {@link AsyncGDSClient.AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}), {@code false} if there is
+     * no connection
+     */
+    @Override
+    public boolean isWritable() {
+        Channel ch = channel.get();
+        return ch != null && ch.isWritable();
+    }
+
+    /**
+     * @return the number of bytes waiting to be written to the socket of the current connection
+     */
+    @Override
+    public long getOutboundBufferBytes() {
+        Channel ch = channel.get();
+        ChannelOutboundBuffer buffer = ch == null ? null : ch.unsafe().outboundBuffer();
+        return buffer == null ? 0 : buffer.totalPendingWriteBytes();
+    }
+
+    /**
+     * @return the number of times a connection became unwritable
+     */
+    @Override
+    public long getUnwritableTransitions() {
+        return unwritableTransitions.sum();
+    }
+
+    private static Map<String, Long> byType(ToLongFunction<MessageDataType> counter) {
+        Map<String, Long> result = new TreeMap<>();
+        for (MessageDataType type : TYPES) {
+            long value = counter.applyAsLong(type);
+            if (value != 0) {
+                result.put(type.name(), value);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, LatencyHistogram> byType(AtomicReferenceArray<LatencyHistogram> histograms) {
+        Map<String, LatencyHistogram> result = new TreeMap<>();
+        for (MessageDataType type : TYPES) {
+            LatencyHistogram histogram = histograms.get(type.ordinal());
+            if (histogram != null) {
+                result.put(type.name(), histogram);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package hu.arheu.gds.client;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link ClientMetrics} of a client, see
+ * {@link AsyncGDSClient.AsyncGDSClientBuilder#withJmxMetrics(String)}.
+ * <p>
+ * The per-type values are keyed by the names of the {@link hu.arheu.gds.message.data.MessageDataType}s, only the
+ * types with any recorded value are present.
+ */
+public interface ClientMetricsMXBean {
+
+    Map<String, Long> getMessagesSent();
+
+    Map<String, Long> getMessagesReceived();
+
+    Map<String, Long> getBytesSent();
+
+    Map<String, Long> getBytesReceived();
+
+    Map<String, LatencyHistogram> getEncodeTimes();
+
+    Map<String, LatencyHistogram> getDecodeTimes();
+
+    Map<String, LatencyHistogram> getReplyLatencies();
+
+    int getPendingRequests();
+
+    long getTimeouts();
+
+    long getReconnects();
+
+    long getFailedReconnectAttempts();
+
+    boolean isWritable();
+
+    long getOutboundBufferBytes();
+
+    long getUnwritableTransitions();
+}
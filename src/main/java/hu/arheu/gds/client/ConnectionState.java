@@ -40,6 +40,12 @@ public enum ConnectionState {
      */
     LOGGED_IN,
 
+    /**
+     * The connection was lost after a successful login and the client is trying to reconnect (only if the automatic
+     * reconnection is enabled, see {@link AsyncGDSClient.AsyncGDSClientBuilder#withAutoReconnect(long, long)}).
+     */
+    RECONNECTING,
+
     /**
      * The connection was closed after a successful login (from either the client or the GDS side).
      */
@@ -0,0 +1,96 @@
+package hu.arheu.gds.client;
+
+import hu.arheu.gds.message.errors.ReadException;
+import hu.arheu.gds.message.header.MessageHeaderBase;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reassembles the data parts of the fragmented messages ({@link MessageHeaderBase#getIsFragmented()}) received by an
+ * {@link AsyncGDSClient}.
+ * <p>
+ * The buffer of a message is allocated with the full data size announced by its first fragment, and the fragments
+ * are copied into it in order. The total size of the messages being reassembled at the same time is bounded, the
+ * messages exceeding the limit are rejected instead of being buffered.
+ */
+final class FragmentReassembler {
+
+    private final long maxBufferedBytes;
+    private final Map<String, ByteBuf> buffers = new HashMap<>();
+    private long bufferedBytes;
+
+    /**
+     * @param maxBufferedBytes the maximum total size of the messages being reassembled at the same time
+     */
+    FragmentReassembler(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Adds the chunk carried by a fragment to the data of its message.
+     *
+     * @param header    the header of the fragment
+     * @param chunk     the chunk of the data part carried by the fragment
+     * @param allocator the allocator used to create the buffer of the message on its first fragment
+     * @return the reassembled data part if this was the last fragment of the message (the caller becomes the
+     * owner of the buffer), {@code null} otherwise
+     * @throws ReadException if the fragment does not continue its message or the message is too large
+     */
+    synchronized ByteBuf add(MessageHeaderBase header, ByteBuf chunk, ByteBufAllocator allocator) throws ReadException {
+        String messageId = header.getMessageId();
+        ByteBuf buffer = buffers.get(messageId);
+        if (Boolean.TRUE.equals(header.getFirstFragment())) {
+            if (buffer != null) {
+                discard(messageId);
+            }
+            long fullDataSize = header.getFullDataSize();
+            if (fullDataSize < 0 || fullDataSize > Integer.MAX_VALUE || bufferedBytes + fullDataSize > maxBufferedBytes) {
+                throw new ReadException("The fragmented message with ID " + messageId + " of " + fullDataSize
+                        + " bytes cannot be reassembled, as it would exceed the limit of " + maxBufferedBytes + " bytes!");
+            }
+            buffer = allocator.heapBuffer((int) fullDataSize, (int) fullDataSize);
+            buffers.put(messageId, buffer);
+            bufferedBytes += fullDataSize;
+        } else if (buffer == null) {
+            throw new ReadException("A fragment of the message with ID " + messageId
+                    + " arrived without its first fragment!");
+        }
+
+        if (header.getOffset() != buffer.writerIndex() || chunk.readableBytes() > buffer.writableBytes()) {
+            discard(messageId);
+            throw new ReadException("The fragment of the message with ID " + messageId + " at offset "
+                    + header.getOffset() + " does not continue the " + buffer.writerIndex() + " bytes received so far!");
+        }
+        buffer.writeBytes(chunk, chunk.readerIndex(), chunk.readableBytes());
+
+        if (Boolean.TRUE.equals(header.getLastFragment())) {
+            buffers.remove(messageId);
+            bufferedBytes -= buffer.capacity();
+            if (buffer.isWritable()) {
+                buffer.release();
+                throw new ReadException("The last fragment of the message with ID " + messageId
+                        + " arrived before its full data was received!");
+            }
+            return buffer;
+        }
+        return null;
+    }
+
+    /**
+     * Releases the buffers of the messages not reassembled yet (e.g. when the connection is lost).
+     */
+    synchronized void clear() {
+        buffers.values().forEach(ByteBuf::release);
+        buffers.clear();
+        bufferedBytes = 0;
+    }
+
+    private void discard(String messageId) {
+        ByteBuf buffer = buffers.remove(messageId);
+        bufferedBytes -= buffer.capacity();
+        buffer.release();
+    }
+}
@@ -0,0 +1,760 @@
+package hu.arheu.gds.client;
+
+import hu.arheu.gds.message.clienttypes.AttachmentResult;
+import hu.arheu.gds.message.clienttypes.EventDocumentResponse;
+import hu.arheu.gds.message.clienttypes.EventResponse;
+import hu.arheu.gds.message.clienttypes.QueryResponse;
+import hu.arheu.gds.message.data.*;
+import hu.arheu.gds.message.data.impl.AckStatus;
+import hu.arheu.gds.message.errors.ValidationException;
+import hu.arheu.gds.message.header.MessageHeaderBase;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.ssl.SslContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Client maintaining multiple logged-in connections (each of them an {@link AsyncGDSClient}) to one or more GDS
+ * instances, dispatching the requests among them.
+ * <p>
+ * Every connection is served by an event loop of a shared {@link EventLoopGroup}, so the encoding, the TLS and the
+ * frame handling of the messages are spread across multiple threads instead of being serialised through a single
+ * connection. The requests are sent by the {@code send...Async} methods of the clients, returning futures completed
+ * with the replies, while the connection events and the messages not requested by the pool are forwarded to the
+ * listener given to the builder (which therefore has to be thread-safe).
+ * <p>
+ * If the replies should be served on the same connection ({@link GDSClientPoolBuilder#withServeOnTheSameConnection(boolean)}),
+ * the next query page requests are sent on the connection the original query was sent on.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public final class GDSClientPool implements AutoCloseable {
+
+    private static final long DEFAULT_QUERY_EXPIRY = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The strategies the pool can use to select the connection for the next request.
+     */
+    public enum LoadBalancing {
+        /**
+         * The connections are used one after the other.
+         */
+        ROUND_ROBIN,
+        /**
+         * The connection with the least requests waiting for their replies is used.
+         */
+        LEAST_IN_FLIGHT
+    }
+
+    public final static class GDSClientPoolBuilder {
+
+        private final List<String> URIs = new ArrayList<>();
+        private int connectionsPerURI;
+        private EventLoopGroup eventLoopGroup;
+        private GDSMessageListener listener;
+        private Logger logger;
+        private boolean serveOnTheSameConnection;
+        private SslContext sslContext;
+        private String userName;
+        private String userPassword;
+        private long timeout;
+        private long requestTimeout;
+        private boolean decodeQueryHitsAsColumns;
+        private LoadBalancing loadBalancing;
+        private long queryExpiry;
+
+        private GDSClientPoolBuilder() {
+            connectionsPerURI = Runtime.getRuntime().availableProcessors();
+            serveOnTheSameConnection = true;
+            timeout = 3000L;
+            loadBalancing = LoadBalancing.LEAST_IN_FLIGHT;
+            queryExpiry = DEFAULT_QUERY_EXPIRY;
+        }
+
+        /**
+         * Adds a GDS instance the pool should connect to. Can be called multiple times, the connections are
+         * distributed evenly among the specified instances.
+         *
+         * @param URI the URI of the GDS
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withURI(String URI) {
+            this.URIs.add(Objects.requireNonNull(URI, "The URI cannot be null!"));
+            return this;
+        }
+
+        /**
+         * @param connectionsPerURI the number of connections opened to each of the GDS instances. By default, the
+         *                          number of available processors.
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public GDSClientPoolBuilder withConnectionsPerURI(int connectionsPerURI) throws IllegalArgumentException {
+            if (connectionsPerURI < 1) {
+                throw new IllegalArgumentException("The number of connections has to be positive! Specified: " + connectionsPerURI);
+            }
+            this.connectionsPerURI = connectionsPerURI;
+            return this;
+        }
+
+        /**
+         * Sets the NioEventLoopGroup the connections should use. The group is not shut down when the pool is closed.
+         * If not set, the pool creates (and shuts down on close) its own group.
+         *
+         * @param nioEventLoopGroup the NioEventLoopGroup to be used
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withNioEventLoopGroup(NioEventLoopGroup nioEventLoopGroup) {
+            return withEventLoopGroup(nioEventLoopGroup);
+        }
+
+        /**
+         * Sets the EventLoopGroup the connections should use, of any transport recognized by
+         * {@link Transports#socketChannelClass(EventLoopGroup)}. The group is not shut down when the pool is closed.
+         * If not set, the pool creates (and shuts down on close) its own group, using the native transport of the
+         * platform if available (see {@link Transports#newEventLoopGroup()}).
+         *
+         * @param eventLoopGroup the EventLoopGroup to be used
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withEventLoopGroup(EventLoopGroup eventLoopGroup) {
+            this.eventLoopGroup = eventLoopGroup;
+            return this;
+        }
+
+        /**
+         * @param listener the MessageListener used for the connection events and the messages not requested by the
+         *                 pool. Called from multiple threads.
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withListener(GDSMessageListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @param logger the Logger instance used for the pool and its clients
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withLogger(Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        /**
+         * @param serveOnTheSameConnection whether the replies should be served on the same connection. If so, the
+         *                                 next query page requests are sent on the connection of the original query.
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withServeOnTheSameConnection(boolean serveOnTheSameConnection) {
+            this.serveOnTheSameConnection = serveOnTheSameConnection;
+            return this;
+        }
+
+        /**
+         * @param userName used for the login message and in the headers
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withUserName(String userName) {
+            this.userName = userName;
+            return this;
+        }
+
+        /**
+         * @param userPassword used for password authentication
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withUserPassword(String userPassword) {
+            this.userPassword = userPassword;
+            return this;
+        }
+
+        /**
+         * @param timeout used for connection timeout
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public GDSClientPoolBuilder withTimeout(long timeout) throws IllegalArgumentException {
+            if (timeout < 1) {
+                throw new IllegalArgumentException("The timeout has to be positive! Specified: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * @param requestTimeout the timeout of the requests in milliseconds, see
+         *                       {@link AsyncGDSClient.AsyncGDSClientBuilder#withRequestTimeout(long)}
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public GDSClientPoolBuilder withRequestTimeout(long requestTimeout) throws IllegalArgumentException {
+            if (requestTimeout < 1) {
+                throw new IllegalArgumentException("The request timeout has to be positive! Specified: " + requestTimeout);
+            }
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets up the SSL context for the WebSocket to use for TLS encryption towards the GDS servers.
+         *
+         * @param cert   the Stream containing the data for the PKCS12 formatted certificate and key.
+         * @param secret the password that was used to encrypt the given data
+         * @throws Throwable on any error while decrypting the given cert-key pair.
+         */
+        public GDSClientPoolBuilder withTLS(InputStream cert, char[] secret) throws Throwable {
+            this.sslContext = AsyncGDSClient.createSSLContext(cert, secret);
+            return this;
+        }
+
+        /**
+         * @param decodeQueryHitsAsColumns whether the query hits should be unpacked into columns, see
+         *                                 {@link AsyncGDSClient.AsyncGDSClientBuilder#withColumnarQueryHits(boolean)}
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withColumnarQueryHits(boolean decodeQueryHitsAsColumns) {
+            this.decodeQueryHitsAsColumns = decodeQueryHitsAsColumns;
+            return this;
+        }
+
+        /**
+         * @param loadBalancing the strategy used to select the connection for the requests. By default,
+         *                      {@link LoadBalancing#LEAST_IN_FLIGHT}.
+         * @return this builder
+         */
+        public GDSClientPoolBuilder withLoadBalancing(LoadBalancing loadBalancing) {
+            this.loadBalancing = Objects.requireNonNull(loadBalancing, "The load balancing strategy cannot be null!");
+            return this;
+        }
+
+        /**
+         * Sets how long the connection of a query with more pages is remembered (if the replies are served on the
+         * same connection) after its last page arrived. The next page of a query can only be requested through the
+         * pool within this time, so it should not be shorter than the time the GDS keeps the query context for.
+         *
+         * @param queryExpiry the time in milliseconds, by default 10 minutes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public GDSClientPoolBuilder withQueryExpiry(long queryExpiry) throws IllegalArgumentException {
+            if (queryExpiry < 1) {
+                throw new IllegalArgumentException("The query expiry has to be positive! Specified: " + queryExpiry);
+            }
+            this.queryExpiry = queryExpiry;
+            return this;
+        }
+
+        public GDSClientPool build() {
+            return new GDSClientPool(this);
+        }
+    }
+
+    /**
+     * Creates a {@link GDSClientPoolBuilder} instance that can be used to set the initial parameters for the pool.
+     *
+     * @return a new builder instance
+     */
+    public static GDSClientPoolBuilder getBuilder() {
+        return new GDSClientPoolBuilder();
+    }
+
+    private final List<AsyncGDSClient> clients;
+    private final List<CompletableFuture<Void>> logins;
+    private final EventLoopGroup eventLoopGroup;
+    private final boolean shutdownByClose;
+    private final boolean serveOnTheSameConnection;
+    private final LoadBalancing loadBalancing;
+    private final GDSMessageListener listener;
+    private final Logger log;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    //the connections of the queries with more pages, by their scroll IDs
+    private final ConcurrentHashMap<String, QueryConnection> queryConnections = new ConcurrentHashMap<>();
+    private final long queryExpiryNanos;
+    //null if the replies are not served on the same connection (there is nothing to expire)
+    private final ScheduledFuture<?> queryExpiryTask;
+
+    private GDSClientPool(GDSClientPoolBuilder options) {
+        if (options.URIs.isEmpty()) {
+            throw new IllegalArgumentException("At least one URI has to be specified for the pool!");
+        }
+        this.log = Objects.requireNonNullElseGet(options.logger, () -> AsyncGDSClient.createDefaultLogger("GDSClientPool"));
+        this.listener = options.listener;
+        this.serveOnTheSameConnection = options.serveOnTheSameConnection;
+        this.loadBalancing = options.loadBalancing;
+        this.shutdownByClose = options.eventLoopGroup == null;
+        this.eventLoopGroup = shutdownByClose ? Transports.newEventLoopGroup() : options.eventLoopGroup;
+
+        List<AsyncGDSClient> clients = new ArrayList<>();
+        List<CompletableFuture<Void>> logins = new ArrayList<>();
+        for (int i = 0; i < options.connectionsPerURI; i++) {
+            for (String uri : options.URIs) {
+                CompletableFuture<Void> login = new CompletableFuture<>();
+                ConnectionListener connectionListener = new ConnectionListener(login);
+                AsyncGDSClient.AsyncGDSClientBuilder builder = AsyncGDSClient.getBuilder()
+                        .withURI(uri)
+                        .withUserName(options.userName)
+                        .withUserPassword(options.userPassword)
+                        .withTimeout(options.timeout)
+                        .withLogger(log)
+                        .withSslContext(options.sslContext)
+                        .withEventLoopGroup(eventLoopGroup)
+                        .withShutdownByClose(false)
+                        .withServeOnTheSameConnection(options.serveOnTheSameConnection)
+                        .withColumnarQueryHits(options.decodeQueryHitsAsColumns)
+                        .withListener(connectionListener);
+                if (options.requestTimeout > 0) {
+                    builder.withRequestTimeout(options.requestTimeout);
+                }
+                AsyncGDSClient client = builder.build();
+                connectionListener.client = client;
+                clients.add(client);
+                logins.add(login);
+            }
+        }
+        this.clients = Collections.unmodifiableList(clients);
+        this.logins = Collections.unmodifiableList(logins);
+        this.queryExpiryNanos = TimeUnit.MILLISECONDS.toNanos(options.queryExpiry);
+        //the expired queries are looked for a few times within the expiry
+        long sweepPeriod = Math.max(1, options.queryExpiry / 4);
+        this.queryExpiryTask = serveOnTheSameConnection
+                ? eventLoopGroup.scheduleAtFixedRate(this::expireQueryConnections, sweepPeriod, sweepPeriod, TimeUnit.MILLISECONDS)
+                : null;
+        log.config("GDSClientPool successfully initialized with " + clients.size() + " connections.");
+    }
+
+    /**
+     * Connects every client of the pool. The returned future is completed when all of them logged in successfully,
+     * or exceptionally with the reason of the first failure.
+     *
+     * @return the future completed when the pool is ready to be used
+     */
+    public CompletableFuture<Void> connect() {
+        for (AsyncGDSClient client : clients) {
+            client.connect();
+        }
+        return CompletableFuture.allOf(logins.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return the clients of the pool
+     */
+    public List<AsyncGDSClient> getClients() {
+        return clients;
+    }
+
+    /**
+     * @return the number of clients in the pool that are logged in
+     */
+    public int getNumberOfConnectedClients() {
+        int connected = 0;
+        for (AsyncGDSClient client : clients) {
+            if (client.isConnected()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    /**
+     * Selects a logged-in client by the load balancing strategy of the pool. Can be used to send messages not covered
+     * by the methods of the pool.
+     *
+     * @return the selected client
+     * @throws IllegalStateException if none of the clients are logged in
+     */
+    public AsyncGDSClient getClient() {
+        int size = clients.size();
+        int start = Math.floorMod(nextIndex.getAndIncrement(), size);
+        if (loadBalancing == LoadBalancing.ROUND_ROBIN) {
+            for (int i = 0; i < size; i++) {
+                AsyncGDSClient client = clients.get((start + i) % size);
+                if (client.isConnected()) {
+                    return client;
+                }
+            }
+        } else {
+            //the search starts at a rotating index so equally loaded clients are used evenly
+            AsyncGDSClient selected = null;
+            int selectedLoad = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                AsyncGDSClient client = clients.get((start + i) % size);
+                if (client.isConnected()) {
+                    int load = client.getNumberOfPendingRequests();
+                    if (load < selectedLoad) {
+                        selected = client;
+                        selectedLoad = load;
+                    }
+                }
+            }
+            if (selected != null) {
+                return selected;
+            }
+        }
+        throw new IllegalStateException("None of the clients of the pool are logged in!");
+    }
+
+    //<editor-fold desc="Methods dispatching the different message types to the clients">
+
+    /**
+     * Sends an event message on one of the connections.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param event the event to be sent to the GDS.
+     * @return the future completed with the event ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventResponse> sendEvent2Async(MessageData2Event event)
+            throws IOException, ValidationException {
+        return getClient().sendEvent2Async(event);
+    }
+
+    /**
+     * Sends an event message on one of the connections.
+     * See {@link AsyncGDSClient#sendEvent2Async(MessageData2Event)}.
+     *
+     * @param header the message header
+     * @param event  the event to be sent to the GDS.
+     * @return the future completed with the event ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventResponse> sendEvent2Async(MessageHeaderBase header, MessageData2Event event)
+            throws IOException, ValidationException {
+        return getClient().sendEvent2Async(header, event);
+    }
+
+    /**
+     * Sends an attachment request message on one of the connections.
+     * See {@link AsyncGDSClient#sendAttachmentRequest4Async(MessageData4AttachmentRequest)}.
+     *
+     * @param request the attachment request to be sent to the GDS.
+     * @return the future completed with the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<AttachmentResult> sendAttachmentRequest4Async(MessageData4AttachmentRequest request)
+            throws IOException, ValidationException {
+        return getClient().sendAttachmentRequest4Async(request);
+    }
+
+    /**
+     * Sends an event document message on one of the connections.
+     * See {@link AsyncGDSClient#sendEventDocument8Async(MessageData8EventDocument)}.
+     *
+     * @param eventDocument the event document to be sent to the GDS.
+     * @return the future completed with the event document ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<EventDocumentResponse> sendEventDocument8Async(MessageData8EventDocument eventDocument)
+            throws IOException, ValidationException {
+        return getClient().sendEventDocument8Async(eventDocument);
+    }
+
+    /**
+     * Sends a query request message on one of the connections.
+     * See {@link AsyncGDSClient#sendQueryRequest10Async(MessageData10QueryRequest)}.
+     *
+     * @param request the query request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<QueryResponse> sendQueryRequest10Async(MessageData10QueryRequest request)
+            throws IOException, ValidationException {
+        AsyncGDSClient client = getClient();
+        return client.sendQueryRequest10Async(request).thenApply(response -> trackQueryConnection(client, response));
+    }
+
+    /**
+     * Sends a query request message on one of the connections.
+     * See {@link AsyncGDSClient#sendQueryRequest10Async(MessageData10QueryRequest)}.
+     *
+     * @param header  the message header
+     * @param request the query request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public CompletableFuture<QueryResponse> sendQueryRequest10Async(MessageHeaderBase header,
+                                                                    MessageData10QueryRequest request)
+            throws IOException, ValidationException {
+        AsyncGDSClient client = getClient();
+        return client.sendQueryRequest10Async(header, request).thenApply(response -> trackQueryConnection(client, response));
+    }
+
+    /**
+     * Sends a next query page request message. If the replies are served on the same connection, the request is sent
+     * on the connection the query was originally sent on, otherwise on any of the connections.
+     * See {@link AsyncGDSClient#sendNextQueryPage12Async(MessageData12NextQueryPage)}.
+     *
+     * @param request the next query page request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException           if the message cannot be packed
+     * @throws ValidationException   if any value constraints the restrictions in the structure of the header or the body.
+     * @throws IllegalStateException if the connection of the original query is no longer available
+     */
+    public CompletableFuture<QueryResponse> sendNextQueryPage12Async(MessageData12NextQueryPage request)
+            throws IOException, ValidationException {
+        AsyncGDSClient client = getQueryConnection(request);
+        return trackNextPage(client, request, client.sendNextQueryPage12Async(request));
+    }
+
+    /**
+     * Sends a next query page request message.
+     * See {@link GDSClientPool#sendNextQueryPage12Async(MessageData12NextQueryPage)}.
+     *
+     * @param header  the message header
+     * @param request the next query page request to be sent to the GDS.
+     * @return the future completed with the query ACK
+     * @throws IOException           if the message cannot be packed
+     * @throws ValidationException   if any value constraints the restrictions in the structure of the header or the body.
+     * @throws IllegalStateException if the connection of the original query is no longer available
+     */
+    public CompletableFuture<QueryResponse> sendNextQueryPage12Async(MessageHeaderBase header,
+                                                                     MessageData12NextQueryPage request)
+            throws IOException, ValidationException {
+        AsyncGDSClient client = getQueryConnection(request);
+        return trackNextPage(client, request, client.sendNextQueryPage12Async(header, request));
+    }
+
+    /**
+     * Sends a query request message on one of the connections, returning an iterator over all pages of its result.
+     * The next pages are requested through the pool (see
+     * {@link GDSClientPool#sendNextQueryPage12Async(MessageData12NextQueryPage)}), and the pool forgets the
+     * connection of the query if the iterator is closed before the last page.
+     * See {@link AsyncGDSClient#queryAllPages(MessageData10QueryRequest, int)}.
+     *
+     * @param request       the query request to be sent to the GDS.
+     * @param prefetchPages the number of pages requested ahead of the consumer ({@code 0} to request the next page
+     *                      only when it is needed)
+     * @return the iterator over the pages of the query
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public QueryPages queryAllPages(MessageData10QueryRequest request, int prefetchPages)
+            throws IOException, ValidationException {
+        return new QueryPages(sendQueryRequest10Async(request), this::sendNextQueryPage12Async, request.getTimeout(),
+                prefetchPages, this::forgetQuery);
+    }
+
+    //</editor-fold>
+
+    /**
+     * Forgets the connection of a query whose next pages are not requested anymore.
+     *
+     * @param scrollId the scroll ID of the last page of the query received
+     */
+    void forgetQuery(String scrollId) {
+        queryConnections.remove(scrollId);
+    }
+
+    /**
+     * @return the number of the queries with more pages whose connection is remembered by the pool
+     */
+    public int getNumberOfTrackedQueries() {
+        return queryConnections.size();
+    }
+
+    /**
+     * Closes every connection of the pool (and the event loop group, if it was created by the pool).
+     */
+    @Override
+    public void close() {
+        for (AsyncGDSClient client : clients) {
+            client.close();
+        }
+        if (queryExpiryTask != null) {
+            queryExpiryTask.cancel(false);
+        }
+        queryConnections.clear();
+        if (shutdownByClose) {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+
+    /**
+     * Remembers the connection of a query that has more pages (and forgets it once the last page arrived).
+     */
+    private QueryResponse trackQueryConnection(AsyncGDSClient client, QueryResponse response) {
+        if (!serveOnTheSameConnection || response.getData().getGlobalStatus() != AckStatus.OK) {
+            return response;
+        }
+        QueryResponseHolder holder = response.getData().getQueryResponseHolder();
+        if (holder == null || holder.getQueryContextHolder() == null) {
+            return response;
+        }
+        String scrollId = holder.getQueryContextHolder().getScrollId();
+        if (Boolean.TRUE.equals(holder.getMorePage())) {
+            queryConnections.put(scrollId, new QueryConnection(client, System.nanoTime()));
+        } else {
+            queryConnections.remove(scrollId);
+        }
+        return response;
+    }
+
+    /**
+     * Forgets the scroll ID of the page the next one was requested for once the reply arrived (or the request
+     * failed), and remembers the connection of the next page if it is not the last one.
+     */
+    private CompletableFuture<QueryResponse> trackNextPage(AsyncGDSClient client, MessageData12NextQueryPage request,
+                                                          CompletableFuture<QueryResponse> reply) {
+        String scrollId = request.getQueryContextHolder().getScrollId();
+        return reply.whenComplete((response, error) -> forgetQuery(scrollId))
+                .thenApply(response -> trackQueryConnection(client, response));
+    }
+
+    private void expireQueryConnections() {
+        long now = System.nanoTime();
+        int sizeBefore = queryConnections.size();
+        queryConnections.values().removeIf(connection -> now - connection.trackedAt > queryExpiryNanos);
+        int expired = sizeBefore - queryConnections.size();
+        if (expired > 0) {
+            log.config("The connections of " + expired + " queries (whose next pages were not requested) expired.");
+        }
+    }
+
+    private AsyncGDSClient getQueryConnection(MessageData12NextQueryPage request) {
+        if (!serveOnTheSameConnection) {
+            return getClient();
+        }
+        String scrollId = request.getQueryContextHolder().getScrollId();
+        QueryConnection connection = queryConnections.get(scrollId);
+        if (connection == null) {
+            throw new IllegalStateException("The query with the scroll ID " + scrollId
+                    + " was not sent by the pool or its connection is no longer available!");
+        }
+        return connection.client;
+    }
+
+    /**
+     * The connection a query with more pages was sent on, and when its last page arrived.
+     */
+    private static final class QueryConnection {
+        private final AsyncGDSClient client;
+        private final long trackedAt;
+
+        private QueryConnection(AsyncGDSClient client, long trackedAt) {
+            this.client = client;
+            this.trackedAt = trackedAt;
+        }
+    }
+
+    /**
+     * Listener of a single connection, completing its login future and forwarding every event to the listener of
+     * the pool.
+     */
+    private final class ConnectionListener implements GDSMessageListener {
+        private final CompletableFuture<Void> login;
+        //set right after the client is built, before it is connected
+        private AsyncGDSClient client;
+
+        private ConnectionListener(CompletableFuture<Void> login) {
+            this.login = login;
+        }
+
+        @Override
+        public void onConnectionSuccess(Channel ch, MessageHeaderBase header, MessageData1ConnectionAck response) {
+            login.complete(null);
+            if (listener != null) {
+                listener.onConnectionSuccess(ch, header, response);
+            }
+        }
+
+        @Override
+        public void onConnectionFailure(Channel channel, Either<Throwable, Pair<MessageHeaderBase, MessageData1ConnectionAck>> reason) {
+            login.completeExceptionally(reason.isLeftSet() ? reason.getLeft()
+                    : new IllegalStateException("The login was refused by the GDS: " + reason.getRight().getSecond()));
+            if (listener != null) {
+                listener.onConnectionFailure(channel, reason);
+            }
+        }
+
+        @Override
+        public void onDisconnect(Channel channel) {
+            //the query contexts are bound to the lost connection
+            queryConnections.values().removeIf(connection -> connection.client == client);
+            if (listener != null) {
+                listener.onDisconnect(channel);
+            }
+        }
+
+        @Override
+        public void onReconnect(Channel channel, MessageHeaderBase header, MessageData1ConnectionAck response,
+                                long reconnectMillis) {
+            if (listener != null) {
+                listener.onReconnect(channel, header, response, reconnectMillis);
+            }
+        }
+
+        @Override
+        public void onWritabilityChanged(Channel channel, boolean writable) {
+            if (listener != null) {
+                listener.onWritabilityChanged(channel, writable);
+            }
+        }
+
+        @Override
+        public boolean acceptIncomingMessage(MessageHeaderBase header) {
+            if (listener == null) {
+                log.warning("The message with ID " + header.getMessageId() + " was not expected by the pool.");
+                return false;
+            }
+            return listener.acceptIncomingMessage(header);
+        }
+
+        @Override
+        public void onEventAck3(MessageHeaderBase header, MessageData3EventAck response) {
+            listener.onEventAck3(header, response);
+        }
+
+        @Override
+        public void onAttachmentRequest4(MessageHeaderBase header, MessageData4AttachmentRequest request) {
+            listener.onAttachmentRequest4(header, request);
+        }
+
+        @Override
+        public void onAttachmentRequestAck5(MessageHeaderBase header, MessageData5AttachmentRequestAck requestAck) {
+            listener.onAttachmentRequestAck5(header, requestAck);
+        }
+
+        @Override
+        public void onAttachmentResponse6(MessageHeaderBase header, MessageData6AttachmentResponse response) {
+            listener.onAttachmentResponse6(header, response);
+        }
+
+        @Override
+        public void onAttachmentResponseAck7(MessageHeaderBase header, MessageData7AttachmentResponseAck responseAck) {
+            listener.onAttachmentResponseAck7(header, responseAck);
+        }
+
+        @Override
+        public void onEventDocument8(MessageHeaderBase header, MessageData8EventDocument eventDocument) {
+            listener.onEventDocument8(header, eventDocument);
+        }
+
+        @Override
+        public void onEventDocumentAck9(MessageHeaderBase header, MessageData9EventDocumentAck eventDocumentAck) {
+            listener.onEventDocumentAck9(header, eventDocumentAck);
+        }
+
+        @Override
+        public void onQueryRequestAck11(MessageHeaderBase header, MessageData11QueryRequestAck response) {
+            listener.onQueryRequestAck11(header, response);
+        }
+    }
+}
@@ -64,6 +64,48 @@ public interface GDSMessageListener {
 
     }
 
+    /**
+     * Called when the client logged in again after the connection was lost (only if the automatic reconnection is
+     * enabled, see {@link AsyncGDSClient.AsyncGDSClientBuilder#withAutoReconnect(long, long)}). The loss of the
+     * connection is reported by {@link GDSMessageListener#onDisconnect(Channel)} before the reconnection starts, while
+     * giving up on it by {@link GDSMessageListener#onConnectionFailure(Channel, Either)}.
+     *
+     * @param channel         the {@link Channel} object associated with the new connection
+     * @param header          the MessageHeader that was given with the login reply
+     * @param response        the ACK data of the GDS
+     * @param reconnectMillis the time passed since the connection was lost, in milliseconds
+     */
+    default void onReconnect(Channel channel, MessageHeaderBase header, MessageData1ConnectionAck response,
+                             long reconnectMillis) {
+
+    }
+
+    /**
+     * Called when the outbound buffer of the connection exceeds the high water mark (the connection becomes
+     * unwritable) or drops below the low water mark again (see
+     * {@link AsyncGDSClient.AsyncGDSClientBuilder#withWriteBufferWaterMark(int, int)}). Producers can use it to
+     * throttle the sending of the messages to the capacity of the socket. Called by the event loop of the
+     * connection, so it should not block.
+     *
+     * @param channel  the {@link Channel} object associated with the connection
+     * @param writable whether the messages can be written without exceeding the high water mark
+     */
+    default void onWritabilityChanged(Channel channel, boolean writable) {
+
+    }
+
+    /**
+     * Called with the header of every incoming message (apart from the login reply) before its data part is decoded.
+     * Returning {@code false} drops the message without decoding its (possibly large) data and without calling any
+     * other method of the listener for it.
+     *
+     * @param header the header of the incoming message
+     * @return whether the message should be decoded and passed to the listener
+     */
+    default boolean acceptIncomingMessage(MessageHeaderBase header) {
+        return true;
+    }
+
     /**
      * Called upon receiving an EventACK from the GDS.
      *
@@ -0,0 +1,213 @@
+package hu.arheu.gds.client;
+
+import hu.arheu.gds.message.FullGdsMessage;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the messages received by an {@link AsyncGDSClient} (see
+ * {@link AsyncGDSClient.AsyncGDSClientBuilder#withMessagePublisher(int, Executor)}).
+ * <p>
+ * The messages are put into a queue by the thread processing the incoming messages, and they are delivered to the
+ * subscriber on the given executor, only as much as it requested. If the queue gets full, the reading of the
+ * connection is stopped (by turning off its {@code AUTO_READ} option), so the GDS is slowed down by the TCP flow
+ * control instead of the messages piling up in the memory. The reading is resumed once the subscriber has processed half of the queue.
+ * The frames already read from the socket when the reading is stopped are still queued, so the limit can be exceeded
+ * by the messages of a single read.
+ * <p>
+ * Only one subscriber is served at a time, the messages are not duplicated. If the subscriber cancels its
+ * subscription, the messages not delivered yet are kept for the next subscriber.
+ */
+final class GDSMessagePublisher implements Flow.Publisher<FullGdsMessage> {
+
+    private final int capacity;
+    private final int resumeThreshold;
+    private final Executor executor;
+    //turns the reading of the current connection on or off
+    private final Consumer<Boolean> readingSwitch;
+    private final Queue<FullGdsMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    //the number of drain requests, the messages are delivered by a single task at a time
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final AtomicReference<MessageSubscription> subscription = new AtomicReference<>();
+    private volatile boolean readingPaused;
+    private volatile boolean completed;
+    private volatile Throwable error;
+
+    /**
+     * @param capacity      the number of queued messages above which the reading of the connection is stopped
+     * @param executor      the executor the subscriber is called on
+     * @param readingSwitch called with {@code false} to stop and with {@code true} to resume reading the connection
+     */
+    GDSMessagePublisher(int capacity, Executor executor, Consumer<Boolean> readingSwitch) {
+        this.capacity = capacity;
+        this.resumeThreshold = capacity / 2;
+        this.executor = executor;
+        this.readingSwitch = readingSwitch;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super FullGdsMessage> subscriber) {
+        MessageSubscription newSubscription = new MessageSubscription(subscriber);
+        if (!subscription.compareAndSet(null, newSubscription)) {
+            subscriber.onSubscribe(new MessageSubscription(subscriber));
+            subscriber.onError(new IllegalStateException("The messages of the client are already published to another subscriber!"));
+            return;
+        }
+        subscriber.onSubscribe(newSubscription);
+        drain();
+    }
+
+    /**
+     * Queues a received message, stopping the reading of the connection if the queue is full.
+     * Called by the thread processing the incoming messages.
+     */
+    void offer(FullGdsMessage message) {
+        queue.offer(message);
+        if (queued.incrementAndGet() >= capacity && !readingPaused) {
+            updateReading();
+        }
+        drain();
+    }
+
+    /**
+     * Completes the subscriber once the queued messages are delivered (e.g. when the client is closed).
+     *
+     * @param cause the error the subscriber is completed with, {@code null} for a normal completion
+     */
+    void complete(Throwable cause) {
+        if (completed) {
+            return;
+        }
+        error = cause;
+        completed = true;
+        drain();
+    }
+
+    /**
+     * Applies the current reading state to the connection, used if the connection was replaced (by a reconnection).
+     */
+    synchronized void refreshReading() {
+        if (readingPaused) {
+            readingSwitch.accept(false);
+        }
+    }
+
+    /**
+     * Returns the number of the messages waiting for the subscriber.
+     *
+     * @return the number of the queued messages
+     */
+    int getQueuedMessages() {
+        return queued.get();
+    }
+
+    private synchronized void updateReading() {
+        int size = queued.get();
+        if (!readingPaused && size >= capacity) {
+            readingPaused = true;
+            readingSwitch.accept(false);
+        } else if (readingPaused && size <= resumeThreshold) {
+            readingPaused = false;
+            readingSwitch.accept(true);
+        }
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() == 0) {
+            executor.execute(this::drainLoop);
+        }
+    }
+
+    private void drainLoop() {
+        int missed = 1;
+        do {
+            MessageSubscription current = subscription.get();
+            if (current != null) {
+                current.deliver();
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private final class MessageSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super FullGdsMessage> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+
+        MessageSubscription(Flow.Subscriber<? super FullGdsMessage> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested messages has to be positive! Specified: " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            //the remaining messages are kept for the next subscriber
+            subscription.compareAndSet(this, null);
+        }
+
+        /**
+         * Delivers the queued messages to the subscriber as long as it has demand. Called by one thread at a time.
+         */
+        private void deliver() {
+            while (!cancelled) {
+                if (invalidRequest != null) {
+                    cancel();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+                //read before polling, so no message offered before the completion can be missed
+                boolean done = completed;
+                if (queue.isEmpty()) {
+                    if (done) {
+                        //a later subscriber is completed the same way
+                        cancel();
+                        if (error != null) {
+                            subscriber.onError(error);
+                        } else {
+                            subscriber.onComplete();
+                        }
+                    }
+                    return;
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+                FullGdsMessage message = queue.poll();
+                queued.decrementAndGet();
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(message);
+                } catch (RuntimeException e) {
+                    //a subscriber violating the specification is considered to be cancelled
+                    cancel();
+                    subscriber.onError(e);
+                }
+                if (readingPaused && queued.get() <= resumeThreshold) {
+                    updateReading();
+                }
+            }
+        }
+    }
+}
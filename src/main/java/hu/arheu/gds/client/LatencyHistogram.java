@@ -0,0 +1,146 @@
+package hu.arheu.gds.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations, part of the {@link ClientMetrics}.
+ * <p>
+ * The durations are counted in exponential buckets, four for every power of two of the nanoseconds, so the
+ * percentiles are estimated with a relative error of at most 25%, while recording a value costs a few atomic
+ * increments and no allocation. The count, the mean and the maximum are exact.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * @return the number of the recorded durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the mean of the recorded durations in milliseconds, {@code 0} if there is none
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / n;
+    }
+
+    /**
+     * @return the longest recorded duration in milliseconds, {@code 0} if there is none
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the estimated median of the recorded durations in milliseconds
+     */
+    public double getP50Millis() {
+        return getPercentileMillis(50);
+    }
+
+    /**
+     * @return the estimated 90th percentile of the recorded durations in milliseconds
+     */
+    public double getP90Millis() {
+        return getPercentileMillis(90);
+    }
+
+    /**
+     * @return the estimated 99th percentile of the recorded durations in milliseconds
+     */
+    public double getP99Millis() {
+        return getPercentileMillis(99);
+    }
+
+    /**
+     * Estimates the given percentile of the recorded durations (by the upper bound of the bucket it falls into).
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated percentile in milliseconds, {@code 0} if there is no recorded duration
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public double getPercentileMillis(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile has to be between 0 and 100! Specified: " + percentile);
+        }
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxNanos.get()) / NANOS_PER_MILLI;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", meanMillis=" + getMeanMillis() +
+                ", p50Millis=" + getP50Millis() +
+                ", p99Millis=" + getP99Millis() +
+                ", maxMillis=" + getMaxMillis() +
+                '}';
+    }
+}
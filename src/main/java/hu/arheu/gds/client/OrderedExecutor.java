@@ -0,0 +1,102 @@
+package hu.arheu.gds.client;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks on an underlying executor, keeping the order of the tasks submitted with the same key.
+ * <p>
+ * The tasks of the same key are run one after the other (each task is submitted to the executor once the previous
+ * one finished), while the tasks of different keys can run in parallel. Used by the {@link AsyncGDSClient} to
+ * process the incoming messages with the same message ID (e.g. the fragments of a message) in the order they
+ * arrived.
+ */
+final class OrderedExecutor {
+
+    private final Executor executor;
+    //the tasks waiting for the running task of their key, a key is present while a task of it is running
+    private final Map<String, Queue<Runnable>> waitingTasks = new HashMap<>();
+
+    OrderedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the task after the tasks submitted earlier with the same key.
+     *
+     * @param key  the key the order is kept by
+     * @param task the task to run
+     * @throws RejectedExecutionException if the underlying executor does not accept the task
+     */
+    void execute(String key, Runnable task) throws RejectedExecutionException {
+        synchronized (waitingTasks) {
+            Queue<Runnable> waiting = waitingTasks.get(key);
+            if (waiting != null) {
+                waiting.add(task);
+                return;
+            }
+            waitingTasks.put(key, new ArrayDeque<>());
+        }
+        try {
+            executor.execute(() -> run(key, task));
+        } catch (RejectedExecutionException e) {
+            synchronized (waitingTasks) {
+                waitingTasks.remove(key);
+            }
+            throw e;
+        }
+    }
+
+    private void run(String key, Runnable task) {
+        Runnable current = task;
+        Throwable failure = null;
+        //the tasks rejected by the executor are run in a loop, as a long queue of a key would overflow the stack
+        while (current != null) {
+            try {
+                current.run();
+            } catch (RuntimeException | Error e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+            current = submitNext(key);
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * Submits the next waiting task of the key to the executor.
+     *
+     * @param key the key of the task finished
+     * @return the next task if the executor rejected it, so it has to be run by the caller, {@code null} otherwise
+     */
+    private Runnable submitNext(String key) {
+        Runnable next;
+        synchronized (waitingTasks) {
+            Queue<Runnable> waiting = waitingTasks.get(key);
+            next = waiting.poll();
+            if (next == null) {
+                waitingTasks.remove(key);
+                return null;
+            }
+        }
+        try {
+            executor.execute(() -> run(key, next));
+            return null;
+        } catch (RejectedExecutionException e) {
+            //the waiting tasks cannot be dropped (they release the messages), so they are run here instead
+            return next;
+        }
+    }
+}
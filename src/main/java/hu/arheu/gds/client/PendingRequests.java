@@ -0,0 +1,221 @@
+package hu.arheu.gds.client;
+
+import hu.arheu.gds.message.data.MessageData;
+import hu.arheu.gds.message.data.MessageData5AttachmentRequestAck;
+import hu.arheu.gds.message.errors.ValidationException;
+import hu.arheu.gds.message.header.MessageHeaderBase;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The table of the requests sent by an {@link AsyncGDSClient} that are still waiting for their replies, keyed by
+ * their message IDs.
+ * <p>
+ * Every request is represented by a {@link CompletableFuture}, completed by the I/O thread when the reply arrives.
+ * The deadlines of the requests are tracked by a single {@link HashedWheelTimer} shared by every client, so
+ * thousands of requests can be in flight without a waiting thread or a scheduled task for each of them.
+ */
+final class PendingRequests {
+
+    /**
+     * Sends (or re-sends) a request.
+     */
+    @FunctionalInterface
+    interface Sender {
+        ChannelFuture send() throws IOException, ValidationException;
+    }
+
+    private static final class TimerHolder {
+        private static final Timer TIMER = new HashedWheelTimer(
+                new DefaultThreadFactory("gds-request-timeout", true), 10, TimeUnit.MILLISECONDS);
+    }
+
+    private final ConcurrentHashMap<String, PendingRequest> requests = new ConcurrentHashMap<>();
+    private final ClientMetrics metrics;
+
+    /**
+     * @param metrics the metrics the reply latencies and the timeouts are recorded to
+     */
+    PendingRequests(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers a new request that is about to be sent.
+     *
+     * @param messageId        the ID of the request (and its reply)
+     * @param timeout          the time (in milliseconds) the reply has to arrive within
+     * @param awaitsAttachment whether the request is an attachment request, which is only completed by an
+     *                         attachment request ACK if it contains the attachment itself
+     * @param replay           used to send the request again after a reconnection, {@code null} if the request is
+     *                         not idempotent (and therefore must not be sent again)
+     * @return the future completed with the reply
+     * @throws IllegalStateException if there is already a pending request with the same ID
+     */
+    CompletableFuture<Pair<MessageHeaderBase, MessageData>> register(String messageId, long timeout,
+                                                                      boolean awaitsAttachment, Sender replay) {
+        PendingRequest request = new PendingRequest(messageId, timeout, awaitsAttachment, replay);
+        //scheduled before the request is visible, as a concurrent fail() or failAll() cancels its timeout
+        request.scheduleTimeout();
+        if (requests.putIfAbsent(messageId, request) != null) {
+            request.timeout.cancel();
+            throw new IllegalStateException("There is already an outgoing message with the ID " + messageId + "!");
+        }
+        if (request.timeout.isExpired()) {
+            //the timeout fired before the request was visible, so it could not remove (and complete) the request
+            request.expire(request.timeout);
+        }
+        return request.future;
+    }
+
+    /**
+     * @param messageId the ID of the message
+     * @return whether a request with the given ID is waiting for its reply
+     */
+    boolean isPending(String messageId) {
+        return requests.containsKey(messageId);
+    }
+
+    /**
+     * Completes the request the given reply belongs to.
+     *
+     * @param header the header of the reply
+     * @param data   the data of the reply
+     * @return {@code false} if there was no request waiting for this reply, {@code true} otherwise
+     */
+    boolean complete(MessageHeaderBase header, MessageData data) {
+        PendingRequest request = requests.get(header.getMessageId());
+        if (request == null) {
+            return false;
+        }
+        if (request.awaitsAttachment && isAttachmentRequestAckWithoutAttachment(data)) {
+            //the attachment is sent later by the GDS in an attachment response
+            request.timeout.cancel();
+            request.scheduleTimeout();
+            return true;
+        }
+        if (!requests.remove(header.getMessageId(), request)) {
+            return false;
+        }
+        request.timeout.cancel();
+        metrics.recordReply(data.getMessageDataType(), System.nanoTime() - request.sentAt);
+        request.future.complete(new Pair<>(header, data));
+        return true;
+    }
+
+    /**
+     * Completes the given request exceptionally, if it is still pending.
+     *
+     * @param messageId the ID of the request
+     * @param cause     the reason of the failure
+     */
+    void fail(String messageId, Throwable cause) {
+        PendingRequest request = requests.remove(messageId);
+        if (request != null) {
+            request.timeout.cancel();
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Completes every pending request exceptionally.
+     *
+     * @param cause the reason of the failure
+     */
+    void failAll(Throwable cause) {
+        for (String messageId : requests.keySet()) {
+            fail(messageId, cause);
+        }
+    }
+
+    /**
+     * Completes every pending request exceptionally that cannot be sent again after a reconnection.
+     *
+     * @param cause the reason of the failure
+     */
+    void failNotReplayable(Throwable cause) {
+        requests.forEach((messageId, request) -> {
+            if (request.replay == null) {
+                fail(messageId, cause);
+            }
+        });
+    }
+
+    /**
+     * Sends every pending request again that can be replayed (the ones that cannot were already failed by
+     * {@link #failNotReplayable(Throwable)} when the connection was lost). Their deadlines are not reset.
+     *
+     * @return the number of requests sent again
+     */
+    int replay() {
+        int replayed = 0;
+        for (PendingRequest request : requests.values()) {
+            if (request.replay == null) {
+                continue;
+            }
+            try {
+                request.replay.send().addListener(future -> {
+                    if (!future.isSuccess()) {
+                        fail(request.messageId, future.cause());
+                    }
+                });
+                replayed++;
+            } catch (IOException | RuntimeException e) {
+                fail(request.messageId, e);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * @return the number of requests waiting for their replies
+     */
+    int size() {
+        return requests.size();
+    }
+
+    private static boolean isAttachmentRequestAckWithoutAttachment(MessageData data) {
+        if (!data.isAttachmentRequestAckMessageData5()) {
+            return false;
+        }
+        MessageData5AttachmentRequestAck requestAck = data.asAttachmentRequestAckMessageData5();
+        return requestAck.getData() != null && !requestAck.getData().getResult().hasAttachment();
+    }
+
+    private final class PendingRequest {
+        private final String messageId;
+        private final long timeoutMillis;
+        private final boolean awaitsAttachment;
+        private final Sender replay;
+        private final CompletableFuture<Pair<MessageHeaderBase, MessageData>> future = new CompletableFuture<>();
+        private final long sentAt = System.nanoTime();
+        private volatile Timeout timeout;
+
+        private PendingRequest(String messageId, long timeoutMillis, boolean awaitsAttachment, Sender replay) {
+            this.messageId = messageId;
+            this.timeoutMillis = timeoutMillis;
+            this.awaitsAttachment = awaitsAttachment;
+            this.replay = replay;
+        }
+
+        private void scheduleTimeout() {
+            timeout = TimerHolder.TIMER.newTimeout(this::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void expire(Timeout expired) {
+            if (expired == timeout && requests.remove(messageId, this)) {
+                metrics.recordTimeout();
+                future.completeExceptionally(
+                        new GDSTimeoutException("The GDS did not reply in time for the request with ID: " + messageId));
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package hu.arheu.gds.client;
+
+import hu.arheu.gds.message.clienttypes.QueryResponse;
+import hu.arheu.gds.message.data.MessageData11QueryRequestAck;
+import hu.arheu.gds.message.data.MessageData12NextQueryPage;
+import hu.arheu.gds.message.data.QueryResponseHolder;
+import hu.arheu.gds.message.data.impl.AckStatus;
+import hu.arheu.gds.message.errors.ValidationException;
+import hu.arheu.gds.message.util.MessageManager;
+import org.msgpack.value.Value;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over all pages of a query, requesting the next pages ({@link MessageData12NextQueryPage}) automatically.
+ * <p>
+ * The next page can only be requested once the previous one (holding the query context) has arrived, so the pages
+ * are requested one after the other, but ahead of the consumer: up to {@code prefetchPages} pages are requested
+ * (and buffered) beyond the one being processed. A further page is requested once the caller asks for the page after
+ * the one processed ({@link #hasNext()}). The requests are sent from the thread completing the previous page, so
+ * walking a large result takes about the time of the transfer instead of a round-trip for every page processed by the
+ * caller.
+ * <p>
+ * The iteration ends after the last page, or after a page whose status is not {@link AckStatus#OK} (that page is
+ * still returned, so the caller can inspect the error). If a page cannot be fetched (e.g. it times out), the
+ * exception is thrown by {@link #hasNext()}. Instances are not thread-safe, they should be consumed by a single
+ * thread.
+ * <p>
+ * Created by {@link AsyncGDSClient#queryAllPages(hu.arheu.gds.message.data.MessageData10QueryRequest, int)} and
+ * {@link SyncGDSClient#queryAllPages(hu.arheu.gds.message.data.MessageData10QueryRequest, int)}.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public final class QueryPages implements Iterator<QueryResponse>, AutoCloseable {
+
+    /**
+     * Sends a next page request, returning the future of its reply.
+     */
+    interface NextPageSender {
+        CompletableFuture<QueryResponse> send(MessageData12NextQueryPage request) throws IOException, ValidationException;
+    }
+
+    private final NextPageSender sender;
+    //called with the scroll ID of the last page received if the next pages are not requested because of closing
+    private final Consumer<String> abandonedQueryHandler;
+    private final Long timeout;
+    //the (future) pages requested ahead of the consumer, a page completed with null marks the end of the query
+    private final Deque<CompletableFuture<QueryResponse>> pages;
+    private CompletableFuture<QueryResponse> lastRequested;
+    private QueryResponse next;
+    //whether the page after the last one requested is requested once the page returned last has been processed
+    private boolean requestAfterConsumed;
+    private boolean finished;
+    private volatile boolean closed;
+
+    QueryPages(CompletableFuture<QueryResponse> firstPage, NextPageSender sender, Long timeout, int prefetchPages) {
+        this(firstPage, sender, timeout, prefetchPages, scrollId -> {
+        });
+    }
+
+    QueryPages(CompletableFuture<QueryResponse> firstPage, NextPageSender sender, Long timeout, int prefetchPages,
+               Consumer<String> abandonedQueryHandler) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("The number of prefetched pages cannot be negative! Specified: " + prefetchPages);
+        }
+        this.sender = sender;
+        this.abandonedQueryHandler = abandonedQueryHandler;
+        this.timeout = timeout;
+        this.pages = new ArrayDeque<>(prefetchPages + 1);
+        this.pages.add(firstPage);
+        this.lastRequested = firstPage;
+        for (int i = 0; i < prefetchPages; i++) {
+            requestAfterLast();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        if (requestAfterConsumed) {
+            //the caller is done with the previous page, so the number of pages ahead of it drops below the limit
+            requestAfterConsumed = false;
+            requestAfterLast();
+        }
+        if (pages.isEmpty()) {
+            return false;
+        }
+        QueryResponse page = await(pages.poll());
+        if (page == null) {
+            finish();
+            return false;
+        }
+        if (!hasMorePages(page)) {
+            //the requests chained after this page complete with null, but the consumer does not have to wait for them
+            finish();
+        } else {
+            requestAfterConsumed = true;
+        }
+        next = page;
+        return true;
+    }
+
+    @Override
+    public QueryResponse next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        QueryResponse page = next;
+        next = null;
+        return page;
+    }
+
+    /**
+     * Returns the remaining pages as a sequential stream. Closing the stream closes this instance.
+     *
+     * @return the stream of the pages
+     */
+    public Stream<QueryResponse> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Returns the records (hits) of the remaining pages as a sequential stream. If a page has an error status, the
+     * stream throws an {@link IllegalStateException} when it is reached. Closing the stream closes this instance.
+     *
+     * @return the stream of the records
+     */
+    public Stream<List<Value>> rows() {
+        return stream().flatMap(page -> {
+            MessageData11QueryRequestAck data = page.getData();
+            QueryResponseHolder holder = data.getQueryResponseHolder();
+            if (data.getGlobalStatus() != AckStatus.OK || holder == null) {
+                throw new IllegalStateException("The query failed with status " + data.getGlobalStatus() + ": "
+                        + data.getGlobalException());
+            }
+            return holder.getHits().stream();
+        });
+    }
+
+    /**
+     * Stops requesting further pages. The pages already requested are still delivered by the client, but they are
+     * not returned anymore.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        finish();
+        //the next page of the last one requested is not requested anymore
+        lastRequested.thenAccept(this::abandonIfMorePages);
+    }
+
+    private void abandonIfMorePages(QueryResponse page) {
+        if (page != null && hasMorePages(page)) {
+            abandonedQueryHandler.accept(page.getData().getQueryResponseHolder().getQueryContextHolder().getScrollId());
+        }
+    }
+
+    private void finish() {
+        finished = true;
+        pages.clear();
+    }
+
+    private void requestAfterLast() {
+        lastRequested = lastRequested.thenCompose(this::requestNextPage);
+        pages.add(lastRequested);
+    }
+
+    private CompletableFuture<QueryResponse> requestNextPage(QueryResponse previous) {
+        if (closed) {
+            abandonIfMorePages(previous);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (previous == null || !hasMorePages(previous)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return sender.send(MessageManager.createMessageData12NextQueryPage(
+                    previous.getData().getQueryResponseHolder().getQueryContextHolder(), timeout));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean hasMorePages(QueryResponse page) {
+        MessageData11QueryRequestAck data = page.getData();
+        return data.getGlobalStatus() == AckStatus.OK
+                && data.getQueryResponseHolder() != null
+                && Boolean.TRUE.equals(data.getQueryResponseHolder().getMorePage());
+    }
+
+    private QueryResponse await(CompletableFuture<QueryResponse> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            finish();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Could not fetch the next page of the query!", cause);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package hu.arheu.gds.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the automatic reconnections of an {@link AsyncGDSClient}, see
+ * {@link AsyncGDSClient.AsyncGDSClientBuilder#withAutoReconnect(long, long)}.
+ * <p>
+ * The reconnection time is measured from the moment the connection was lost until the login on the new connection
+ * was acknowledged by the GDS.
+ */
+@SuppressWarnings("unused") //API class, not all methods are used across the project.
+public final class ReconnectStatistics {
+
+    private long numberOfReconnects;
+    private long numberOfFailedAttempts;
+    private long lastReconnectNanos;
+    private long maxReconnectNanos;
+    private long totalReconnectNanos;
+
+    ReconnectStatistics() {
+    }
+
+    synchronized void recordReconnect(long reconnectNanos) {
+        numberOfReconnects++;
+        lastReconnectNanos = reconnectNanos;
+        maxReconnectNanos = Math.max(maxReconnectNanos, reconnectNanos);
+        totalReconnectNanos += reconnectNanos;
+    }
+
+    synchronized void recordFailedAttempt() {
+        numberOfFailedAttempts++;
+    }
+
+    /**
+     * @return the number of successful reconnections
+     */
+    public synchronized long getNumberOfReconnects() {
+        return numberOfReconnects;
+    }
+
+    /**
+     * @return the number of reconnection attempts that failed (and were retried or given up on)
+     */
+    public synchronized long getNumberOfFailedAttempts() {
+        return numberOfFailedAttempts;
+    }
+
+    /**
+     * @return the time of the last successful reconnection in milliseconds, {@code 0} if there was none
+     */
+    public synchronized long getLastReconnectMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastReconnectNanos);
+    }
+
+    /**
+     * @return the time of the slowest successful reconnection in milliseconds, {@code 0} if there was none
+     */
+    public synchronized long getMaxReconnectMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxReconnectNanos);
+    }
+
+    /**
+     * @return the average time of the successful reconnections in milliseconds, {@code 0} if there was none
+     */
+    public synchronized long getAverageReconnectMillis() {
+        return numberOfReconnects == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalReconnectNanos / numberOfReconnects);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReconnectStatistics{" +
+                "numberOfReconnects=" + numberOfReconnects +
+                ", numberOfFailedAttempts=" + numberOfFailedAttempts +
+                ", lastReconnectMillis=" + getLastReconnectMillis() +
+                ", maxReconnectMillis=" + getMaxReconnectMillis() +
+                ", averageReconnectMillis=" + getAverageReconnectMillis() +
+                '}';
+    }
+}
@@ -11,11 +11,10 @@ import hu.arheu.gds.message.clienttypes.EventDocumentResponse;
 import hu.arheu.gds.message.clienttypes.EventResponse;
 import hu.arheu.gds.message.clienttypes.QueryResponse;
 import hu.arheu.gds.message.data.*;
-import hu.arheu.gds.message.data.impl.AckStatus;
-import hu.arheu.gds.message.data.impl.AttachmentResponseAckResultHolderImpl;
-import hu.arheu.gds.message.data.impl.AttachmentResultHolderImpl;
 import hu.arheu.gds.message.errors.ValidationException;
 import hu.arheu.gds.message.header.MessageHeaderBase;
+import hu.arheu.gds.message.util.AttachmentSource;
+import hu.arheu.gds.message.util.EventMessageEncoder;
 import hu.arheu.gds.message.util.MessageManager;
 import io.netty.channel.Channel;
 import io.netty.handler.ssl.SslContext;
@@ -24,21 +23,35 @@ import org.msgpack.value.Value;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 /**
  * Synchronized version (wrapper) for the {@link AsyncGDSClient} class.
- * This version uses {@link ConcurrentHashMap} and {@link CountDownLatch} to wrap the calls and their responses.
+ * This version awaits the futures returned by the {@code ...Async} methods of the underlying client.
  * <p>
  * Since messages might not arrive in time, a timeout has to be specified for the waiting to avoid the code to be stuck.
+ * The deadlines of the requests are tracked by a single timer, which completes the awaited replies with a
+ * {@link GDSTimeoutException}, so the waiting threads do not need timed waits. The replies arriving after the timeout
+ * are dropped (see {@link SyncGDSClient#getNumberOfLateResponses()}).
+ * <p>
+ * The client does not block inside {@code synchronized} blocks (it uses {@link ReentrantLock} and latches instead),
+ * so the calling threads can be virtual threads without pinning their carrier threads.
  */
 @SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
 public final class SyncGDSClient implements AutoCloseable {
@@ -50,6 +63,18 @@ public final class SyncGDSClient implements AutoCloseable {
         private String userName;
         private String userPassword;
         private long timeout;
+        private boolean decodeQueryHitsAsColumns;
+        private Executor connectionWatcherExecutor;
+        private int fragmentTransmissionUnit;
+        private Executor listenerExecutor;
+        private int maxConsolidatedFlushes;
+        private int maxFramePayloadLength;
+        private int maxAggregatedMessageSize;
+        private Boolean compression;
+        private int compressionLevel = -1;
+        private int compressionWindowBits;
+        private boolean streamingDecoding;
+        private String jmxMetricsName;
 
         private SyncGDSClientBuilder() {
         }
@@ -140,8 +165,170 @@ public final class SyncGDSClient implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Sets whether the hits of the query responses should be unpacked directly into a column oriented
+         * representation ({@link QueryResponseHolder#getColumnarHits()}). See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withColumnarQueryHits(boolean)}.
+         *
+         * @param decodeQueryHitsAsColumns whether the query hits should be unpacked into columns
+         * @return this builder
+         */
+        public SyncGDSClientBuilder withColumnarQueryHits(boolean decodeQueryHitsAsColumns) {
+            this.decodeQueryHitsAsColumns = decodeQueryHitsAsColumns;
+            return this;
+        }
+
+        /**
+         * Sets the executor running the task that awaits the login reply of the underlying client. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withConnectionWatcherExecutor(Executor)}.
+         *
+         * @param connectionWatcherExecutor the executor used for the connection watcher task
+         * @return this builder
+         */
+        public SyncGDSClientBuilder withConnectionWatcherExecutor(Executor connectionWatcherExecutor) {
+            this.connectionWatcherExecutor = connectionWatcherExecutor;
+            return this;
+        }
+
+        /**
+         * Enables the fragmentation of the large messages sent by the client. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withFragmentation(int)}.
+         *
+         * @param fragmentTransmissionUnit the maximum size of the data chunk carried by a fragment in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public SyncGDSClientBuilder withFragmentation(int fragmentTransmissionUnit) throws IllegalArgumentException {
+            if (fragmentTransmissionUnit < 1) {
+                throw new IllegalArgumentException("The fragment transmission unit has to be positive! Specified: " + fragmentTransmissionUnit);
+            }
+            this.fragmentTransmissionUnit = fragmentTransmissionUnit;
+            return this;
+        }
+
+        /**
+         * Sets the executor the replies are decoded on, instead of the event loop of the connection. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withListenerExecutor(Executor)}.
+         *
+         * @param listenerExecutor the executor used to process the incoming messages
+         * @return this builder
+         */
+        public SyncGDSClientBuilder withListenerExecutor(Executor listenerExecutor) {
+            this.listenerExecutor = listenerExecutor;
+            return this;
+        }
+
+        /**
+         * Enables coalescing the writes of the messages sent in a burst. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withWriteCoalescing(int)}.
+         *
+         * @param maxConsolidatedFlushes the maximum number of messages written before the socket is flushed
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public SyncGDSClientBuilder withWriteCoalescing(int maxConsolidatedFlushes) throws IllegalArgumentException {
+            if (maxConsolidatedFlushes < 1) {
+                throw new IllegalArgumentException("The maximum number of consolidated flushes has to be positive! Specified: " + maxConsolidatedFlushes);
+            }
+            this.maxConsolidatedFlushes = maxConsolidatedFlushes;
+            return this;
+        }
+
+        /**
+         * Sets the maximum payload length of a single WebSocket frame accepted from the GDS. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withMaxFramePayloadLength(int)}.
+         *
+         * @param maxFramePayloadLength the maximum payload length in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public SyncGDSClientBuilder withMaxFramePayloadLength(int maxFramePayloadLength) throws IllegalArgumentException {
+            if (maxFramePayloadLength < 1) {
+                throw new IllegalArgumentException("The maximum frame payload length has to be positive! Specified: " + maxFramePayloadLength);
+            }
+            this.maxFramePayloadLength = maxFramePayloadLength;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a message sent by the GDS in more WebSocket frames. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withFrameAggregation(int)}.
+         *
+         * @param maxAggregatedMessageSize the maximum size of an aggregated message in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if the value is zero or negative
+         */
+        public SyncGDSClientBuilder withFrameAggregation(int maxAggregatedMessageSize) throws IllegalArgumentException {
+            if (maxAggregatedMessageSize < 1) {
+                throw new IllegalArgumentException("The maximum size of an aggregated message has to be positive! Specified: " + maxAggregatedMessageSize);
+            }
+            this.maxAggregatedMessageSize = maxAggregatedMessageSize;
+            return this;
+        }
+
+        /**
+         * Enables decoding the replies sent in more WebSocket frames while their frames are arriving. Requires a
+         * listener executor (see {@link #withListenerExecutor(Executor)}). See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withStreamingDecoding(boolean)}.
+         *
+         * @param streamingDecoding whether the messages sent in more frames are decoded while they arrive
+         * @return this builder
+         */
+        public SyncGDSClientBuilder withStreamingDecoding(boolean streamingDecoding) {
+            this.streamingDecoding = streamingDecoding;
+            return this;
+        }
+
+        /**
+         * Registers the metrics of the client as an MXBean on the platform MBean server. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withJmxMetrics(String)}.
+         *
+         * @param name the name of the client in the object name of the MXBean, {@code null} to not register the
+         *             metrics
+         * @return this builder
+         */
+        public SyncGDSClientBuilder withJmxMetrics(String name) {
+            this.jmxMetricsName = name;
+            return this;
+        }
+
+        /**
+         * Enables or disables offering the compression of the messages to the GDS. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withCompression(boolean)}.
+         *
+         * @param compression whether the compression is offered
+         * @return this builder
+         */
+        public SyncGDSClientBuilder withCompression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Enables offering the compression of the messages with the given parameters. See
+         * {@link AsyncGDSClient.AsyncGDSClientBuilder#withCompression(int, int)}.
+         *
+         * @param compressionLevel the level the messages sent by the client are compressed with, from 0 to 9
+         * @param windowBits       the base-2 logarithm of the window size requested for the messages compressed by
+         *                         the GDS, from 8 to 15
+         * @return this builder
+         * @throws IllegalArgumentException if either value is out of its range
+         */
+        public SyncGDSClientBuilder withCompression(int compressionLevel, int windowBits) throws IllegalArgumentException {
+            if (compressionLevel < 0 || compressionLevel > 9) {
+                throw new IllegalArgumentException("The compression level has to be between 0 and 9! Specified: " + compressionLevel);
+            }
+            if (windowBits < 8 || windowBits > 15) {
+                throw new IllegalArgumentException("The window bits have to be between 8 and 15! Specified: " + windowBits);
+            }
+            this.compression = true;
+            this.compressionLevel = compressionLevel;
+            this.compressionWindowBits = windowBits;
+            return this;
+        }
+
         public SyncGDSClient build() {
-            return new SyncGDSClient(URI, userName, userPassword, logger, (timeout > 0 ? timeout : 3000L), sslContext);
+            return new SyncGDSClient(URI, userName, userPassword, logger, (timeout > 0 ? timeout : 3000L), sslContext, this);
         }
     }
 
@@ -154,16 +341,8 @@ public final class SyncGDSClient implements AutoCloseable {
         return new SyncGDSClientBuilder();
     }
 
-    @FunctionalInterface
-    private interface MessageOperation {
-        MessageOperation SKIP = () -> {
-        };
-
-        void run() throws IOException, ValidationException;
-    }
-
     private final AsyncGDSClient asyncGDSClient;
-    private final ConcurrentHashMap<String, Pair<CountDownLatch, Pair<MessageHeaderBase, MessageData>>> incomingCache;
+    private final LongAdder lateResponses;
     private final AtomicReference<Pair<MessageHeaderBase, MessageData1ConnectionAck>> loginResponse;
 
     private volatile Either<Throwable, Pair<MessageHeaderBase, MessageData1ConnectionAck>> connectionFailureReason;
@@ -176,7 +355,7 @@ public final class SyncGDSClient implements AutoCloseable {
 
     private boolean clientUsed;
 
-    private final Object lock = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * @param uri          The URI of the given GDS instance.
@@ -188,6 +367,11 @@ public final class SyncGDSClient implements AutoCloseable {
      *                     This can be created by the {@link AsyncGDSClient#createSSLContext(InputStream, char[])} method.
      */
     public SyncGDSClient(String uri, String userName, String userPassword, Logger log, long timeout, SslContext sslContext) {
+        this(uri, userName, userPassword, log, timeout, sslContext, getBuilder());
+    }
+
+    private SyncGDSClient(String uri, String userName, String userPassword, Logger log, long timeout,
+                          SslContext sslContext, SyncGDSClientBuilder options) {
         GDSMessageListener listener = new GDSMessageListener() {
 
             @Override
@@ -209,45 +393,45 @@ public final class SyncGDSClient implements AutoCloseable {
             }
 
             @Override
-            public void onEventAck3(MessageHeaderBase header, MessageData3EventAck response) {
-                handleIncomingForLatch(header, response);
-            }
-
-            @Override
-            public void onAttachmentRequestAck5(MessageHeaderBase header, MessageData5AttachmentRequestAck requestAck) {
-                handleIncomingForLatch(header, requestAck);
-            }
-
-            @Override
-            public void onAttachmentResponse6(MessageHeaderBase header, MessageData6AttachmentResponse response) {
-                handleIncomingForLatch(header, response);
-            }
-
-            @Override
-            public void onEventDocumentAck9(MessageHeaderBase header, MessageData9EventDocumentAck eventDocumentAck) {
-                handleIncomingForLatch(header, eventDocumentAck);
-            }
-
-            @Override
-            public void onQueryRequestAck11(MessageHeaderBase header, MessageData11QueryRequestAck response) {
-                handleIncomingForLatch(header, response);
-            }
-
-            private void handleIncomingForLatch(MessageHeaderBase header, MessageData data) {
-                Pair<CountDownLatch, Pair<MessageHeaderBase, MessageData>> latchPair = incomingCache.get(header.getMessageId());
-                if (latchPair != null) {
-                    latchPair.setSecond(new Pair<>(header, data));
-                    latchPair.getFirst().countDown();
-                } else {
-                    log.warning("The message with ID " + header.getMessageId() + " was not expected by the client.");
+            public boolean acceptIncomingMessage(MessageHeaderBase header) {
+                //the replies awaited by the client complete their futures, so only the late (or unexpected)
+                //messages get here
+                lateResponses.increment();
+                if (SyncGDSClient.this.log.isLoggable(Level.FINE)) {
+                    SyncGDSClient.this.log.fine("The message with ID " + header.getMessageId() + " was not expected by the client.");
                 }
+                return false;
             }
-
         };
 
         this.log = Objects.requireNonNullElseGet(log, () -> AsyncGDSClient.createDefaultLogger("SyncGDSClient"));
 
-        this.asyncGDSClient = new AsyncGDSClient(uri, userName, userPassword, timeout, this.log, listener, sslContext, null, true, true);
+        AsyncGDSClient.AsyncGDSClientBuilder asyncOptions = AsyncGDSClient.getBuilder()
+                .withColumnarQueryHits(options.decodeQueryHitsAsColumns)
+                .withConnectionWatcherExecutor(options.connectionWatcherExecutor)
+                .withListenerExecutor(options.listenerExecutor)
+                .withStreamingDecoding(options.streamingDecoding)
+                .withJmxMetrics(options.jmxMetricsName);
+        if (options.fragmentTransmissionUnit > 0) {
+            asyncOptions.withFragmentation(options.fragmentTransmissionUnit);
+        }
+        if (options.maxConsolidatedFlushes > 0) {
+            asyncOptions.withWriteCoalescing(options.maxConsolidatedFlushes);
+        }
+        if (options.maxFramePayloadLength > 0) {
+            asyncOptions.withMaxFramePayloadLength(options.maxFramePayloadLength);
+        }
+        if (options.maxAggregatedMessageSize > 0) {
+            asyncOptions.withFrameAggregation(options.maxAggregatedMessageSize);
+        }
+        if (options.compressionLevel >= 0) {
+            asyncOptions.withCompression(options.compressionLevel, options.compressionWindowBits);
+        }
+        if (options.compression != null) {
+            asyncOptions.withCompression(options.compression);
+        }
+        this.asyncGDSClient = new AsyncGDSClient(uri, userName, userPassword, timeout, this.log, listener, sslContext,
+                null, true, true, asyncOptions);
         this.userName = userName;
         this.timeout = timeout;
 
@@ -256,7 +440,7 @@ public final class SyncGDSClient implements AutoCloseable {
         connectLatch = new CountDownLatch(1);
         closeLatch = new CountDownLatch(1);
         loginResponse = new AtomicReference<>();
-        incomingCache = new ConcurrentHashMap<>();
+        lateResponses = new LongAdder();
 
         this.log.config("SyncGDSClient successfully initialized.");
     }
@@ -282,7 +466,8 @@ public final class SyncGDSClient implements AutoCloseable {
      * @return {@code true} on successful login, {@code false} otherwise.
      */
     public boolean connect() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             if (clientUsed) {
                 throw new IllegalStateException("The client was already used, cannot be used again!");
             }
@@ -305,6 +490,8 @@ public final class SyncGDSClient implements AutoCloseable {
                 log.severe(e.getMessage());
                 throw new Error(e);
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -313,7 +500,8 @@ public final class SyncGDSClient implements AutoCloseable {
      */
     @Override
     public void close() {
-        synchronized (lock) {
+        lock.lock();
+        try {
             asyncGDSClient.close();
             try {
                 //noinspection ResultOfMethodCallIgnored
@@ -323,6 +511,8 @@ public final class SyncGDSClient implements AutoCloseable {
                 throw new Error(e);
 
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -472,7 +662,33 @@ public final class SyncGDSClient implements AutoCloseable {
     public EventResponse sendEvent2(MessageHeaderBase header, MessageData2Event event)
             throws IOException, ValidationException {
         String messageID = header.getMessageId();
-        return awaitEventACK3(processOutgoingMessage(messageID, () -> asyncGDSClient.sendEvent2(header, event)), messageID);
+        return awaitReply(asyncGDSClient.sendEvent2Async(header, event), messageID);
+    }
+
+    /**
+     * Returns the event encoder of the calling thread, reset and ready to be filled with the next event.
+     * See {@link AsyncGDSClient#getEventEncoder()}.
+     *
+     * @return the (reset) event encoder of the current thread
+     */
+    public EventMessageEncoder getEventEncoder() {
+        return asyncGDSClient.getEventEncoder();
+    }
+
+    /**
+     * Sends the event currently held by the given encoder, awaiting the reply. If the GDS does not respond within
+     * the given time limit ({@code timeout}), will throw a {@link GDSTimeoutException}.
+     * The attachments added to the encoder from an {@link AttachmentSource} are read only while the message is
+     * encoded, so large files can be uploaded without loading them into the heap.
+     *
+     * @param encoder the encoder holding the event, see {@link SyncGDSClient#getEventEncoder()}
+     * @return the event ACK with the result.
+     * @throws IOException         if the message cannot be packed (or an attachment cannot be read)
+     * @throws ValidationException if the event has no operations or has invalid priority levels
+     */
+    public EventResponse sendEvent2(EventMessageEncoder encoder) throws IOException, ValidationException {
+        String messageID = encoder.getMessageId();
+        return awaitReply(asyncGDSClient.sendEvent2Async(encoder), messageID);
     }
 
 
@@ -554,7 +770,44 @@ public final class SyncGDSClient implements AutoCloseable {
     public AttachmentResult
     sendAttachmentRequest4(MessageHeaderBase header, MessageData4AttachmentRequest request) throws IOException, ValidationException {
         String messageID = header.getMessageId();
-        return awaitAttachment(processOutgoingMessage(messageID, () -> asyncGDSClient.sendAttachmentRequest4(header, request)), messageID);
+        return awaitReply(asyncGDSClient.sendAttachmentRequest4Async(header, request), messageID);
+    }
+
+    /**
+     * Sends an attachment request message, awaiting the reply, while the attachment is written to the given stream
+     * as it is unpacked instead of being kept in memory. The {@link AttachmentResultHolder#getAttachment()} of the
+     * result is {@code null} then, the number of bytes written is returned by
+     * {@link AttachmentResultHolder#getStreamedAttachmentSize()}. The stream is not closed by the client.
+     * See {@link SyncGDSClient#sendAttachmentRequest4(MessageHeaderBase, MessageData4AttachmentRequest)}.
+     *
+     * @param request          the attachment request to be sent to the GDS.
+     * @param attachmentStream the stream the attachment is written to
+     * @return the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public AttachmentResult
+    sendAttachmentRequest4(MessageData4AttachmentRequest request, OutputStream attachmentStream) throws IOException, ValidationException {
+        return sendAttachmentRequest4(MessageManager.createMessageHeaderBase(userName, MessageDataType.ATTACHMENT_REQUEST_4), request,
+                Channels.newChannel(attachmentStream));
+    }
+
+    /**
+     * Sends an attachment request message, awaiting the reply, while the attachment is written to the given channel.
+     * See {@link SyncGDSClient#sendAttachmentRequest4(MessageData4AttachmentRequest, OutputStream)}.
+     *
+     * @param header         the message header to be used
+     * @param request        the attachment request to be sent to the GDS.
+     * @param attachmentSink the channel the attachment is written to
+     * @return the attachment result
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
+     */
+    public AttachmentResult
+    sendAttachmentRequest4(MessageHeaderBase header, MessageData4AttachmentRequest request,
+                           WritableByteChannel attachmentSink) throws IOException, ValidationException {
+        Objects.requireNonNull(attachmentSink, "The attachment sink cannot be null!");
+        return awaitReply(asyncGDSClient.sendAttachmentRequest4Async(header, request, attachmentSink), header.getMessageId());
     }
 
     /**
@@ -641,7 +894,7 @@ public final class SyncGDSClient implements AutoCloseable {
     public EventDocumentResponse sendEventDocument8(MessageHeaderBase header, MessageData8EventDocument eventDocument)
             throws IOException, ValidationException {
         String messageID = header.getMessageId();
-        return awaitEventDocumentACK9(processOutgoingMessage(messageID, () -> asyncGDSClient.sendEventDocument8(header, eventDocument)), messageID);
+        return awaitReply(asyncGDSClient.sendEventDocument8Async(header, eventDocument), messageID);
     }
 
 
@@ -736,7 +989,7 @@ public final class SyncGDSClient implements AutoCloseable {
     public QueryResponse sendQueryRequest10(MessageHeaderBase header, MessageData10QueryRequest request)
             throws IOException, ValidationException {
         String messageID = header.getMessageId();
-        return awaitQueryACK11(processOutgoingMessage(messageID, () -> asyncGDSClient.sendQueryRequest10(header, request)), messageID);
+        return awaitReply(asyncGDSClient.sendQueryRequest10Async(header, request), messageID);
     }
 
 
@@ -803,195 +1056,79 @@ public final class SyncGDSClient implements AutoCloseable {
     public QueryResponse sendNextQueryPage12(MessageHeaderBase header, MessageData12NextQueryPage request)
             throws IOException, ValidationException {
         String messageID = header.getMessageId();
-        return awaitQueryACK11(processOutgoingMessage(messageID, () -> asyncGDSClient.sendNextQueryPage12(header, request)), messageID);
-    }
-    // </editor-fold>
-
-    /**
-     * Sends a WebSocket Ping message to the GDS.
-     */
-    public void sendPingMessage() {
-        asyncGDSClient.sendPingMessage();
+        return awaitReply(asyncGDSClient.sendNextQueryPage12Async(header, request), messageID);
     }
 
-
     /**
-     * Creates a {@link CountDownLatch} for the given message, puts it into a cache by the specified message ID
-     * and invokes the operation that's necessary to send it.
+     * Sends a query request message, returning an iterator over all pages of its result. The next pages are
+     * requested automatically, up to {@code prefetchPages} pages ahead of the one being processed, while every page
+     * has to arrive within the time limit ({@code timeout}), otherwise the iterator throws a
+     * {@link GDSTimeoutException}. See {@link QueryPages}.
      *
-     * @param messageID        the ID for the message that will be used to await it and avoid multiple messages with the same ID.
-     * @param messageOperation the operation to send the message
-     * @return the created CountDownLatch used to await the message
-     * @throws IOException              if the message cannot be packed
-     * @throws ValidationException      if any value constraints the restrictions in the structure of the header or the body.
-     * @throws IllegalArgumentException if the given messageID is already used for an outgoing message which
+     * @param request       the query request to be sent to the GDS.
+     * @param prefetchPages the number of pages requested ahead of the consumer ({@code 0} to request the next page
+     *                      only when it is needed)
+     * @return the iterator over the pages of the query
+     * @throws IOException         if the message cannot be packed
+     * @throws ValidationException if any value constraints the restrictions in the structure of the header or the body.
      */
-    private CountDownLatch processOutgoingMessage(String messageID, MessageOperation messageOperation) throws IOException, ValidationException {
-        CountDownLatch countDownLatch = new CountDownLatch(1);
-        if (incomingCache.putIfAbsent(messageID, new Pair<>(countDownLatch, null)) != null) {
-            throw new IllegalStateException("There is already an outgoing message with the ID " + messageID + "!");
-        }
-        messageOperation.run();
-        return countDownLatch;
+    public QueryPages queryAllPages(MessageData10QueryRequest request, int prefetchPages)
+            throws IOException, ValidationException {
+        return asyncGDSClient.queryAllPages(request, prefetchPages);
     }
+    // </editor-fold>
 
     /**
-     * Awaits a general type of message, returning with the result. If timeout occurs, throws {@link GDSTimeoutException}.
-     *
-     * @param countDownLatch the CountDownLatch attached to the current message.
-     * @param messageID      the ID of the message the client is currently waiting for
-     * @return the header and the data for the given message
-     * @throws GDSTimeoutException  if the message does not arrive in time specified by {@link SyncGDSClient#timeout}
-     * @throws InterruptedException if the current thread gets interrupted
+     * Sends a WebSocket Ping message to the GDS.
      */
-    private Pair<MessageHeaderBase, MessageData> awaitMessage(CountDownLatch countDownLatch, String messageID) throws InterruptedException {
-        if (!countDownLatch.await(timeout, TimeUnit.MILLISECONDS)) {
-            incomingCache.remove(messageID);
-            throw new GDSTimeoutException("The GDS did not reply in time for the request with ID: " + messageID);
-        }
-        return incomingCache.remove(messageID).getSecond();
+    public void sendPingMessage() {
+        asyncGDSClient.sendPingMessage();
     }
 
     /**
-     * Awaits an event ACK message, returning with the result. If timeout occurs, throws {@link GDSTimeoutException}.
+     * Returns the number of the messages received that were not awaited by the client, typically the replies
+     * arriving after their request timed out. These messages are dropped.
      *
-     * @param countDownLatch the CountDownLatch attached to the current message.
-     * @param messageID      the ID of the message the client is currently waiting for
-     * @return the header and the data for the given message
-     * @throws GDSTimeoutException if the message does not arrive in time specified by {@link SyncGDSClient#timeout}
-     * @throws Error               if the current thread gets interrupted
+     * @return the number of the late (or unexpected) messages received since the client was created
      */
-    private EventResponse awaitEventACK3(CountDownLatch countDownLatch, String messageID) {
-        try {
-            Pair<MessageHeaderBase, MessageData> resultPair = awaitMessage(countDownLatch, messageID);
-            if (resultPair.getSecond().isEventAckMessageData3()) {
-                return new EventResponse(resultPair.getFirst(), resultPair.getSecond().asEventAckMessageData3());
-            } else {
-                String msg = "The type for the reply for the message with ID " + messageID + " is invalid.";
-                log.config(msg);
-                throw new IllegalStateException(msg);
-            }
-
-        } catch (InterruptedException e) {
-            incomingCache.remove(messageID);
-            log.severe(e.getMessage());
-            throw new Error(e);
-        }
+    public long getNumberOfLateResponses() {
+        return lateResponses.sum();
     }
 
-
     /**
-     * Awaits an attachment message, returning with the result. If timeout occurs, throws {@link GDSTimeoutException}.
+     * Returns the metrics of the underlying client. See {@link AsyncGDSClient#getMetrics()}.
      *
-     * @param countDownLatch the CountDownLatch attached to the current message.
-     * @param messageID      the ID of the message the client is currently waiting for
-     * @return the header and the data for the given message
-     * @throws GDSTimeoutException if the message does not arrive in time specified by {@link SyncGDSClient#timeout}
-     * @throws Error               if the current thread gets interrupted
+     * @return the metrics (updated live)
      */
-    private AttachmentResult awaitAttachment(CountDownLatch countDownLatch, String messageID) {
-        try {
-            Pair<MessageHeaderBase, MessageData> resultPair = awaitMessage(countDownLatch, messageID);
-            if (resultPair.getSecond().isAttachmentRequestAckMessageData5()) {
-                MessageData5AttachmentRequestAck messageData5 = resultPair.getSecond().asAttachmentRequestAckMessageData5();
-                if (messageData5.getData() == null || messageData5.getData().getResult().getAttachment() != null) {
-                    return new AttachmentResult(resultPair.getFirst(),
-                            Either.fromLeft(resultPair.getSecond().asAttachmentRequestAckMessageData5()));
-                } else {
-                    try {
-                        log.config("The incoming message with the ID " + messageID + " did not contain the attachment, " +
-                                "awaiting it from the GDS..");
-
-                        //we do not have to send anything at all as it's an incoming message without anything left
-                        // to send to the GDS.
-                        resultPair = awaitMessage(processOutgoingMessage(messageID, MessageOperation.SKIP), messageID);
-                        MessageData6AttachmentResponse attachmentResponse = (MessageData6AttachmentResponse) resultPair.getSecond();
-                        try {
-                            log.config("Sending attachment ACK for the received attachment response..");
-                            asyncGDSClient.sendAttachmentResponseAck7(messageID, MessageManager.createMessageData7AttachmentResponseAck(
-                                    AckStatus.OK,
-                                    new AttachmentResponseAckResultHolderImpl(AckStatus.CREATED,
-                                            new AttachmentResultHolderImpl(
-                                                    attachmentResponse.getResult().getRequestIds(),
-                                                    attachmentResponse.getResult().getOwnerTable(),
-                                                    attachmentResponse.getResult().getAttachmentId()
-                                            )),
-                                    null));
-                        } catch (IOException | ValidationException e) {
-                            //this should never happen as the message creation only contains valid values above.
-                            log.severe(e.toString());
-                        }
-                        return new AttachmentResult(resultPair.getFirst(), Either.fromRight(attachmentResponse));
-
-                    } catch (IOException | ValidationException e) {
-                        //this should never happen as our awaitMessage runnable is an empty statement
-                        //without any operations Therefore, it cannot throw these
-                        log.severe(e.toString());
-                        throw new Error("Unexpected error happened while waiting for the ACKResponse!", e);
-                    }
-                }
-            } else {
-                String msg = "The type for the reply for the message with ID " + messageID + " is invalid.";
-                log.config(msg);
-                throw new IllegalStateException(msg);
-            }
-
-        } catch (InterruptedException e) {
-            incomingCache.remove(messageID);
-            log.severe(e.getMessage());
-            throw new Error(e);
-        }
+    public ClientMetrics getMetrics() {
+        return asyncGDSClient.getMetrics();
     }
 
-    /**
-     * Awaits an event document ACK message, returning with the result. If timeout occurs, throws {@link GDSTimeoutException}.
-     *
-     * @param countDownLatch the CountDownLatch attached to the current message.
-     * @param messageID      the ID of the message the client is currently waiting for
-     * @return the header and the data for the given message
-     * @throws GDSTimeoutException if the message does not arrive in time specified by {@link SyncGDSClient#timeout}
-     * @throws Error               if the current thread gets interrupted
-     */
-    private EventDocumentResponse awaitEventDocumentACK9(CountDownLatch countDownLatch, String messageID) {
-        try {
-            Pair<MessageHeaderBase, MessageData> resultPair = awaitMessage(countDownLatch, messageID);
-            if (resultPair.getSecond().isEventDocumentAckMessageData9()) {
-                return new EventDocumentResponse(resultPair.getFirst(), resultPair.getSecond().asEventDocumentAckMessageData9());
-            } else {
-                String msg = "The type for the reply for the message with ID " + messageID + " is invalid.";
-                log.config(msg);
-                throw new IllegalStateException(msg);
-            }
-
-        } catch (InterruptedException e) {
-            incomingCache.remove(messageID);
-            log.severe(e.getMessage());
-            throw new Error(e);
-        }
-    }
 
     /**
-     * Awaits a query ACK message, returning with the result. If timeout occurs, throws {@link GDSTimeoutException}.
+     * Awaits the reply of a request sent by the underlying client. The deadline of the request is tracked by the
+     * timer of the pending requests (see {@link PendingRequests}), which completes the future with a
+     * {@link GDSTimeoutException}, so the calling thread does not have to wait with a timeout of its own.
      *
-     * @param countDownLatch the CountDownLatch attached to the current message.
-     * @param messageID      the ID of the message the client is currently waiting for
-     * @return the header and the data for the given message
-     * @throws GDSTimeoutException if the message does not arrive in time specified by {@link SyncGDSClient#timeout}
-     * @throws Error               if the current thread gets interrupted
+     * @param reply     the future of the reply
+     * @param messageID the ID of the message the client is currently waiting for
+     * @return the reply
+     * @throws GDSTimeoutException   if the message does not arrive in time specified by {@link SyncGDSClient#timeout}
+     * @throws IllegalStateException if the reply has an unexpected type or the connection was lost
+     * @throws Error                 if the current thread gets interrupted
      */
-    private QueryResponse awaitQueryACK11(CountDownLatch countDownLatch, String messageID) {
+    private <T> T awaitReply(CompletableFuture<T> reply, String messageID) {
         try {
-            Pair<MessageHeaderBase, MessageData> resultPair = awaitMessage(countDownLatch, messageID);
-            if (resultPair.getSecond().isQueryRequestAckMessageData11()) {
-                return new QueryResponse(resultPair.getFirst(), resultPair.getSecond().asQueryRequestAckMessageData11());
-            } else {
-                String msg = "The type for the reply for the message with ID " + messageID + " is invalid.";
-                log.config(msg);
-                throw new IllegalStateException(msg);
+            return reply.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
-
+            throw new IllegalStateException("Could not get the reply for the message with ID " + messageID + "!", cause);
         } catch (InterruptedException e) {
-            incomingCache.remove(messageID);
+            //the pending request is purged by its timeout
+            reply.cancel(false);
             log.severe(e.getMessage());
             throw new Error(e);
         }
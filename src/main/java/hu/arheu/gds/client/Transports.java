@@ -0,0 +1,116 @@
+package hu.arheu.gds.client;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.kqueue.KQueue;
+import io.netty.channel.kqueue.KQueueEventLoopGroup;
+import io.netty.channel.kqueue.KQueueSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Selects the Netty transport used by the clients.
+ * <p>
+ * The native transports of Netty use fewer system calls (and produce less garbage) than the NIO one, so they are
+ * preferred if available on the platform: io_uring (if the {@code netty-incubator-transport-native-io_uring} module is
+ * on the classpath and the kernel supports it), epoll on Linux and kqueue on macOS. The NIO transport is used
+ * everywhere else.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public final class Transports {
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    private Transports() {
+    }
+
+    /**
+     * Creates an event loop group of the best transport available, with the default number of threads of Netty
+     * (twice the number of the available processors).
+     *
+     * @return the new event loop group
+     */
+    public static EventLoopGroup newEventLoopGroup() {
+        return newEventLoopGroup(0);
+    }
+
+    /**
+     * Creates an event loop group of the best transport available.
+     *
+     * @param threads the number of threads, {@code 0} for the default of Netty
+     * @return the new event loop group
+     */
+    public static EventLoopGroup newEventLoopGroup(int threads) {
+        if (isIOUringAvailable()) {
+            try {
+                return (EventLoopGroup) Class.forName(IO_URING_PACKAGE + "IOUringEventLoopGroup")
+                        .getConstructor(int.class)
+                        .newInstance(threads);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //falls back to the next transport
+            }
+        }
+        if (Epoll.isAvailable()) {
+            return new EpollEventLoopGroup(threads);
+        }
+        if (KQueue.isAvailable()) {
+            return new KQueueEventLoopGroup(threads);
+        }
+        return new NioEventLoopGroup(threads);
+    }
+
+    /**
+     * Returns the socket channel class that can be used with the given event loop group. The groups of the
+     * io_uring, epoll, kqueue and NIO transports are recognized, any other group is assumed to support NIO channels.
+     *
+     * @param eventLoopGroup the event loop group
+     * @return the class of the client socket channels of the transport of the group
+     */
+    public static Class<? extends SocketChannel> socketChannelClass(EventLoopGroup eventLoopGroup) {
+        if (eventLoopGroup instanceof EpollEventLoopGroup) {
+            return EpollSocketChannel.class;
+        }
+        if (eventLoopGroup instanceof KQueueEventLoopGroup) {
+            return KQueueSocketChannel.class;
+        }
+        if (eventLoopGroup.getClass().getName().startsWith(IO_URING_PACKAGE)) {
+            try {
+                return Class.forName(IO_URING_PACKAGE + "IOUringSocketChannel").asSubclass(SocketChannel.class);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("The io_uring socket channel class cannot be loaded!", e);
+            }
+        }
+        return NioSocketChannel.class;
+    }
+
+    /**
+     * Returns the name of the transport of the given event loop group, for logging.
+     *
+     * @param eventLoopGroup the event loop group
+     * @return the name of the transport (e.g. "epoll")
+     */
+    public static String transportName(EventLoopGroup eventLoopGroup) {
+        Class<? extends SocketChannel> channelClass = socketChannelClass(eventLoopGroup);
+        if (channelClass == EpollSocketChannel.class) {
+            return "epoll";
+        }
+        if (channelClass == KQueueSocketChannel.class) {
+            return "kqueue";
+        }
+        if (channelClass == NioSocketChannel.class) {
+            return "nio";
+        }
+        return "io_uring";
+    }
+
+    private static boolean isIOUringAvailable() {
+        try {
+            return (Boolean) Class.forName(IO_URING_PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return false;
+        }
+    }
+}
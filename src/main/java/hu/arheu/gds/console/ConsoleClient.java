@@ -6,6 +6,7 @@
 
 package hu.arheu.gds.console;
 
+import hu.arheu.gds.client.QueryPages;
 import hu.arheu.gds.client.SyncGDSClient;
 import hu.arheu.gds.console.parser.ArgumentsHolder;
 import hu.arheu.gds.message.clienttypes.AttachmentResult;
@@ -15,21 +16,23 @@ import hu.arheu.gds.message.data.*;
 import hu.arheu.gds.message.data.impl.AckStatus;
 import hu.arheu.gds.message.errors.ValidationException;
 import hu.arheu.gds.message.header.MessageHeaderBase;
+import hu.arheu.gds.message.util.AttachmentSource;
+import hu.arheu.gds.message.util.EventMessageEncoder;
 import hu.arheu.gds.message.util.MessageManager;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.OutputStream;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 
 import static hu.arheu.gds.console.MessageType.QUERY_ALL;
 
 public class ConsoleClient implements Runnable, AutoCloseable {
 
+    private static final int QUERY_ALL_PREFETCHED_PAGES = 2;
+
     private final ArgumentsHolder argumentsHolder;
     private final SyncGDSClient syncGDSClient;
     private final Logger logger;
@@ -40,23 +43,17 @@ public class ConsoleClient implements Runnable, AutoCloseable {
         this.logger = logger;
     }
 
-    private static Map<String, byte[]> loadAttachments(List<File> files) {
-        Map<String, byte[]> binaries = new HashMap<>();
+    private static void addAttachments(EventMessageEncoder encoder, List<File> files) {
         if (files == null) {
-            return binaries;
+            return;
         }
         for (File file : files) {
             if (file.exists()) {
-                try {
-                    binaries.put(file.getName(), Files.readAllBytes(file.toPath()));
-                } catch (IOException e) {
-                    throw new IllegalArgumentException("Could not read the file '" + file.getName() + "'!");
-                }
+                encoder.addAttachment(file.getName(), AttachmentSource.of(file.toPath()));
             } else {
                 throw new IllegalArgumentException("The file named '" + file.getName() + "' does not exist!");
             }
         }
-        return binaries;
     }
 
 
@@ -77,10 +74,10 @@ public class ConsoleClient implements Runnable, AutoCloseable {
 
     private void sendEvent() {
         try {
-            EventResponse eventResponse = syncGDSClient.sendEvent2(MessageManager.createMessageData2Event(
-                    argumentsHolder.statement(),
-                    loadAttachments(argumentsHolder.files()),
-                    new ArrayList<>()));
+            EventMessageEncoder encoder = syncGDSClient.getEventEncoder()
+                    .addOperation(argumentsHolder.statement());
+            addAttachments(encoder, argumentsHolder.files());
+            EventResponse eventResponse = syncGDSClient.sendEvent2(encoder);
 
             exportResult(eventResponse.getHeader(), eventResponse.getData());
 
@@ -91,11 +88,15 @@ public class ConsoleClient implements Runnable, AutoCloseable {
 
 
     private void sendAttachmentRequest() {
+        File attachmentFile = null;
         try {
-            AttachmentResult attachmentResult =
-                    syncGDSClient.sendAttachmentRequest4(MessageManager.createMessageData4AttachmentRequest(
-                            argumentsHolder.statement()
-                    ));
+            attachmentFile = Utils.createAttachmentFile();
+            AttachmentResult attachmentResult;
+            try (OutputStream attachmentStream = new FileOutputStream(attachmentFile)) {
+                attachmentResult = syncGDSClient.sendAttachmentRequest4(MessageManager.createMessageData4AttachmentRequest(
+                        argumentsHolder.statement()
+                ), attachmentStream);
+            }
 
             MessageHeaderBase header = attachmentResult.getHeader();
             String messageId = header.getMessageId();
@@ -105,42 +106,46 @@ public class ConsoleClient implements Runnable, AutoCloseable {
                 exportResult(header, attachmentRequestAck);
                 if (attachmentRequestAck.getGlobalStatus().getValue() == 200) {
                     AttachmentResultHolder result = attachmentRequestAck.getData().getResult();
-                    Utils.saveAttachment(messageId, result.getAttachment(), result.getMeta());
+                    Utils.saveAttachment(messageId, attachmentFile, result.getMeta());
+                    attachmentFile = null;
                 }
             } else {
                 MessageData6AttachmentResponse attachmentResponse = attachmentResult.getDataAsAttachmentResponse();
                 exportResult(header, attachmentResponse);
                 AttachmentResultHolder result = attachmentResponse.getResult();
-                Utils.saveAttachment(messageId, result.getAttachment(), result.getMeta());
+                Utils.saveAttachment(messageId, attachmentFile, result.getMeta());
+                attachmentFile = null;
             }
         } catch (IllegalArgumentException | IOException | ValidationException iae) {
             logger.severe(iae.getMessage());
+        } finally {
+            if (attachmentFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                attachmentFile.delete();
+            }
         }
     }
 
     private void sendQuery() {
         try {
-
-            int counter = 0;
-            QueryResponse queryResponse = syncGDSClient.sendQueryRequest10(MessageManager.createMessageData10QueryRequest(
+            MessageData10QueryRequest request = MessageManager.createMessageData10QueryRequest(
                     argumentsHolder.statement(),
                     ConsistencyType.PAGES,
                     Long.valueOf(argumentsHolder.timeout())
-            ));
-
-            exportAndDisplayOnGUIifNeeded(++counter, queryResponse);
+            );
 
             if (argumentsHolder.messageType().equals(QUERY_ALL)) {
-                while (queryResponse.getData().getGlobalStatus() == AckStatus.OK &&
-                        queryResponse.getData().getQueryResponseHolder().getMorePage()) {
-                    queryResponse = syncGDSClient.sendNextQueryPage12(MessageManager.createMessageData12NextQueryPage(
-                            queryResponse.getData().getQueryResponseHolder().getQueryContextHolder(), Long.valueOf(argumentsHolder.timeout())));
-
-                    exportAndDisplayOnGUIifNeeded(++counter, queryResponse);
+                int counter = 0;
+                try (QueryPages pages = syncGDSClient.queryAllPages(request, QUERY_ALL_PREFETCHED_PAGES)) {
+                    while (pages.hasNext()) {
+                        exportAndDisplayOnGUIifNeeded(++counter, pages.next());
+                    }
                 }
+            } else {
+                exportAndDisplayOnGUIifNeeded(1, syncGDSClient.sendQueryRequest10(request));
             }
 
-        } catch (IllegalArgumentException | IOException | ValidationException iae) {
+        } catch (IllegalArgumentException | IllegalStateException | IOException | ValidationException iae) {
             logger.severe(iae.getMessage());
         }
     }
@@ -13,6 +13,9 @@ import org.apache.commons.csv.CSVPrinter;
 import org.msgpack.value.Value;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -113,8 +116,22 @@ public class Utils {
         outputStream.close();
     }
 
-    public static void saveAttachment(String messageId, byte[] attachment, String meta) throws IOException {
+    /**
+     * Creates a temporary file in the attachments folder that an attachment can be streamed into while it is received.
+     *
+     * @return the created file
+     * @throws IOException if the file cannot be created
+     */
+    public static File createAttachmentFile() throws IOException {
         createAttachmentsFolder();
+        return File.createTempFile("attachment-", ".part", new File(ATTACHMENTS_FOLDER_NAME));
+    }
+
+    /**
+     * Moves an attachment streamed into a file created by {@link #createAttachmentFile()} to its final name, based on
+     * the ID of the message and the MIME type in the meta of the attachment.
+     */
+    public static void saveAttachment(String messageId, File attachmentFile, String meta) throws IOException {
         String extension = "unknown";
         for (String entries : mimeExtensions.keySet()) {
             if (meta != null && meta.contains(entries)) {
@@ -122,8 +139,7 @@ public class Utils {
                 break;
             }
         }
-        OutputStream os = new FileOutputStream(ATTACHMENTS_FOLDER_NAME + "/" + messageId + "-attachment." + extension);
-        os.write(attachment);
-        os.close();
+        Files.move(attachmentFile.toPath(), Path.of(ATTACHMENTS_FOLDER_NAME, messageId + "-attachment." + extension),
+                StandardCopyOption.REPLACE_EXISTING);
     }
 }
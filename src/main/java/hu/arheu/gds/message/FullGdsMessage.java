@@ -1,5 +1,6 @@
 package hu.arheu.gds.message;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import hu.arheu.gds.message.data.MessageData;
 import hu.arheu.gds.message.data.impl.*;
 import hu.arheu.gds.message.errors.ReadException;
@@ -7,19 +8,28 @@ import hu.arheu.gds.message.errors.ValidationException;
 import hu.arheu.gds.message.errors.WriteException;
 import hu.arheu.gds.message.header.MessageHeaderBase;
 import hu.arheu.gds.message.header.impl.MessageHeaderBaseImpl;
+import hu.arheu.gds.message.util.ByteBufMessageBufferInput;
 import hu.arheu.gds.message.util.MessageManager;
 import hu.arheu.gds.message.util.ReaderHelper;
 import hu.arheu.gds.message.util.WriterHelper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePackException;
 import org.msgpack.core.MessageUnpacker;
 
 import java.io.Externalizable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
 
 public class FullGdsMessage extends MessagePart {
 
     private MessageHeaderBase header;
     private MessageData data;
+    private ByteBuf pendingData;
+    private MessageUnpacker pendingUnpacker;
 
 
     /**
@@ -37,6 +47,88 @@ public class FullGdsMessage extends MessagePart {
         deserialize(binary);
     }
 
+    /**
+     * Creates the message by unpacking it directly from the readable bytes of the given buffer (e.g. the content of
+     * an incoming WebSocket frame). The buffer is neither modified nor released, so the caller can release it once
+     * the constructor returns.
+     *
+     * @param binary the buffer containing the full message
+     * @throws ReadException if the message cannot be unpacked
+     */
+    public FullGdsMessage(ByteBuf binary) throws ReadException {
+        deserialize(binary);
+    }
+
+    /**
+     * Creates the message from the given binary. If {@code decodeDataLazily} is set, only the header is unpacked
+     * and the data part is kept as a slice of the binary, unpacked on the first {@link #getData()} call.
+     * This way the messages can be routed (or dropped) based on their header without decoding their content.
+     *
+     * @param binary           the binary containing the full message
+     * @param decodeDataLazily whether the data part should only be unpacked when it is first needed
+     * @throws ReadException if the message (or its header in lazy mode) cannot be unpacked
+     */
+    public FullGdsMessage(byte[] binary, boolean decodeDataLazily) throws ReadException {
+        if (decodeDataLazily) {
+            unpackHeaderLazily(Unpooled.wrappedBuffer(binary));
+        } else {
+            deserialize(binary);
+        }
+    }
+
+    /**
+     * Creates the message from the readable bytes of the given buffer. If {@code decodeDataLazily} is set, only the
+     * header is unpacked and the data part is kept as a slice of the buffer, unpacked on the first {@link #getData()}
+     * call. In that case the buffer is not copied, so it must not be released (or modified) until the data part
+     * is decoded, either by {@link #getData()} or {@link #decodeData()}.
+     *
+     * @param binary           the buffer containing the full message
+     * @param decodeDataLazily whether the data part should only be unpacked when it is first needed
+     * @throws ReadException if the message (or its header in lazy mode) cannot be unpacked
+     */
+    public FullGdsMessage(ByteBuf binary, boolean decodeDataLazily) throws ReadException {
+        if (decodeDataLazily) {
+            unpackHeaderLazily(binary);
+        } else {
+            deserialize(binary);
+        }
+    }
+
+    /**
+     * Creates the message from its header and its serialized data part (e.g. reassembled from the fragments of the
+     * message). The data part is unpacked on the first {@link #getData()} call, so the buffer must not be released
+     * (or modified) until the data part is decoded, either by {@link #getData()} or {@link #decodeData()}.
+     *
+     * @param header the header of the message
+     * @param data   the buffer containing the serialized data part
+     * @throws ReadException if the data type in the header is unknown
+     */
+    public FullGdsMessage(MessageHeaderBase header, ByteBuf data) throws ReadException {
+        this.header = header;
+        this.data = createData(header);
+        this.pendingData = data;
+    }
+
+    /**
+     * Creates the message by unpacking its header from the given unpacker, which is positioned at the beginning of
+     * the message (e.g. one reading the frames of a message as they arrive, see
+     * {@link hu.arheu.gds.message.util.ChainedByteBufMessageBufferInput}). The data part is unpacked from the same
+     * unpacker on the first {@link #getData()} call, so the unpacker must not be used (or closed) by the caller
+     * until the data part is decoded, either by {@link #getData()} or {@link #decodeData()}. The unpacker is closed
+     * once the data part is unpacked.
+     *
+     * @param unpacker the unpacker positioned at the message
+     * @throws ReadException if the header cannot be unpacked
+     */
+    public FullGdsMessage(MessageUnpacker unpacker) throws ReadException {
+        try {
+            unpackHeaderFrom(unpacker);
+        } catch (MessagePackException exc) {
+            throw new ReadException("Could not deserialize the message header!", exc);
+        }
+        this.pendingUnpacker = unpacker;
+    }
+
     @Override
     public int getNumberOfPublicElements() {
         return header.getNumberOfPublicElements() + 1;
@@ -46,11 +138,28 @@ public class FullGdsMessage extends MessagePart {
     public void packContentTo(MessageBufferPacker packer) throws WriteException {
         WriterHelper.packArrayHeader(packer, header.getNumberOfPublicElements() + 1);
         header.packContentTo(packer);
-        data.packContentTo(packer);
+        getData().packContentTo(packer);
     }
 
     @Override
     public void unpackContentFrom(MessageUnpacker unpacker) throws ReadException, ValidationException {
+        unpackHeaderFrom(unpacker);
+        data.unpackContentFrom(unpacker);
+        pendingData = null;
+        pendingUnpacker = null;
+    }
+
+    private void unpackHeaderLazily(ByteBuf binary) throws ReadException, ValidationException {
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new ByteBufMessageBufferInput(binary))) {
+            unpackHeaderFrom(unpacker);
+            int headerSize = (int) unpacker.getTotalReadBytes();
+            pendingData = binary.slice(binary.readerIndex() + headerSize, binary.readableBytes() - headerSize);
+        } catch (IOException exc) {
+            throw new ReadException("Could not deserialize the message header!", exc);
+        }
+    }
+
+    private void unpackHeaderFrom(MessageUnpacker unpacker) throws ReadException, ValidationException {
         int arraySize = ReaderHelper.unpackArrayHeader(unpacker);
         if (arraySize == MessageHeaderBase.NUMBER_OF_FIELDS + 1) {
             header = new MessageHeaderBaseImpl();
@@ -58,32 +167,135 @@ public class FullGdsMessage extends MessagePart {
             throw new ReadException("Unknown message format with an element count of " + arraySize);
         }
         header.unpackContentFrom(unpacker);
+        data = createData(header);
+    }
 
-        switch (header.getDataType()) {
-            case CONNECTION_0 -> data = new MessageData0ConnectionImpl();
-            case CONNECTION_ACK_1 -> data = new MessageData1ConnectionAckImpl();
-            case EVENT_2 -> data = new MessageData2EventImpl();
-            case EVENT_ACK_3 -> data = new MessageData3EventAckImpl();
-            case ATTACHMENT_REQUEST_4 -> data = new MessageData4AttachmentRequestImpl();
-            case ATTACHMENT_REQUEST_ACK_5 -> data = new MessageData5AttachmentRequestAckImpl();
-            case ATTACHMENT_RESPONSE_6 -> data = new MessageData6AttachmentResponseImpl();
-            case ATTACHMENT_RESPONSE_ACK_7 -> data = new MessageData7AttachmentResponseAckImpl();
-            case EVENT_DOCUMENT_8 -> data = new MessageData8EventDocumentImpl();
-            case EVENT_DOCUMENT_ACK_9 -> data = new MessageData9EventDocumentAckImpl();
-            case QUERY_REQUEST_10 -> data = new MessageData10QueryRequestImpl();
-            case QUERY_REQUEST_ACK_11 -> data = new MessageData11QueryRequestAckImpl();
-            case NEXT_QUERY_PAGE_12 -> data = new MessageData12NextQueryPageImpl();
+    private static MessageData createData(MessageHeaderBase header) throws ReadException {
+        return switch (header.getDataType()) {
+            case CONNECTION_0 -> new MessageData0ConnectionImpl();
+            case CONNECTION_ACK_1 -> new MessageData1ConnectionAckImpl();
+            case EVENT_2 -> new MessageData2EventImpl();
+            case EVENT_ACK_3 -> new MessageData3EventAckImpl();
+            case ATTACHMENT_REQUEST_4 -> new MessageData4AttachmentRequestImpl();
+            case ATTACHMENT_REQUEST_ACK_5 -> new MessageData5AttachmentRequestAckImpl();
+            case ATTACHMENT_RESPONSE_6 -> new MessageData6AttachmentResponseImpl();
+            case ATTACHMENT_RESPONSE_ACK_7 -> new MessageData7AttachmentResponseAckImpl();
+            case EVENT_DOCUMENT_8 -> new MessageData8EventDocumentImpl();
+            case EVENT_DOCUMENT_ACK_9 -> new MessageData9EventDocumentAckImpl();
+            case QUERY_REQUEST_10 -> new MessageData10QueryRequestImpl();
+            case QUERY_REQUEST_ACK_11 -> new MessageData11QueryRequestAckImpl();
+            case NEXT_QUERY_PAGE_12 -> new MessageData12NextQueryPageImpl();
             default -> throw new ReadException(String.format("%s: Unknown message data type (%s)",
                     MessageManager.class.getSimpleName(),
                     header.getDataType()));
+        };
+    }
+
+    /**
+     * Returns the part of the serialized data carried by this message, if it is a fragment of a message
+     * ({@link MessageHeaderBase#getIsFragmented()}) created lazily. The returned buffer is a slice of the binary the
+     * message was created from, see {@link #FullGdsMessage(ByteBuf, boolean)}.
+     *
+     * @return the binary chunk of the data part carried by the fragment
+     * @throws ReadException         if the data part is not a binary chunk
+     * @throws IllegalStateException if the message is not a lazily created fragment
+     */
+    @JsonIgnore
+    public ByteBuf getFragmentData() throws ReadException {
+        if (pendingData == null || !Boolean.TRUE.equals(header.getIsFragmented())) {
+            throw new IllegalStateException("The message is not a lazily created fragment!");
         }
-        data.unpackContentFrom(unpacker);
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new ByteBufMessageBufferInput(pendingData))) {
+            int length = unpacker.unpackBinaryHeader();
+            int headerSize = (int) unpacker.getTotalReadBytes();
+            if (headerSize + length > pendingData.readableBytes()) {
+                throw new ReadException("The fragment is shorter than its declared length!");
+            }
+            return pendingData.slice(pendingData.readerIndex() + headerSize, length);
+        } catch (IOException | MessagePackException exc) {
+            throw new ReadException("Could not deserialize the fragment data!", exc);
+        }
+    }
+
+    /**
+     * Unpacks the data part of the message if it was not unpacked yet (see the lazy constructors).
+     *
+     * @throws ReadException       if the data part cannot be unpacked
+     * @throws ValidationException if the unpacked data violates the class invariant
+     */
+    public void decodeData() throws ReadException, ValidationException {
+        if (pendingUnpacker != null) {
+            try (MessageUnpacker unpacker = pendingUnpacker) {
+                data.unpackContentFrom(unpacker);
+                pendingUnpacker = null;
+            } catch (IOException | MessagePackException exc) {
+                throw new ReadException("Could not deserialize the message data!", exc);
+            }
+            return;
+        }
+        if (pendingData == null) {
+            return;
+        }
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new ByteBufMessageBufferInput(pendingData))) {
+            data.unpackContentFrom(unpacker);
+            pendingData = null;
+        } catch (IOException exc) {
+            throw new ReadException("Could not deserialize the message data!", exc);
+        }
+    }
+
+    /**
+     * Unpacks the data part of the message if it was not unpacked yet, optionally unpacking the hits of a query
+     * response straight into a {@link hu.arheu.gds.message.data.ColumnarHits} view.
+     *
+     * @param decodeQueryHitsAsColumns whether the hits of a query response should be unpacked into columns
+     * @throws ReadException       if the data part cannot be unpacked
+     * @throws ValidationException if the unpacked data violates the class invariant
+     */
+    public void decodeData(boolean decodeQueryHitsAsColumns) throws ReadException, ValidationException {
+        if (!isDataDecoded() && decodeQueryHitsAsColumns && data instanceof MessageData11QueryRequestAckImpl) {
+            data = new MessageData11QueryRequestAckImpl(true);
+        }
+        decodeData();
+    }
+
+    /**
+     * Unpacks the data part of the message if it was not unpacked yet, optionally writing the attachment of an
+     * attachment request ACK or attachment response to the given sink instead of keeping it in memory (see
+     * {@link hu.arheu.gds.message.data.AttachmentResultHolder#getStreamedAttachmentSize()}).
+     *
+     * @param decodeQueryHitsAsColumns whether the hits of a query response should be unpacked into columns
+     * @param attachmentSink           the channel the attachment is written to, {@code null} to keep it in memory.
+     *                                 It is not closed here.
+     * @throws ReadException       if the data part cannot be unpacked (or the attachment cannot be written)
+     * @throws ValidationException if the unpacked data violates the class invariant
+     */
+    public void decodeData(boolean decodeQueryHitsAsColumns, WritableByteChannel attachmentSink)
+            throws ReadException, ValidationException {
+        if (!isDataDecoded() && attachmentSink != null) {
+            if (data instanceof MessageData5AttachmentRequestAckImpl) {
+                data = new MessageData5AttachmentRequestAckImpl(attachmentSink);
+            } else if (data instanceof MessageData6AttachmentResponseImpl) {
+                data = new MessageData6AttachmentResponseImpl(attachmentSink);
+            }
+        }
+        decodeData(decodeQueryHitsAsColumns);
+    }
+
+    /**
+     * Returns whether the data part of the message is already unpacked.
+     *
+     * @return false if the message was created lazily and its data was not yet needed, true otherwise
+     */
+    @JsonIgnore
+    public boolean isDataDecoded() {
+        return pendingData == null && pendingUnpacker == null;
     }
 
     @Override
     public void checkContent() throws ValidationException {
         header.checkContent();
-        data.checkContent();
+        getData().checkContent();
     }
 
     @Override
@@ -95,7 +307,18 @@ public class FullGdsMessage extends MessagePart {
         return header;
     }
 
+    /**
+     * Returns the data part of the message, unpacking it first if the message was created lazily.
+     *
+     * @return the data part of the message
+     * @throws IllegalStateException if the lazily kept data part cannot be unpacked
+     */
     public MessageData getData() {
+        try {
+            decodeData();
+        } catch (ReadException exc) {
+            throw new IllegalStateException("Could not deserialize the message data!", exc);
+        }
         return data;
     }
 
@@ -104,19 +327,19 @@ public class FullGdsMessage extends MessagePart {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FullGdsMessage message = (FullGdsMessage) o;
-        return Objects.equals(header, message.header) && Objects.equals(data, message.data);
+        return Objects.equals(header, message.header) && Objects.equals(getData(), message.getData());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(header, data);
+        return Objects.hash(header, getData());
     }
 
     @Override
     public String toString() {
         return "FullGdsMessage{" +
                 "header=" + header +
-                ", data=" + data +
+                ", data=" + getData() +
                 '}';
     }
 }
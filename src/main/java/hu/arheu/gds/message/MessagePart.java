@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import hu.arheu.gds.message.errors.ReadException;
 import hu.arheu.gds.message.errors.ValidationException;
 import hu.arheu.gds.message.errors.WriteException;
+import hu.arheu.gds.message.util.ByteBufMessageBufferInput;
 import hu.arheu.gds.message.util.GdsMessagePart;
+import io.netty.buffer.ByteBuf;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
 import org.msgpack.core.MessageUnpacker;
@@ -81,6 +83,22 @@ public abstract class MessagePart implements GdsMessagePart {
         }
     }
 
+    /**
+     * Unpacks the content of this object directly from the readable bytes of the given buffer, without copying them
+     * into an intermediate binary array. The indexes of the buffer are not modified and the buffer is not released.
+     *
+     * @param binary the buffer to unpack from
+     * @throws ReadException       if the content cannot be read from the buffer
+     * @throws ValidationException if the unpacked content violates the class invariant
+     */
+    protected final void deserialize(ByteBuf binary) throws ReadException, ValidationException {
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new ByteBufMessageBufferInput(binary))) {
+            unpackContentFrom(unpacker);
+            this.binary = null;
+        } catch (IOException exc) {
+            throw new ReadException("Could not deserialize the message!", exc);
+        }
+    }
 
     protected final byte[] serialize() {
         try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
@@ -30,6 +30,23 @@ public interface AttachmentResultHolder extends GdsMessagePart {
 
     byte[] getAttachment();
 
+    /**
+     * Returns the size of the attachment if it was written to a sink while the message was unpacked, in which case
+     * {@link #getAttachment()} returns {@code null}.
+     *
+     * @return the number of bytes written to the sink, {@code null} if the attachment was not streamed
+     */
+    default Long getStreamedAttachmentSize() {
+        return null;
+    }
+
+    /**
+     * @return whether the attachment was received, either in memory or written to a sink
+     */
+    default boolean hasAttachment() {
+        return getAttachment() != null || getStreamedAttachmentSize() != null;
+    }
+
     @Override
     default int getNumberOfPublicElements() {
         return 8;
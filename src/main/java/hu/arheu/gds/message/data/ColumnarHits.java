@@ -0,0 +1,106 @@
+package hu.arheu.gds.message.data;
+
+import org.msgpack.value.Value;
+
+import java.util.List;
+
+/**
+ * Column oriented, read-only view of the records of a query response ({@link QueryResponseHolder#getHits()}).
+ * <p>
+ * Fields of type {@link FieldValueType#INTEGER} and {@link FieldValueType#LONG} are stored in {@code long[]},
+ * {@link FieldValueType#DOUBLE} in {@code double[]} and {@link FieldValueType#BOOLEAN} in {@code boolean[]} columns
+ * with a separate null bitmap, while {@link FieldValueType#KEYWORD} and {@link FieldValueType#TEXT} values are kept as
+ * offset-indexed UTF-8 bytes (keywords are dictionary encoded). Other field types, and columns containing values not
+ * matching their declared type, are kept as MessagePack {@link Value}s.
+ * <p>
+ * The primitive getters return {@code 0}, {@code 0.0} or {@code false} for {@code null} values, use
+ * {@link #isNull(int, int)} to tell them apart.
+ */
+public interface ColumnarHits {
+
+    /**
+     * @return the descriptors of the columns, in the order of the columns
+     */
+    List<FieldHolder> getFieldHolders();
+
+    /**
+     * @return the number of records (rows)
+     */
+    int getNumberOfRows();
+
+    /**
+     * @return the number of fields (columns)
+     */
+    int getNumberOfColumns();
+
+    /**
+     * Returns the index of the column with the given field name.
+     *
+     * @param fieldName the name of the field
+     * @return the index of the column, or {@code -1} if there is no such field
+     */
+    int getColumnIndex(String fieldName);
+
+    /**
+     * @param row    the index of the row
+     * @param column the index of the column
+     * @return whether the value in the given cell is {@code null} (or is missing from the record)
+     */
+    boolean isNull(int row, int column);
+
+    /**
+     * @param row    the index of the row
+     * @param column the index of the column
+     * @return the value of the given cell as a {@code long}
+     * @throws org.msgpack.core.MessageTypeCastException if the value is not a number
+     */
+    long getLong(int row, int column);
+
+    /**
+     * @param row    the index of the row
+     * @param column the index of the column
+     * @return the value of the given cell as a {@code double}
+     * @throws org.msgpack.core.MessageTypeCastException if the value is not a number
+     */
+    double getDouble(int row, int column);
+
+    /**
+     * @param row    the index of the row
+     * @param column the index of the column
+     * @return the value of the given cell as a {@code boolean}
+     * @throws org.msgpack.core.MessageTypeCastException if the value is not a boolean
+     */
+    boolean getBoolean(int row, int column);
+
+    /**
+     * @param row    the index of the row
+     * @param column the index of the column
+     * @return the value of the given cell as a {@code String}, or {@code null}
+     * @throws org.msgpack.core.MessageTypeCastException if the value is not a string
+     */
+    String getString(int row, int column);
+
+    /**
+     * Returns the value of the given cell as a MessagePack {@link Value}, which is created on every call.
+     *
+     * @param row    the index of the row
+     * @param column the index of the column
+     * @return the value of the given cell, a nil value for {@code null}s
+     */
+    Value getValue(int row, int column);
+
+    /**
+     * Returns the given row in the representation used by {@link QueryResponseHolder#getHits()}.
+     *
+     * @param row the index of the row
+     * @return the values of the record, or {@code null} if the record itself was {@code null}
+     */
+    List<Value> getRow(int row);
+
+    /**
+     * Converts the columns back to the representation used by {@link QueryResponseHolder#getHits()}.
+     *
+     * @return the records as a list of value lists
+     */
+    List<List<Value>> toHits();
+}
@@ -1,6 +1,7 @@
 
 package hu.arheu.gds.message.data;
 
+import hu.arheu.gds.message.util.RecordSchema;
 import org.msgpack.value.Value;
 
 import java.util.List;
@@ -25,6 +26,27 @@ public interface MessageData8EventDocument extends MessageData {
 
     List<Map<String, Object>> getRecordsObjectMap();
 
+    /**
+     * Returns the records as read-only maps keyed by the field names. Unlike the (mutable) maps of
+     * {@link #getRecordsMap()}, the views only reference the values of {@link #getRecords()} through a
+     * {@link RecordSchema} shared by the records, so they cost a single object per record.
+     *
+     * @return the unmodifiable list of the read-only map views of the records
+     */
+    default List<Map<String, Value>> getRecordViews() {
+        return RecordSchema.of(getFieldHolders()).asMaps(getRecords());
+    }
+
+    /**
+     * Returns the records as read-only maps keyed by the field names, whose values are converted to plain Java types
+     * on the first access (see {@link RecordSchema#asObjectMap(List)}).
+     *
+     * @return the unmodifiable list of the read-only, converting map views of the records
+     */
+    default List<Map<String, Object>> getRecordObjectViews() {
+        return RecordSchema.of(getFieldHolders()).asObjectMaps(getRecords());
+    }
+
     @Override
     default MessageData8EventDocument asEventDocumentMessageData8() throws ClassCastException {
         return this;
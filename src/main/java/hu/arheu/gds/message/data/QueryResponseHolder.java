@@ -1,5 +1,6 @@
 package hu.arheu.gds.message.data;
 
+import hu.arheu.gds.message.data.impl.ColumnarHitsImpl;
 import hu.arheu.gds.message.util.GdsMessagePart;
 import org.msgpack.value.Value;
 
@@ -19,6 +20,16 @@ public interface QueryResponseHolder extends GdsMessagePart {
 
     List<List<Value>> getHits();
 
+    /**
+     * Returns the hits in a column oriented representation, with primitive arrays for the numeric and boolean
+     * fields and byte storage for the strings.
+     *
+     * @return the hits as columns, or {@code null} if there are no hits or field descriptors
+     */
+    default ColumnarHits getColumnarHits() {
+        return ColumnarHitsImpl.fromHits(getFieldHolders(), getHits());
+    }
+
     Long getNumberOfTotalHits();
 
     @Override
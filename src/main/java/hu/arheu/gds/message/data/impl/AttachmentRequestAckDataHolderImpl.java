@@ -14,6 +14,7 @@ import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.ValueType;
 
 import java.io.Externalizable;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
 
 public class AttachmentRequestAckDataHolderImpl extends MessagePart implements AttachmentRequestAckDataHolder {
@@ -21,12 +22,24 @@ public class AttachmentRequestAckDataHolderImpl extends MessagePart implements A
     private AttachmentResultHolder result;
     private Long remainedWaitTimeMillis;
 
+    //not part of the message
+    private WritableByteChannel attachmentSink;
+
     /**
      * Do not remove, as it's needed for the serialization through {@link Externalizable}
      */
     public AttachmentRequestAckDataHolderImpl() {
     }
 
+    /**
+     * Creates an empty instance to be unpacked.
+     *
+     * @param attachmentSink the channel the attachment is written to while unpacking, instead of keeping it in memory
+     */
+    public AttachmentRequestAckDataHolderImpl(WritableByteChannel attachmentSink) {
+        this.attachmentSink = attachmentSink;
+    }
+
     public AttachmentRequestAckDataHolderImpl(AckStatus status,
                                               AttachmentResultHolder result,
                                               Long remainedWaitTimeMillis) throws ValidationException {
@@ -87,6 +100,7 @@ public class AttachmentRequestAckDataHolderImpl extends MessagePart implements A
 
             result = new AttachmentResultHolderImpl();
             ((AttachmentResultHolderImpl) result).setType(AttachmentResultHolder.Type.ATTACHMENT_REQUEST_ACK);
+            ((AttachmentResultHolderImpl) result).setAttachmentSink(attachmentSink);
             result.unpackContentFrom(unpacker);
             remainedWaitTimeMillis = ReaderHelper.unpackLongValue(unpacker, "remained time millis",
                     AttachmentRequestAckDataHolderImpl.class.getSimpleName());
@@ -13,6 +13,7 @@ import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.ValueType;
 
 import java.io.Externalizable;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -32,6 +33,8 @@ public class AttachmentResultHolderImpl extends MessagePart implements Attachmen
 
     //not part of the message
     private AttachmentResultHolder.Type type;
+    private WritableByteChannel attachmentSink;
+    private Long streamedAttachmentSize;
 
 
     /**
@@ -128,6 +131,11 @@ public class AttachmentResultHolderImpl extends MessagePart implements Attachmen
         return attachment;
     }
 
+    @Override
+    public Long getStreamedAttachmentSize() {
+        return streamedAttachmentSize;
+    }
+
     private int getMapHeaderSize() {
         return (int) Stream.of(
                 requestIds,
@@ -222,8 +230,15 @@ public class AttachmentResultHolderImpl extends MessagePart implements Attachmen
                                 AttachmentResultHolderImpl.class.getSimpleName());
                         case "to_valid" -> toValid = ReaderHelper.unpackLongValue(unpacker, "to valid",
                                 AttachmentResultHolderImpl.class.getSimpleName());
-                        case "attachment" -> attachment = ReaderHelper.unpackBinary(unpacker, "attachment",
-                                AttachmentResultHolderImpl.class.getSimpleName());
+                        case "attachment" -> {
+                            if (attachmentSink != null) {
+                                streamedAttachmentSize = ReaderHelper.unpackBinaryTo(unpacker, attachmentSink,
+                                        "attachment", AttachmentResultHolderImpl.class.getSimpleName());
+                            } else {
+                                attachment = ReaderHelper.unpackBinary(unpacker, "attachment",
+                                        AttachmentResultHolderImpl.class.getSimpleName());
+                            }
+                        }
                         default -> throw new ReadException(
                                 String.format("Map key value [%s] does not match exptected value: " +
                                                 "[%s]/[%s]/[%s]/[%s]/[%s]/[%s]/[%s]/[%s]", key,
@@ -269,4 +284,13 @@ public class AttachmentResultHolderImpl extends MessagePart implements Attachmen
     public void setType(AttachmentResultHolder.Type type) {
         this.type = type;
     }
+
+    /**
+     * Sets the channel the attachment is written to while unpacking, instead of keeping it in memory.
+     *
+     * @param attachmentSink the channel receiving the attachment, {@code null} to keep it in memory
+     */
+    public void setAttachmentSink(WritableByteChannel attachmentSink) {
+        this.attachmentSink = attachmentSink;
+    }
 }
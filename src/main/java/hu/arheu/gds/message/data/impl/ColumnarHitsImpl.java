@@ -0,0 +1,795 @@
+package hu.arheu.gds.message.data.impl;
+
+import hu.arheu.gds.message.data.ColumnarHits;
+import hu.arheu.gds.message.data.FieldHolder;
+import hu.arheu.gds.message.data.FieldValueType;
+import hu.arheu.gds.message.errors.ReadException;
+import hu.arheu.gds.message.errors.WriteException;
+import hu.arheu.gds.message.util.ReaderHelper;
+import hu.arheu.gds.message.util.WriterHelper;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessageFormat;
+import org.msgpack.core.MessageUnpacker;
+import org.msgpack.value.Value;
+import org.msgpack.value.ValueFactory;
+import org.msgpack.value.ValueType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The default {@link ColumnarHits} implementation.
+ * It can be unpacked directly from the records array of a query response, the primitive and string values are read
+ * into the columns without creating {@link Value} instances for them.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public class ColumnarHitsImpl implements ColumnarHits {
+
+    private final List<FieldHolder> fieldHolders;
+    private final int numberOfRows;
+    private final Column[] columns;
+
+    //records that are null or whose size does not match the number of fields, normally not present
+    private BitSet nullRows;
+    private Map<Integer, List<Value>> irregularRows;
+
+    private Map<String, Integer> columnIndexes;
+
+    private ColumnarHitsImpl(List<FieldHolder> fieldHolders, int numberOfRows) {
+        this.fieldHolders = Collections.unmodifiableList(new ArrayList<>(fieldHolders));
+        this.numberOfRows = numberOfRows;
+        this.columns = new Column[fieldHolders.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Column.create(fieldHolders.get(i).getFieldType(), numberOfRows);
+        }
+    }
+
+    /**
+     * Unpacks the records array of a query response (the representation of {@link
+     * hu.arheu.gds.message.data.QueryResponseHolder#getHits()}) into columns.
+     *
+     * @param unpacker     the unpacker positioned at the records array
+     * @param fieldHolders the descriptors of the fields of the records
+     * @param className    the name of the class used in the error messages
+     * @return the unpacked columns, or {@code null} if the records array is nil
+     * @throws ReadException if the records cannot be unpacked
+     */
+    public static ColumnarHitsImpl unpack(MessageUnpacker unpacker,
+                                          List<FieldHolder> fieldHolders,
+                                          String className) throws ReadException {
+
+        if (ReaderHelper.nextExpectedValueTypeIsNil(unpacker, ValueType.ARRAY, "records", className)) {
+            ReaderHelper.unpackNil(unpacker);
+            return null;
+        }
+
+        int rows = ReaderHelper.unpackArrayHeader(unpacker, null, "record", className);
+        ColumnarHitsImpl hits = new ColumnarHitsImpl(fieldHolders, rows);
+        for (int row = 0; row < rows; row++) {
+            hits.unpackRow(unpacker, row, className);
+        }
+        return hits;
+    }
+
+    /**
+     * Creates the columnar representation of already unpacked records.
+     *
+     * @param fieldHolders the descriptors of the fields of the records
+     * @param hits         the records
+     * @return the records in columns, or {@code null} if either parameter is {@code null}
+     */
+    public static ColumnarHitsImpl fromHits(List<FieldHolder> fieldHolders, List<List<Value>> hits) {
+        if (fieldHolders == null || hits == null) {
+            return null;
+        }
+        ColumnarHitsImpl result = new ColumnarHitsImpl(fieldHolders, hits.size());
+        for (int row = 0; row < hits.size(); row++) {
+            List<Value> record = hits.get(row);
+            if (record == null) {
+                result.setNullRow(row);
+            } else if (record.size() != result.columns.length) {
+                result.setIrregularRow(row, record);
+            } else {
+                for (int column = 0; column < result.columns.length; column++) {
+                    result.columns[column] = result.columns[column].set(row, record.get(column));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void unpackRow(MessageUnpacker unpacker, int row, String className) throws ReadException {
+        if (ReaderHelper.nextExpectedValueTypeIsNil(unpacker, ValueType.ARRAY, "record", className)) {
+            ReaderHelper.unpackNil(unpacker);
+            setNullRow(row);
+            return;
+        }
+
+        int size = ReaderHelper.unpackArrayHeader(unpacker, null, "record", className);
+        if (size != columns.length) {
+            List<Value> record = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                record.add(ReaderHelper.unpackValue(unpacker, "fieldvalue", className));
+            }
+            setIrregularRow(row, record);
+            return;
+        }
+
+        try {
+            for (int column = 0; column < columns.length; column++) {
+                columns[column] = columns[column].unpack(unpacker, row);
+            }
+        } catch (IOException e) {
+            throw new ReadException(
+                    String.format("%s: Exception message: %s. Field name: %s", className, e, "fieldvalue"));
+        }
+    }
+
+    private void setNullRow(int row) {
+        if (nullRows == null) {
+            nullRows = new BitSet();
+        }
+        nullRows.set(row);
+        for (Column column : columns) {
+            column.setNull(row);
+        }
+    }
+
+    private void setIrregularRow(int row, List<Value> record) {
+        if (irregularRows == null) {
+            irregularRows = new HashMap<>();
+        }
+        irregularRows.put(row, record);
+        for (Column column : columns) {
+            column.setNull(row);
+        }
+    }
+
+    private List<Value> getIrregularRow(int row) {
+        return irregularRows == null ? null : irregularRows.get(row);
+    }
+
+    private boolean isNullRow(int row) {
+        return nullRows != null && nullRows.get(row);
+    }
+
+    private Value getIrregularValue(List<Value> record, int column) {
+        Objects.checkIndex(column, columns.length);
+        return column < record.size() ? record.get(column) : null;
+    }
+
+    private void checkRow(int row) {
+        Objects.checkIndex(row, numberOfRows);
+    }
+
+    @Override
+    public List<FieldHolder> getFieldHolders() {
+        return fieldHolders;
+    }
+
+    @Override
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    @Override
+    public int getNumberOfColumns() {
+        return columns.length;
+    }
+
+    @Override
+    public int getColumnIndex(String fieldName) {
+        Map<String, Integer> indexes = columnIndexes;
+        if (indexes == null) {
+            indexes = new HashMap<>();
+            for (int i = 0; i < fieldHolders.size(); i++) {
+                indexes.putIfAbsent(fieldHolders.get(i).getFieldName(), i);
+            }
+            columnIndexes = indexes;
+        }
+        return indexes.getOrDefault(fieldName, -1);
+    }
+
+    @Override
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        List<Value> record = getIrregularRow(row);
+        if (record != null) {
+            Value value = getIrregularValue(record, column);
+            return value == null || value.isNilValue();
+        }
+        return isNullRow(row) || columns[column].isNull(row);
+    }
+
+    @Override
+    public long getLong(int row, int column) {
+        if (isNull(row, column)) {
+            return 0L;
+        }
+        List<Value> record = getIrregularRow(row);
+        return record != null
+                ? getIrregularValue(record, column).asNumberValue().toLong()
+                : columns[column].getLong(row);
+    }
+
+    @Override
+    public double getDouble(int row, int column) {
+        if (isNull(row, column)) {
+            return 0.0;
+        }
+        List<Value> record = getIrregularRow(row);
+        return record != null
+                ? getIrregularValue(record, column).asNumberValue().toDouble()
+                : columns[column].getDouble(row);
+    }
+
+    @Override
+    public boolean getBoolean(int row, int column) {
+        if (isNull(row, column)) {
+            return false;
+        }
+        List<Value> record = getIrregularRow(row);
+        return record != null
+                ? getIrregularValue(record, column).asBooleanValue().getBoolean()
+                : columns[column].getBoolean(row);
+    }
+
+    @Override
+    public String getString(int row, int column) {
+        if (isNull(row, column)) {
+            return null;
+        }
+        List<Value> record = getIrregularRow(row);
+        return record != null
+                ? getIrregularValue(record, column).asStringValue().asString()
+                : columns[column].getString(row);
+    }
+
+    @Override
+    public Value getValue(int row, int column) {
+        if (isNull(row, column)) {
+            return ValueFactory.newNil();
+        }
+        List<Value> record = getIrregularRow(row);
+        return record != null ? getIrregularValue(record, column) : columns[column].getValue(row);
+    }
+
+    @Override
+    public List<Value> getRow(int row) {
+        checkRow(row);
+        if (isNullRow(row)) {
+            return null;
+        }
+        List<Value> record = getIrregularRow(row);
+        if (record != null) {
+            return new ArrayList<>(record);
+        }
+        List<Value> values = new ArrayList<>(columns.length);
+        for (int column = 0; column < columns.length; column++) {
+            values.add(getValue(row, column));
+        }
+        return values;
+    }
+
+    @Override
+    public List<List<Value>> toHits() {
+        List<List<Value>> hits = new ArrayList<>(numberOfRows);
+        for (int row = 0; row < numberOfRows; row++) {
+            hits.add(getRow(row));
+        }
+        return hits;
+    }
+
+    /**
+     * Packs the records in the same format as {@link WriterHelper#packValueListListValues(MessageBufferPacker, List)}
+     * would pack the result of {@link #toHits()}, without converting the columns back to values.
+     *
+     * @param packer the packer to write to
+     * @throws WriteException if the records cannot be packed
+     */
+    public void packContentTo(MessageBufferPacker packer) throws WriteException {
+        WriterHelper.packArrayHeader(packer, numberOfRows);
+        try {
+            for (int row = 0; row < numberOfRows; row++) {
+                if (isNullRow(row)) {
+                    packer.packNil();
+                    continue;
+                }
+                List<Value> record = getIrregularRow(row);
+                if (record != null) {
+                    WriterHelper.packValueCollection(packer, record);
+                    continue;
+                }
+                packer.packArrayHeader(columns.length);
+                for (Column column : columns) {
+                    if (column.isNull(row)) {
+                        packer.packNil();
+                    } else {
+                        column.pack(packer, row);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new WriteException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ColumnarHitsImpl that = (ColumnarHitsImpl) o;
+        return Objects.equals(fieldHolders, that.fieldHolders) && Objects.equals(toHits(), that.toHits());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fieldHolders, toHits());
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarHitsImpl{" +
+                "fieldHolders=" + fieldHolders +
+                ", numberOfRows=" + numberOfRows +
+                '}';
+    }
+
+    /**
+     * A single column of the records. Typed columns replace themselves with a {@link ValueColumn} (returned from
+     * {@link #unpack(MessageUnpacker, int)} and {@link #set(int, Value)}) when they meet a value they cannot store.
+     */
+    private abstract static class Column {
+
+        final int size;
+        private BitSet nulls;
+
+        Column(int size) {
+            this.size = size;
+        }
+
+        static Column create(FieldValueType type, int size) {
+            if (type == null) {
+                return new ValueColumn(size);
+            }
+            return switch (type) {
+                case INTEGER, LONG -> new LongColumn(size);
+                case DOUBLE -> new DoubleColumn(size);
+                case BOOLEAN -> new BooleanColumn(size);
+                case KEYWORD -> new StringColumn(size, true);
+                case TEXT -> new StringColumn(size, false);
+                default -> new ValueColumn(size);
+            };
+        }
+
+        boolean isNull(int row) {
+            return nulls != null && nulls.get(row);
+        }
+
+        void setNull(int row) {
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            nulls.set(row);
+        }
+
+        /**
+         * Unpacks the next value into the given row.
+         *
+         * @return the column holding the value, which is a new {@link ValueColumn} if this one cannot store it
+         */
+        abstract Column unpack(MessageUnpacker unpacker, int row) throws IOException;
+
+        abstract Column set(int row, Value value);
+
+        /**
+         * Only called for non-null cells.
+         */
+        abstract Value getValue(int row);
+
+        /**
+         * Only called for non-null cells.
+         */
+        abstract void pack(MessageBufferPacker packer, int row) throws IOException;
+
+        long getLong(int row) {
+            return getValue(row).asNumberValue().toLong();
+        }
+
+        double getDouble(int row) {
+            return getValue(row).asNumberValue().toDouble();
+        }
+
+        boolean getBoolean(int row) {
+            return getValue(row).asBooleanValue().getBoolean();
+        }
+
+        String getString(int row) {
+            return getValue(row).asStringValue().asString();
+        }
+
+        ValueColumn toValueColumn(int filledRows) {
+            ValueColumn column = new ValueColumn(size);
+            for (int row = 0; row < filledRows; row++) {
+                if (!isNull(row)) {
+                    column.values[row] = getValue(row);
+                }
+            }
+            return column;
+        }
+
+        static boolean isNil(Value value) {
+            return value == null || value.isNilValue();
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private final long[] values;
+
+        LongColumn(int size) {
+            super(size);
+            this.values = new long[size];
+        }
+
+        @Override
+        Column unpack(MessageUnpacker unpacker, int row) throws IOException {
+            MessageFormat format = unpacker.getNextFormat();
+            if (format == MessageFormat.NIL) {
+                unpacker.unpackNil();
+                setNull(row);
+                return this;
+            }
+            if (format.getValueType() != ValueType.INTEGER || format == MessageFormat.UINT64) {
+                return toValueColumn(row).unpack(unpacker, row);
+            }
+            values[row] = unpacker.unpackLong();
+            return this;
+        }
+
+        @Override
+        Column set(int row, Value value) {
+            if (isNil(value)) {
+                setNull(row);
+                return this;
+            }
+            if (!value.isIntegerValue() || !value.asIntegerValue().isInLongRange()) {
+                return toValueColumn(row).set(row, value);
+            }
+            values[row] = value.asIntegerValue().toLong();
+            return this;
+        }
+
+        @Override
+        Value getValue(int row) {
+            return ValueFactory.newInteger(values[row]);
+        }
+
+        @Override
+        void pack(MessageBufferPacker packer, int row) throws IOException {
+            packer.packLong(values[row]);
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        DoubleColumn(int size) {
+            super(size);
+            this.values = new double[size];
+        }
+
+        @Override
+        Column unpack(MessageUnpacker unpacker, int row) throws IOException {
+            MessageFormat format = unpacker.getNextFormat();
+            if (format == MessageFormat.NIL) {
+                unpacker.unpackNil();
+                setNull(row);
+                return this;
+            }
+            if (format.getValueType() != ValueType.FLOAT) {
+                return toValueColumn(row).unpack(unpacker, row);
+            }
+            values[row] = unpacker.unpackDouble();
+            return this;
+        }
+
+        @Override
+        Column set(int row, Value value) {
+            if (isNil(value)) {
+                setNull(row);
+                return this;
+            }
+            if (!value.isFloatValue()) {
+                return toValueColumn(row).set(row, value);
+            }
+            values[row] = value.asFloatValue().toDouble();
+            return this;
+        }
+
+        @Override
+        Value getValue(int row) {
+            return ValueFactory.newFloat(values[row]);
+        }
+
+        @Override
+        void pack(MessageBufferPacker packer, int row) throws IOException {
+            packer.packDouble(values[row]);
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        private final boolean[] values;
+
+        BooleanColumn(int size) {
+            super(size);
+            this.values = new boolean[size];
+        }
+
+        @Override
+        Column unpack(MessageUnpacker unpacker, int row) throws IOException {
+            MessageFormat format = unpacker.getNextFormat();
+            if (format == MessageFormat.NIL) {
+                unpacker.unpackNil();
+                setNull(row);
+                return this;
+            }
+            if (format != MessageFormat.BOOLEAN) {
+                return toValueColumn(row).unpack(unpacker, row);
+            }
+            values[row] = unpacker.unpackBoolean();
+            return this;
+        }
+
+        @Override
+        Column set(int row, Value value) {
+            if (isNil(value)) {
+                setNull(row);
+                return this;
+            }
+            if (!value.isBooleanValue()) {
+                return toValueColumn(row).set(row, value);
+            }
+            values[row] = value.asBooleanValue().getBoolean();
+            return this;
+        }
+
+        @Override
+        Value getValue(int row) {
+            return ValueFactory.newBoolean(values[row]);
+        }
+
+        @Override
+        void pack(MessageBufferPacker packer, int row) throws IOException {
+            packer.packBoolean(values[row]);
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Keeps the UTF-8 bytes of the strings in a single array, rows point to (offset, length) entries of it.
+     * Dictionary encoded columns store every distinct value only once, which suits low cardinality keyword fields.
+     */
+    private static final class StringColumn extends Column {
+
+        private static final int MIN_DATA_CAPACITY = 64;
+        private static final int MIN_DICTIONARY_SIZE = 16;
+
+        private final int[] rowEntries;
+        private final boolean dictionaryEncoded;
+
+        private byte[] data;
+        private int dataLength;
+        private int[] entryOffsets;
+        private int[] entryLengths;
+        private int entries;
+
+        //open addressing hash table of entry indexes + 1, 0 denotes an empty slot
+        private int[] dictionary;
+
+        StringColumn(int size, boolean dictionaryEncoded) {
+            super(size);
+            this.rowEntries = new int[size];
+            this.dictionaryEncoded = dictionaryEncoded;
+            this.data = new byte[Math.max(MIN_DATA_CAPACITY, size * 8)];
+            int initialEntries = dictionaryEncoded ? Math.min(size, MIN_DICTIONARY_SIZE) : size;
+            this.entryOffsets = new int[initialEntries];
+            this.entryLengths = new int[initialEntries];
+            if (dictionaryEncoded) {
+                this.dictionary = new int[MIN_DICTIONARY_SIZE * 2];
+            }
+        }
+
+        @Override
+        Column unpack(MessageUnpacker unpacker, int row) throws IOException {
+            MessageFormat format = unpacker.getNextFormat();
+            if (format == MessageFormat.NIL) {
+                unpacker.unpackNil();
+                setNull(row);
+                return this;
+            }
+            if (format.getValueType() != ValueType.STRING) {
+                return toValueColumn(row).unpack(unpacker, row);
+            }
+            int length = unpacker.unpackRawStringHeader();
+            ensureDataCapacity(length);
+            unpacker.readPayload(data, dataLength, length);
+            rowEntries[row] = addEntry(length);
+            return this;
+        }
+
+        @Override
+        Column set(int row, Value value) {
+            if (isNil(value)) {
+                setNull(row);
+                return this;
+            }
+            if (!value.isStringValue()) {
+                return toValueColumn(row).set(row, value);
+            }
+            byte[] bytes = value.asStringValue().asByteArray();
+            ensureDataCapacity(bytes.length);
+            System.arraycopy(bytes, 0, data, dataLength, bytes.length);
+            rowEntries[row] = addEntry(bytes.length);
+            return this;
+        }
+
+        private void ensureDataCapacity(int length) {
+            if (data.length - dataLength < length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + length));
+            }
+        }
+
+        /**
+         * Registers the bytes written after the current end of the data as an entry
+         * (or finds the equal entry in the dictionary).
+         */
+        private int addEntry(int length) {
+            if (!dictionaryEncoded) {
+                return newEntry(length);
+            }
+            int mask = dictionary.length - 1;
+            for (int slot = hash(dataLength, length) & mask; ; slot = (slot + 1) & mask) {
+                int candidate = dictionary[slot] - 1;
+                if (candidate < 0) {
+                    int entry = newEntry(length);
+                    dictionary[slot] = entry + 1;
+                    if (entries * 2 > dictionary.length) {
+                        rehash();
+                    }
+                    return entry;
+                }
+                int offset = entryOffsets[candidate];
+                if (entryLengths[candidate] == length
+                        && Arrays.equals(data, offset, offset + length, data, dataLength, dataLength + length)) {
+                    return candidate;
+                }
+            }
+        }
+
+        private int newEntry(int length) {
+            if (entries == entryOffsets.length) {
+                int capacity = Math.max(entries * 2, MIN_DICTIONARY_SIZE);
+                entryOffsets = Arrays.copyOf(entryOffsets, capacity);
+                entryLengths = Arrays.copyOf(entryLengths, capacity);
+            }
+            entryOffsets[entries] = dataLength;
+            entryLengths[entries] = length;
+            dataLength += length;
+            return entries++;
+        }
+
+        private void rehash() {
+            int[] table = new int[dictionary.length * 2];
+            int mask = table.length - 1;
+            for (int entry = 0; entry < entries; entry++) {
+                int slot = hash(entryOffsets[entry], entryLengths[entry]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = entry + 1;
+            }
+            dictionary = table;
+        }
+
+        private int hash(int offset, int length) {
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + data[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        @Override
+        Value getValue(int row) {
+            int entry = rowEntries[row];
+            int offset = entryOffsets[entry];
+            return ValueFactory.newString(Arrays.copyOfRange(data, offset, offset + entryLengths[entry]), true);
+        }
+
+        @Override
+        void pack(MessageBufferPacker packer, int row) throws IOException {
+            int entry = rowEntries[row];
+            packer.packRawStringHeader(entryLengths[entry]);
+            packer.writePayload(data, entryOffsets[entry], entryLengths[entry]);
+        }
+
+        @Override
+        String getString(int row) {
+            int entry = rowEntries[row];
+            return new String(data, entryOffsets[entry], entryLengths[entry], StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Fallback column keeping the values as they are.
+     */
+    private static final class ValueColumn extends Column {
+
+        private final Value[] values;
+
+        ValueColumn(int size) {
+            super(size);
+            this.values = new Value[size];
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return isNil(values[row]);
+        }
+
+        @Override
+        void setNull(int row) {
+            values[row] = null;
+        }
+
+        @Override
+        Column unpack(MessageUnpacker unpacker, int row) throws IOException {
+            values[row] = unpacker.unpackValue();
+            return this;
+        }
+
+        @Override
+        Column set(int row, Value value) {
+            values[row] = value;
+            return this;
+        }
+
+        @Override
+        Value getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void pack(MessageBufferPacker packer, int row) throws IOException {
+            packer.packValue(values[row]);
+        }
+    }
+}
@@ -24,6 +24,9 @@ public class MessageData11QueryRequestAckImpl extends MessagePart implements Mes
     private QueryResponseHolder queryResponseHolder;
     private String globalException;
 
+    //not serialized
+    private boolean decodeHitsAsColumns;
+
 
     /**
      * Do not remove, as it's needed for the serialization through {@link Externalizable}
@@ -31,6 +34,16 @@ public class MessageData11QueryRequestAckImpl extends MessagePart implements Mes
     public MessageData11QueryRequestAckImpl() {
     }
 
+    /**
+     * Creates an empty instance to be unpacked.
+     *
+     * @param decodeHitsAsColumns whether the hits of the response should be unpacked straight into a
+     *                            {@link hu.arheu.gds.message.data.ColumnarHits} view
+     */
+    public MessageData11QueryRequestAckImpl(boolean decodeHitsAsColumns) {
+        this.decodeHitsAsColumns = decodeHitsAsColumns;
+    }
+
     public MessageData11QueryRequestAckImpl(AckStatus globalStatus,
                                             QueryResponseHolder queryResponseHolder,
                                             String globalException) throws ValidationException {
@@ -81,7 +94,7 @@ public class MessageData11QueryRequestAckImpl extends MessagePart implements Mes
             this.globalStatus = AckStatus.valueOf(ReaderHelper.unpackIntegerValue(unpacker, "global status",
                     this.getClass().getSimpleName()));
 
-            this.queryResponseHolder = new QueryResponseHolderImpl();
+            this.queryResponseHolder = new QueryResponseHolderImpl(decodeHitsAsColumns);
             this.queryResponseHolder.unpackContentFrom(unpacker);
 
             this.globalException = ReaderHelper.unpackStringValue(unpacker, "global exception",
@@ -16,6 +16,7 @@ import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.ValueType;
 
 import java.io.Externalizable;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
 
 
@@ -25,6 +26,9 @@ public class MessageData5AttachmentRequestAckImpl extends MessagePart implements
     private AttachmentRequestAckDataHolder data;
     private String globalException;
 
+    //not part of the message
+    private WritableByteChannel attachmentSink;
+
     public MessageData5AttachmentRequestAckImpl(AckStatus globalStatus,
                                                 AttachmentRequestAckDataHolder data,
                                                 String globalException) throws ValidationException {
@@ -42,6 +46,15 @@ public class MessageData5AttachmentRequestAckImpl extends MessagePart implements
     public MessageData5AttachmentRequestAckImpl() {
     }
 
+    /**
+     * Creates an empty instance to be unpacked.
+     *
+     * @param attachmentSink the channel the attachment is written to while unpacking, instead of keeping it in memory
+     */
+    public MessageData5AttachmentRequestAckImpl(WritableByteChannel attachmentSink) {
+        this.attachmentSink = attachmentSink;
+    }
+
     public MessageData5AttachmentRequestAckImpl(byte[] binary) throws ReadException, ValidationException {
         deserialize(binary);
     }
@@ -94,7 +107,7 @@ public class MessageData5AttachmentRequestAckImpl extends MessagePart implements
                     this.getClass().getSimpleName());
             this.globalStatus = AckStatus.valueOf(ReaderHelper.unpackIntegerValue(unpacker, "global status",
                     this.getClass().getSimpleName()));
-            this.data = new AttachmentRequestAckDataHolderImpl();
+            this.data = new AttachmentRequestAckDataHolderImpl(attachmentSink);
             this.data.unpackContentFrom(unpacker);
             this.globalException = ReaderHelper.unpackStringValue(unpacker, "global exception",
                     this.getClass().getSimpleName());
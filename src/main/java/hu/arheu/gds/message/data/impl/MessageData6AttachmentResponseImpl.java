@@ -16,6 +16,7 @@ import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.ValueType;
 
 import java.io.Externalizable;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
 
 
@@ -24,6 +25,9 @@ public class MessageData6AttachmentResponseImpl extends MessagePart implements M
     private AttachmentResultHolder result;
     private EventHolder eventHolder;
 
+    //not part of the message
+    private WritableByteChannel attachmentSink;
+
 
     /**
      * Do not remove, as it's needed for the serialization through {@link Externalizable}
@@ -31,6 +35,15 @@ public class MessageData6AttachmentResponseImpl extends MessagePart implements M
     public MessageData6AttachmentResponseImpl() {
     }
 
+    /**
+     * Creates an empty instance to be unpacked.
+     *
+     * @param attachmentSink the channel the attachment is written to while unpacking, instead of keeping it in memory
+     */
+    public MessageData6AttachmentResponseImpl(WritableByteChannel attachmentSink) {
+        this.attachmentSink = attachmentSink;
+    }
+
     public MessageData6AttachmentResponseImpl(AttachmentResultHolder result,
                                               EventHolder eventHolder) throws ValidationException {
 
@@ -87,6 +100,7 @@ public class MessageData6AttachmentResponseImpl extends MessagePart implements M
 
             this.result = new AttachmentResultHolderImpl();
             ((AttachmentResultHolderImpl) result).setType(AttachmentResultHolder.Type.ATTACHMENT_RESPONSE);
+            ((AttachmentResultHolderImpl) result).setAttachmentSink(attachmentSink);
             result.unpackContentFrom(unpacker);
             if (!ReaderHelper.isNextNil(unpacker)) {
                 this.eventHolder = new EventHolderImpl();
@@ -8,6 +8,7 @@ import hu.arheu.gds.message.errors.ReadException;
 import hu.arheu.gds.message.errors.ValidationException;
 import hu.arheu.gds.message.errors.WriteException;
 import hu.arheu.gds.message.util.ReaderHelper;
+import hu.arheu.gds.message.util.RecordSchema;
 import hu.arheu.gds.message.util.Validator;
 import hu.arheu.gds.message.util.WriterHelper;
 import org.msgpack.core.MessageBufferPacker;
@@ -30,6 +31,9 @@ public class MessageData8EventDocumentImpl extends MessagePart implements Messag
     private List<List<Object>> recordsObject;
     private List<Map<String, Value>> recordsMap;
     private List<Map<String, Object>> recordsObjectMap;
+    private RecordSchema recordSchema;
+    private List<Map<String, Value>> recordViews;
+    private List<Map<String, Object>> recordObjectViews;
 
 
     /**
@@ -124,6 +128,29 @@ public class MessageData8EventDocumentImpl extends MessagePart implements Messag
         return recordsObjectMap;
     }
 
+    @Override
+    public List<Map<String, Value>> getRecordViews() {
+        if (recordViews == null) {
+            recordViews = getRecordSchema().asMaps(records);
+        }
+        return recordViews;
+    }
+
+    @Override
+    public List<Map<String, Object>> getRecordObjectViews() {
+        if (recordObjectViews == null) {
+            recordObjectViews = getRecordSchema().asObjectMaps(records);
+        }
+        return recordObjectViews;
+    }
+
+    private RecordSchema getRecordSchema() {
+        if (recordSchema == null) {
+            recordSchema = RecordSchema.of(fieldHolders);
+        }
+        return recordSchema;
+    }
+
     @Override
     public Map<Integer, List<String>> getReturningOptions() {
         return this.returningOptions;
@@ -1,6 +1,7 @@
 package hu.arheu.gds.message.data.impl;
 
 import hu.arheu.gds.message.MessagePart;
+import hu.arheu.gds.message.data.ColumnarHits;
 import hu.arheu.gds.message.data.FieldHolder;
 import hu.arheu.gds.message.data.QueryContextHolder;
 import hu.arheu.gds.message.data.QueryResponseHolder;
@@ -30,6 +31,10 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
     private List<List<Value>> hits;
     private Long numberOfTotalHits;
 
+    //not serialized
+    private ColumnarHitsImpl columnarHits;
+    private boolean decodeHitsAsColumns;
+
 
     /**
      * Do not remove, as it's needed for the serialization through {@link Externalizable}
@@ -37,6 +42,16 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
     public QueryResponseHolderImpl() {
     }
 
+    /**
+     * Creates an empty instance to be unpacked.
+     *
+     * @param decodeHitsAsColumns whether the hits should be unpacked straight into a {@link ColumnarHits} view
+     *                            (the list representation is only created if {@link #getHits()} is called)
+     */
+    public QueryResponseHolderImpl(boolean decodeHitsAsColumns) {
+        this.decodeHitsAsColumns = decodeHitsAsColumns;
+    }
+
     public QueryResponseHolderImpl(Long numberOfHits,
                                    Long numberOfFilteredHits,
                                    Boolean morePage,
@@ -73,7 +88,7 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
         Validator.requireNonNullValue(getMorePage(), getClass().getSimpleName(), "morePage");
         Validator.requireNonNullValue(getQueryContextHolder(), getClass().getSimpleName(), "queryContextDescriptor");
         Validator.requireNonNullValue(getFieldHolders(), getClass().getSimpleName(), "fieldDescriptors");
-        Validator.requireNonNullValue(getHits(), getClass().getSimpleName(), "hits");
+        Validator.requireNonNullValue(hits != null ? hits : columnarHits, getClass().getSimpleName(), "hits");
     }
 
     @Override
@@ -108,9 +123,20 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
 
     @Override
     public List<List<Value>> getHits() {
+        if (this.hits == null && this.columnarHits != null) {
+            this.hits = this.columnarHits.toHits();
+        }
         return this.hits;
     }
 
+    @Override
+    public ColumnarHits getColumnarHits() {
+        if (this.columnarHits == null) {
+            this.columnarHits = ColumnarHitsImpl.fromHits(this.fieldHolders, this.hits);
+        }
+        return this.columnarHits;
+    }
+
     @Override
     public Long getNumberOfTotalHits() {
         return this.numberOfTotalHits;
@@ -127,7 +153,11 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
         WriterHelper.packValue(packer, this.morePage);
         WriterHelper.packMessagePart(packer, this.queryContextHolder);
         WriterHelper.packMessagePartCollection(packer, this.fieldHolders);
-        WriterHelper.packValueListListValues(packer, this.hits);
+        if (this.hits == null && this.columnarHits != null) {
+            this.columnarHits.packContentTo(packer);
+        } else {
+            WriterHelper.packValueListListValues(packer, this.hits);
+        }
 
         if (numberOfTotalHits != null) {
             WriterHelper.packValue(packer, this.numberOfTotalHits);
@@ -174,13 +204,20 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
                 ReaderHelper.unpackNil(unpacker);
             }
 
-            hits = ReaderHelper.unpackValueListListValues(unpacker,
-                    null,
-                    null,
-                    "records",
-                    "record",
-                    "fieldvalue",
-                    QueryResponseHolderImpl.class.getSimpleName());
+            if (decodeHitsAsColumns && fieldHolders != null) {
+                hits = null;
+                columnarHits = ColumnarHitsImpl.unpack(unpacker, fieldHolders,
+                        QueryResponseHolderImpl.class.getSimpleName());
+            } else {
+                columnarHits = null;
+                hits = ReaderHelper.unpackValueListListValues(unpacker,
+                        null,
+                        null,
+                        "records",
+                        "record",
+                        "fieldvalue",
+                        QueryResponseHolderImpl.class.getSimpleName());
+            }
 
             if (arrayHeaderSize >= getNumberOfPublicElements()) {
                 numberOfTotalHits =
@@ -205,13 +242,13 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
                 Objects.equals(morePage, that.morePage) &&
                 Objects.equals(queryContextHolder, that.queryContextHolder) &&
                 Objects.equals(fieldHolders, that.fieldHolders) &&
-                Objects.equals(hits, that.hits) &&
+                Objects.equals(getHits(), that.getHits()) &&
                 Objects.equals(numberOfTotalHits, that.numberOfTotalHits);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(numberOfHits, numberOfFilteredHits, morePage, queryContextHolder, fieldHolders, hits, numberOfTotalHits);
+        return Objects.hash(numberOfHits, numberOfFilteredHits, morePage, queryContextHolder, fieldHolders, getHits(), numberOfTotalHits);
     }
 
     @Override
@@ -222,7 +259,7 @@ public class QueryResponseHolderImpl extends MessagePart implements QueryRespons
                 ", morePage=" + morePage +
                 ", queryContextHolder=" + queryContextHolder +
                 ", fieldHolders=" + fieldHolders +
-                ", hits=" + hits +
+                ", hits=" + getHits() +
                 ", numberOfTotalHits=" + numberOfTotalHits +
                 '}';
     }
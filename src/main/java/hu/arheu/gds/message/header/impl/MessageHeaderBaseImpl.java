@@ -58,7 +58,6 @@ public class MessageHeaderBaseImpl extends MessagePart implements MessageHeaderB
         this.dataType = dataType;
 
         checkContent();
-        serialize();
     }
 
     public MessageHeaderBaseImpl(MessageHeaderBase other) throws ValidationException {
@@ -0,0 +1,140 @@
+package hu.arheu.gds.message.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * The content of an attachment uploaded in an event ({@link EventMessageEncoder#addAttachment(String, AttachmentSource)})
+ * that is not held in a {@code byte[]}, but read from its source only when the event is encoded.
+ * <p>
+ * Files are memory-mapped and added to the encoded message as they are, while streams are read into a direct buffer
+ * taken from the allocator of the channel, so the content of the attachments is never copied into the heap.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public abstract class AttachmentSource {
+
+    private AttachmentSource() {
+    }
+
+    /**
+     * Creates a source reading the whole content of the file at the given path.
+     *
+     * @param path the path of the file
+     * @return the attachment source
+     */
+    public static AttachmentSource of(Path path) {
+        Objects.requireNonNull(path, "The path of the attachment cannot be null!");
+        return new AttachmentSource() {
+            @Override
+            public long size() throws IOException {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    return channel.size();
+                }
+            }
+
+            @Override
+            ByteBuf read(ByteBufAllocator allocator, long size) throws IOException {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    return map(channel, 0, size);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a source reading the content of the channel from its current position to its end. The channel is not
+     * closed (and its position is not changed) by the encoder.
+     *
+     * @param channel the file channel
+     * @return the attachment source
+     */
+    public static AttachmentSource of(FileChannel channel) {
+        Objects.requireNonNull(channel, "The channel of the attachment cannot be null!");
+        return new AttachmentSource() {
+            @Override
+            public long size() throws IOException {
+                return channel.size() - channel.position();
+            }
+
+            @Override
+            ByteBuf read(ByteBufAllocator allocator, long size) throws IOException {
+                return map(channel, channel.position(), size);
+            }
+        };
+    }
+
+    /**
+     * Creates a source reading the given number of bytes from the stream when the event is encoded, so it can be
+     * encoded only once. The stream is not closed by the encoder.
+     *
+     * @param stream the stream to read the attachment from
+     * @param size   the number of bytes to read
+     * @return the attachment source
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public static AttachmentSource of(InputStream stream, long size) throws IllegalArgumentException {
+        Objects.requireNonNull(stream, "The stream of the attachment cannot be null!");
+        if (size < 0) {
+            throw new IllegalArgumentException("The size of the attachment cannot be negative! Specified: " + size);
+        }
+        return new AttachmentSource() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            ByteBuf read(ByteBufAllocator allocator, long size) throws IOException {
+                ByteBuf buffer = allocator.directBuffer((int) size, (int) size);
+                try {
+                    while (buffer.isWritable()) {
+                        if (buffer.writeBytes(stream, buffer.writableBytes()) < 0) {
+                            throw new IOException("The stream of the attachment ended after " + buffer.readableBytes()
+                                    + " bytes instead of " + size + "!");
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    buffer.release();
+                    throw e;
+                }
+                return buffer;
+            }
+        };
+    }
+
+    /**
+     * Returns the size of the attachment.
+     *
+     * @return the number of bytes the attachment consists of
+     * @throws IOException if the size cannot be determined
+     */
+    public abstract long size() throws IOException;
+
+    /**
+     * Reads the content of the attachment. The caller becomes the owner of the returned buffer.
+     *
+     * @param allocator the allocator used if the content has to be copied into a buffer
+     * @param size      the size of the attachment returned by {@link #size()} when its header was packed
+     * @return the buffer holding the content
+     * @throws IOException if the content cannot be read
+     */
+    abstract ByteBuf read(ByteBufAllocator allocator, long size) throws IOException;
+
+    private static ByteBuf map(FileChannel channel, long position, long size) throws IOException {
+        if (position + size > channel.size()) {
+            throw new IOException("The attachment file was truncated after its size (" + size + " bytes) was packed!");
+        }
+        if (size == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        return Unpooled.wrappedBuffer(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+}
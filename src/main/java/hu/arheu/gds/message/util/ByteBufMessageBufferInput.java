@@ -0,0 +1,78 @@
+package hu.arheu.gds.message.util;
+
+import io.netty.buffer.ByteBuf;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.buffer.MessageBuffer;
+import org.msgpack.core.buffer.MessageBufferInput;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * A {@link MessageBufferInput} that feeds the readable bytes of a Netty {@link ByteBuf} to a MessagePack unpacker,
+ * so incoming frames can be decoded without copying them into a {@code byte[]} first.
+ * <p>
+ * The NIO buffers of the {@link ByteBuf} are handed over one by one. Heap buffers are wrapped in place, while
+ * direct buffers are copied in small chunks into a reused scratch array, as MessagePack cannot wrap off-heap memory
+ * without access to JDK internals.
+ * <p>
+ * The input neither modifies the indexes of the {@link ByteBuf} nor releases it, the buffer has to stay readable
+ * (and must not be released) until the unpacking is finished.
+ */
+public class ByteBufMessageBufferInput implements MessageBufferInput {
+
+    private final ByteBuffer[] buffers;
+    private int bufferIndex;
+    private MessageBuffer scratch;
+
+    /**
+     * Creates a new input over the currently readable bytes of the given buffer.
+     *
+     * @param byteBuf the buffer to read from
+     */
+    public ByteBufMessageBufferInput(ByteBuf byteBuf) {
+        this(byteBuf, null);
+    }
+
+    /**
+     * Creates a new input over the currently readable bytes of the given buffer, copying direct memory through the
+     * given scratch buffer (shared by the inputs used one after the other).
+     */
+    ByteBufMessageBufferInput(ByteBuf byteBuf, MessageBuffer scratch) {
+        Objects.requireNonNull(byteBuf, "The ByteBuf cannot be null!");
+        this.buffers = byteBuf.nioBuffers(byteBuf.readerIndex(), byteBuf.readableBytes());
+        this.bufferIndex = 0;
+        this.scratch = scratch;
+    }
+
+    @Override
+    public MessageBuffer next() {
+        while (bufferIndex < buffers.length) {
+            ByteBuffer current = buffers[bufferIndex];
+            if (!current.hasRemaining()) {
+                bufferIndex++;
+                continue;
+            }
+            if (current.hasArray()) {
+                bufferIndex++;
+                return MessageBuffer.wrap(current.array(), current.arrayOffset() + current.position(), current.remaining());
+            }
+            if (scratch == null) {
+                scratch = newScratch();
+            }
+            int length = Math.min(current.remaining(), scratch.size());
+            current.get(scratch.array(), scratch.arrayOffset(), length);
+            return scratch.slice(0, length);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        //the buffer is owned by the caller
+    }
+
+    static MessageBuffer newScratch() {
+        return MessageBuffer.allocate(MessagePack.DEFAULT_UNPACKER_CONFIG.getBufferSize());
+    }
+}
@@ -0,0 +1,183 @@
+package hu.arheu.gds.message.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.buffer.ArrayBufferOutput;
+import org.msgpack.core.buffer.MessageBuffer;
+import org.msgpack.core.buffer.MessageBufferOutput;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link MessageBufferPacker} that writes its content directly into a Netty {@link ByteBuf} instead of the
+ * on-heap arrays used by the default packer.
+ * As every message part packs itself into a {@link MessageBufferPacker}, instances of this class can be passed to
+ * any {@link GdsMessagePart#packContentTo(MessageBufferPacker)} method, so messages can be encoded into (pooled)
+ * buffers taken from the channel allocator without intermediate {@code byte[]} copies.
+ * <p>
+ * Heap buffers (e.g. {@link io.netty.buffer.ByteBufAllocator#heapBuffer()}) are written in place, other buffers are
+ * filled through a small scratch array owned by the packer.
+ * <p>
+ * The packer does not own the buffer, closing the packer only flushes the pending bytes into it.
+ * The instance is not thread-safe, but it can be reused for multiple buffers by calling {@link #reset(ByteBuf)}.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public class ByteBufMessagePacker extends MessageBufferPacker {
+
+    /**
+     * Never written, only needed to satisfy the constructor of the {@link MessageBufferPacker}.
+     */
+    private static final ArrayBufferOutput PLACEHOLDER_OUTPUT = new ArrayBufferOutput(0);
+
+    private final ByteBufOutput byteBufOutput;
+
+    /**
+     * Creates a new packer that appends to the given buffer starting from its current writer index.
+     *
+     * @param byteBuf the buffer to write into
+     */
+    public ByteBufMessagePacker(ByteBuf byteBuf) {
+        super(PLACEHOLDER_OUTPUT, MessagePack.DEFAULT_PACKER_CONFIG);
+        this.byteBufOutput = new ByteBufOutput(Objects.requireNonNull(byteBuf, "The ByteBuf cannot be null!"));
+        this.out = byteBufOutput;
+    }
+
+    /**
+     * Flushes the pending content into the current buffer and continues packing into the given one.
+     *
+     * @param byteBuf the buffer to write into from now on
+     * @return the buffer that was used before
+     * @throws IOException if the pending content could not be flushed
+     */
+    public ByteBuf reset(ByteBuf byteBuf) throws IOException {
+        Objects.requireNonNull(byteBuf, "The ByteBuf cannot be null!");
+        ByteBuf previous = getByteBuf();
+        super.reset(PLACEHOLDER_OUTPUT);
+        byteBufOutput.byteBuf = byteBuf;
+        this.out = byteBufOutput;
+        return previous;
+    }
+
+    /**
+     * Returns the buffer the packer currently writes into. The content is only guaranteed to be complete after
+     * {@link #flush()} was called.
+     *
+     * @return the underlying buffer
+     */
+    public ByteBuf getByteBuf() {
+        return byteBufOutput.byteBuf;
+    }
+
+    @Override
+    public MessageBufferOutput reset(MessageBufferOutput out) {
+        throw new UnsupportedOperationException("The " + getClass().getSimpleName() + " can only be reset to a ByteBuf!");
+    }
+
+    @Override
+    public void clear() {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        getByteBuf().clear();
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return ByteBufUtil.getBytes(getByteBuf());
+    }
+
+    @Override
+    public MessageBuffer toMessageBuffer() {
+        return MessageBuffer.wrap(toByteArray());
+    }
+
+    @Override
+    public List<MessageBuffer> toBufferList() {
+        return Collections.singletonList(toMessageBuffer());
+    }
+
+    @Override
+    public int getBufferSize() {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return getByteBuf().readableBytes();
+    }
+
+    /**
+     * Exposes the writable region of the {@link ByteBuf} to the packer, so it can write its content in place.
+     * Buffers without an accessible backing array (e.g. direct buffers) are written through a reused scratch array,
+     * as MessagePack cannot wrap off-heap memory without access to JDK internals.
+     */
+    private static final class ByteBufOutput implements MessageBufferOutput {
+
+        private static final int MIN_CHUNK_SIZE = 256;
+
+        private ByteBuf byteBuf;
+        private MessageBuffer scratch;
+        private boolean scratchInUse;
+
+        private ByteBufOutput(ByteBuf byteBuf) {
+            this.byteBuf = byteBuf;
+        }
+
+        @Override
+        public MessageBuffer next(int minimumSize) {
+            int size = Math.max(minimumSize, MIN_CHUNK_SIZE);
+            byteBuf.ensureWritable(size);
+            if (byteBuf.hasArray()) {
+                scratchInUse = false;
+                return MessageBuffer.wrap(byteBuf.array(), byteBuf.arrayOffset() + byteBuf.writerIndex(),
+                        byteBuf.writableBytes());
+            }
+            if (scratch == null || scratch.size() < size) {
+                scratch = MessageBuffer.allocate(Math.max(size, MessagePack.DEFAULT_PACKER_CONFIG.getBufferSize()));
+            }
+            scratchInUse = true;
+            return scratch;
+        }
+
+        @Override
+        public void writeBuffer(int length) {
+            if (scratchInUse) {
+                byteBuf.writeBytes(scratch.array(), scratch.arrayOffset(), length);
+            } else {
+                byteBuf.writerIndex(byteBuf.writerIndex() + length);
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            byteBuf.writeBytes(buffer, offset, length);
+        }
+
+        @Override
+        public void add(byte[] buffer, int offset, int length) {
+            byteBuf.writeBytes(buffer, offset, length);
+        }
+
+        @Override
+        public void close() {
+            //the buffer is owned by the caller
+        }
+
+        @Override
+        public void flush() {
+            //nothing is buffered here
+        }
+    }
+}
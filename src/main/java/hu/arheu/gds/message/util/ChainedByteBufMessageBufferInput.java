@@ -0,0 +1,171 @@
+package hu.arheu.gds.message.util;
+
+import io.netty.buffer.ByteBuf;
+import org.msgpack.core.buffer.MessageBuffer;
+import org.msgpack.core.buffer.MessageBufferInput;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link MessageBufferInput} that feeds a chain of Netty {@link ByteBuf}s to a MessagePack unpacker, while the
+ * buffers are still being added (e.g. the WebSocket frames of a message, as they arrive). This way a large message
+ * can be unpacked in parallel with its transfer, instead of after all of its frames have been aggregated.
+ * <p>
+ * The buffers are added by a producer thread (which never blocks), and read by the thread of the unpacker, which
+ * waits in {@link #next()} for the next buffer if it has consumed the ones added so far. The input takes ownership
+ * of the added buffers: each buffer is released once the unpacker has moved past it, and the remaining ones are
+ * released when the input is closed. The buffers added after the input is closed are released right away, so the
+ * rest of a message that is not unpacked (or only partially) is dropped as it arrives.
+ */
+public class ChainedByteBufMessageBufferInput implements MessageBufferInput {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Queue<ByteBuf> buffers = new ArrayDeque<>();
+    private boolean ended;
+    private boolean closed;
+    private Throwable failure;
+
+    //accessed only by the thread of the unpacker
+    private ByteBuf current;
+    private ByteBufMessageBufferInput currentInput;
+    private MessageBuffer scratch;
+
+    /**
+     * Adds the next buffer of the chain. Does not block.
+     *
+     * @param buffer the buffer, whose ownership is passed to this input
+     */
+    public void add(ByteBuf buffer) {
+        lock.lock();
+        try {
+            if (!closed && !ended && failure == null) {
+                buffers.add(buffer);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        buffer.release();
+    }
+
+    /**
+     * Marks the end of the chain. The unpacker reaches the end of the input once it has consumed the added buffers.
+     */
+    public void end() {
+        lock.lock();
+        try {
+            ended = true;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the chain as broken (e.g. the connection was lost in the middle of a message). The unpacker gets an
+     * {@link IOException} once it has consumed the added buffers.
+     *
+     * @param cause the reason of the failure
+     */
+    public void fail(Throwable cause) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = cause;
+            }
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next chunk of the chain, waiting for the next buffer to be added if necessary.
+     *
+     * @return the next chunk, or {@code null} if the end of the chain is reached
+     * @throws IOException if the chain failed (see {@link #fail(Throwable)}), or the waiting thread is interrupted
+     */
+    @Override
+    public MessageBuffer next() throws IOException {
+        while (true) {
+            if (currentInput != null) {
+                MessageBuffer chunk = currentInput.next();
+                if (chunk != null) {
+                    return chunk;
+                }
+                //the unpacker does not refer to the previous chunks once it asks for the next one
+                current.release();
+                current = null;
+                currentInput = null;
+            }
+            ByteBuf next = take();
+            if (next == null) {
+                return null;
+            }
+            if (scratch == null && !next.hasArray()) {
+                scratch = ByteBufMessageBufferInput.newScratch();
+            }
+            current = next;
+            currentInput = new ByteBufMessageBufferInput(next, scratch);
+        }
+    }
+
+    private ByteBuf take() throws IOException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IOException("The input is already closed!");
+                }
+                ByteBuf next = buffers.poll();
+                if (next != null) {
+                    return next;
+                }
+                if (failure != null) {
+                    throw new IOException("The input was broken before its end!", failure);
+                }
+                if (ended) {
+                    return null;
+                }
+                try {
+                    available.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the next buffer of the input!");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the buffers not consumed yet, and the ones added later. Has to be called by the thread of the
+     * unpacker (e.g. by closing the unpacker), after the unpacking is finished.
+     */
+    @Override
+    public void close() {
+        if (current != null) {
+            current.release();
+            current = null;
+            currentInput = null;
+        }
+        lock.lock();
+        try {
+            closed = true;
+            ByteBuf buffer;
+            while ((buffer = buffers.poll()) != null) {
+                buffer.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -163,6 +163,55 @@ public class Converters {
         return result;
     }
 
+    /**
+     * Returns the records of an event document or a query response as read-only map views keyed by the field names
+     * (see {@link RecordSchema#asMaps(List)}). Unlike {@link #getRecordsToMpack(MessageData)}, no hash map is built
+     * for the records.
+     *
+     * @param data the event document or the query response
+     * @return the unmodifiable list of the map views of the records
+     * @throws ValueConvertException if the data is neither an event document nor a query response
+     */
+    public static List<Map<String, Value>> getRecordViews(MessageData data) throws ValueConvertException {
+        switch (data.getMessageDataType()) {
+            case QUERY_REQUEST_ACK_11 -> {
+                MessageData11QueryRequestAck data11 = data.asQueryRequestAckMessageData11();
+                return RecordSchema.of(data11.getQueryResponseHolder().getFieldHolders())
+                        .asMaps(data11.getQueryResponseHolder().getHits());
+            }
+            case EVENT_DOCUMENT_8 -> {
+                return data.asEventDocumentMessageData8().getRecordViews();
+            }
+            default ->
+                    throw new ValueConvertException(String.format("Converting from '%s' does not supported", data.getMessageDataType()));
+        }
+    }
+
+    /**
+     * Returns the records of an event document or a query response as read-only map views keyed by the field names,
+     * whose values are converted to plain Java types on the first access (see
+     * {@link RecordSchema#asObjectMaps(List)}). Unlike {@link #getRecordsToObject(MessageData)}, a value that cannot
+     * be converted is reported by the access of the value, with an {@link IllegalStateException}.
+     *
+     * @param data the event document or the query response
+     * @return the unmodifiable list of the converting map views of the records
+     * @throws ValueConvertException if the data is neither an event document nor a query response
+     */
+    public static List<Map<String, Object>> getRecordObjectViews(MessageData data) throws ValueConvertException {
+        switch (data.getMessageDataType()) {
+            case QUERY_REQUEST_ACK_11 -> {
+                MessageData11QueryRequestAck data11 = data.asQueryRequestAckMessageData11();
+                return RecordSchema.of(data11.getQueryResponseHolder().getFieldHolders())
+                        .asObjectMaps(data11.getQueryResponseHolder().getHits());
+            }
+            case EVENT_DOCUMENT_8 -> {
+                return data.asEventDocumentMessageData8().getRecordObjectViews();
+            }
+            default ->
+                    throw new ValueConvertException(String.format("Converting from '%s' does not supported", data.getMessageDataType()));
+        }
+    }
+
     /**
      * Converts a plain Java value ({@link Object}) to a MessagePack formatted {@link Value} instance.
      *
@@ -0,0 +1,447 @@
+package hu.arheu.gds.message.util;
+
+import hu.arheu.gds.message.data.MessageDataType;
+import hu.arheu.gds.message.data.PriorityLevelHolder;
+import hu.arheu.gds.message.errors.ValidationException;
+import hu.arheu.gds.message.header.MessageHeaderBase;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reusable encoder for event messages ({@link MessageDataType#EVENT_2}), meant for publishers sending events at a
+ * high rate.
+ * <p>
+ * Instead of creating a header and a {@link hu.arheu.gds.message.data.MessageData2Event} instance for every event,
+ * the operations and attachments are collected into the internal (reused) state of the encoder, and the full message
+ * is packed from there directly into a {@link ByteBuf}. The message ID is a random (version 4) UUID generated
+ * without going through {@link java.util.UUID}, and it is only turned into a {@code String} if
+ * {@link #getMessageId()} is called. Together with a pooled allocator the encoding creates (almost) no garbage.
+ * <p>
+ * The produced message is equivalent to the one created by {@link MessageManager#createMessage} from the header
+ * created by {@link MessageManager#createMessageHeaderBase(String, String, MessageDataType)} and the event created
+ * by {@link MessageManager#createMessageData2Event(List, java.util.Map, List)} with the same content (the only
+ * difference is that the attachments are packed in the order they were added).
+ * <p>
+ * Attachments can also be added from an {@link AttachmentSource} (e.g. a file), in which case their content is only
+ * read when the event is encoded, and the encoded message is a composite buffer referencing the content instead of
+ * copying it (see {@link #encode(ByteBufAllocator)}).
+ * <p>
+ * Instances are not thread-safe, they should be confined to a single thread (see
+ * {@code AsyncGDSClient#getEventEncoder()}) and reused by calling {@link #reset()} before every event.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public class EventMessageEncoder {
+
+    private static final int MESSAGE_ID_LENGTH = 36;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] userName;
+
+    private final byte[] messageId = new byte[MESSAGE_ID_LENGTH];
+    private String messageIdString;
+    private boolean customMessageId;
+
+    private final StringBuilder operations = new StringBuilder();
+    private int numberOfOperations;
+    private final List<String> attachmentIds = new ArrayList<>();
+    private final List<byte[]> attachments = new ArrayList<>();
+    //the sources of the attachments not held in memory, by the same index (null if the content is in attachments)
+    private final List<AttachmentSource> attachmentSources = new ArrayList<>();
+    private int numberOfAttachmentSources;
+    private final List<PriorityLevelHolder> priorityLevels = new ArrayList<>();
+
+    private byte[] scratch = new byte[256];
+    private ByteBufMessagePacker packer;
+
+    /**
+     * @param userName the name of the user sending the events, used in the headers
+     */
+    public EventMessageEncoder(String userName) {
+        Objects.requireNonNull(userName, "The username cannot be null!");
+        this.userName = userName.getBytes(StandardCharsets.UTF_8);
+        reset();
+    }
+
+    /**
+     * Clears the content of the previous event and generates a new message ID.
+     *
+     * @return this encoder
+     */
+    public EventMessageEncoder reset() {
+        operations.setLength(0);
+        numberOfOperations = 0;
+        attachmentIds.clear();
+        attachments.clear();
+        attachmentSources.clear();
+        numberOfAttachmentSources = 0;
+        priorityLevels.clear();
+        generateMessageId();
+        return this;
+    }
+
+    /**
+     * Overrides the generated message ID of the current event.
+     *
+     * @param messageId the message ID to be used in the header
+     * @return this encoder
+     */
+    public EventMessageEncoder withMessageId(String messageId) {
+        this.messageIdString = Objects.requireNonNull(messageId, "The message ID cannot be null!");
+        this.customMessageId = true;
+        return this;
+    }
+
+    /**
+     * Returns the ID of the current event, which can be used to match the ACK sent by the GDS.
+     *
+     * @return the message ID
+     */
+    public String getMessageId() {
+        if (messageIdString == null) {
+            messageIdString = new String(messageId, StandardCharsets.US_ASCII);
+        }
+        return messageIdString;
+    }
+
+    /**
+     * Appends an operation (an insert, update or merge statement) to the event.
+     *
+     * @param operation the operation
+     * @return this encoder
+     */
+    public EventMessageEncoder addOperation(CharSequence operation) {
+        Objects.requireNonNull(operation, "The operation cannot be null!");
+        if (numberOfOperations > 0) {
+            operations.append(';');
+        }
+        operations.append(operation);
+        numberOfOperations++;
+        return this;
+    }
+
+    /**
+     * Adds an attachment to the event. The ID should be the one used in the operations, without the {@code 0x}
+     * prefix (the hex conversion is done by the encoder, see {@link Converters#stringToUTF8Hex(String)}).
+     * The content is not copied, it must not be modified until the event is encoded.
+     *
+     * @param id      the ID of the attachment
+     * @param content the binary content of the attachment
+     * @return this encoder
+     */
+    public EventMessageEncoder addAttachment(String id, byte[] content) {
+        Objects.requireNonNull(id, "The attachment ID cannot be null!");
+        Objects.requireNonNull(content, "The attachment content cannot be null!");
+        setAttachment(id, content, null);
+        return this;
+    }
+
+    /**
+     * Adds an attachment to the event, whose content is read from the given source only when the event is encoded.
+     * The ID should be the one used in the operations, without the {@code 0x} prefix.
+     *
+     * @param id     the ID of the attachment
+     * @param source the source of the binary content of the attachment
+     * @return this encoder
+     */
+    public EventMessageEncoder addAttachment(String id, AttachmentSource source) {
+        Objects.requireNonNull(id, "The attachment ID cannot be null!");
+        Objects.requireNonNull(source, "The attachment source cannot be null!");
+        setAttachment(id, null, source);
+        return this;
+    }
+
+    private void setAttachment(String id, byte[] content, AttachmentSource source) {
+        int index = attachmentIds.indexOf(id);
+        if (index < 0) {
+            attachmentIds.add(id);
+            attachments.add(content);
+            attachmentSources.add(source);
+        } else {
+            if (attachmentSources.get(index) != null) {
+                numberOfAttachmentSources--;
+            }
+            attachments.set(index, content);
+            attachmentSources.set(index, source);
+        }
+        if (source != null) {
+            numberOfAttachmentSources++;
+        }
+    }
+
+    /**
+     * Adds a priority level to the event.
+     *
+     * @param priorityLevel the priority level
+     * @return this encoder
+     */
+    public EventMessageEncoder addPriorityLevel(PriorityLevelHolder priorityLevel) {
+        priorityLevels.add(Objects.requireNonNull(priorityLevel, "The priority level cannot be null!"));
+        return this;
+    }
+
+    /**
+     * Encodes the current event as a full message into a (heap) buffer allocated by the given allocator.
+     * If the event has attachments added from an {@link AttachmentSource}, the returned buffer is a composite one,
+     * holding the content of those attachments as read by their sources (e.g. mapped files).
+     * The caller becomes the owner of the returned buffer.
+     *
+     * @param allocator the allocator used to create the buffer (e.g. {@code channel.alloc()})
+     * @return the buffer containing the message
+     * @throws IOException         if the message cannot be packed (or an attachment cannot be read)
+     * @throws ValidationException if the event has no operations or has invalid priority levels
+     */
+    public ByteBuf encode(ByteBufAllocator allocator) throws IOException, ValidationException {
+        return encode(allocator, true);
+    }
+
+    /**
+     * Encodes only the data part of the current event (see {@link #encode(ByteBufAllocator)}), e.g. to send it in
+     * fragments with the {@link MessageFragmenter}. The caller becomes the owner of the returned buffer.
+     *
+     * @param allocator the allocator used to create the buffer (e.g. {@code channel.alloc()})
+     * @return the buffer containing the data part of the message
+     * @throws IOException         if the message cannot be packed (or an attachment cannot be read)
+     * @throws ValidationException if the event has no operations or has invalid priority levels
+     */
+    public ByteBuf encodeData(ByteBufAllocator allocator) throws IOException, ValidationException {
+        return encode(allocator, false);
+    }
+
+    /**
+     * Returns whether the event has attachments added from an {@link AttachmentSource}.
+     *
+     * @return true if any of the attachments is read from a source when the event is encoded
+     */
+    public boolean hasAttachmentSources() {
+        return numberOfAttachmentSources > 0;
+    }
+
+    private ByteBuf encode(ByteBufAllocator allocator, boolean withHeader) throws IOException, ValidationException {
+        checkContent();
+        CompositeByteBuf message = numberOfAttachmentSources > 0 ? allocator.compositeBuffer(Integer.MAX_VALUE) : null;
+        ByteBuf buffer = allocator.heapBuffer();
+        try {
+            encode(buffer, message, allocator, withHeader);
+        } catch (IOException | RuntimeException e) {
+            //the buffer the packer writes into is not a component of the composite message yet
+            ByteBuf current = packer.getByteBuf();
+            //the packer may hold unflushed bytes, which it would flush into the released buffer on its next reset
+            packer = null;
+            current.release();
+            if (message != null) {
+                message.release();
+            }
+            throw e;
+        }
+        if (message == null) {
+            return buffer;
+        }
+        message.addComponent(true, packer.getByteBuf());
+        return message;
+    }
+
+    /**
+     * Encodes the current event as a full message, appending it to the given buffer. The content of the attachments
+     * added from an {@link AttachmentSource} is copied into the buffer.
+     *
+     * @param buffer the buffer to write into
+     * @throws IOException         if the message cannot be packed (or an attachment cannot be read)
+     * @throws ValidationException if the event has no operations or has invalid priority levels
+     */
+    public void encodeTo(ByteBuf buffer) throws IOException, ValidationException {
+        checkContent();
+        try {
+            encode(buffer, null, buffer.alloc(), true);
+        } catch (IOException | RuntimeException e) {
+            //the unflushed bytes of the failed event must not be flushed into the buffer on the next reset
+            packer = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Packs the event into the given buffer. If a composite message is given, the content of the attachment
+     * sources is added to it as separate components between the packed parts (the packed parts before them are
+     * added as well, while the last one is left in the packer), otherwise it is copied into the buffer.
+     */
+    private void encode(ByteBuf buffer, CompositeByteBuf message, ByteBufAllocator allocator, boolean withHeader)
+            throws IOException {
+        if (packer == null) {
+            packer = new ByteBufMessagePacker(buffer);
+        } else {
+            packer.reset(buffer);
+        }
+
+        if (withHeader) {
+            packHeader();
+        }
+
+        packer.packArrayHeader(3);
+        packUtf8(operations);
+        packer.packMapHeader(attachmentIds.size());
+        for (int i = 0; i < attachmentIds.size(); i++) {
+            packHexOfUtf8(attachmentIds.get(i));
+            byte[] content = attachments.get(i);
+            if (content != null) {
+                packer.packBinaryHeader(content.length);
+                packer.writePayload(content);
+                continue;
+            }
+            AttachmentSource source = attachmentSources.get(i);
+            long size = source.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The attachment " + attachmentIds.get(i) + " of " + size
+                        + " bytes is too large to be sent in a message!");
+            }
+            packer.packBinaryHeader((int) size);
+            if (message == null) {
+                packer.flush();
+                ByteBuf sourceContent = source.read(allocator, size);
+                try {
+                    buffer.writeBytes(sourceContent, sourceContent.readerIndex(), sourceContent.readableBytes());
+                } finally {
+                    sourceContent.release();
+                }
+            } else {
+                message.addComponent(true, packer.reset(allocator.heapBuffer()));
+                message.addComponent(true, source.read(allocator, size));
+            }
+        }
+        packer.packArrayHeader(priorityLevels.size());
+        for (PriorityLevelHolder priorityLevel : priorityLevels) {
+            priorityLevel.packContentTo(packer);
+        }
+        packer.flush();
+    }
+
+    private void packHeader() throws IOException {
+        long now = System.currentTimeMillis();
+
+        packer.packArrayHeader(MessageHeaderBase.NUMBER_OF_FIELDS + MessageManager.DATA_FIELD_COUNT);
+        packer.packRawStringHeader(userName.length);
+        packer.writePayload(userName);
+        if (customMessageId) {
+            packer.packString(messageIdString);
+        } else {
+            packer.packRawStringHeader(MESSAGE_ID_LENGTH);
+            packer.writePayload(messageId);
+        }
+        packer.packLong(now);
+        packer.packLong(now);
+        packer.packBoolean(false);
+        packer.packNil();
+        packer.packNil();
+        packer.packNil();
+        packer.packNil();
+        packer.packInt(MessageDataType.EVENT_2.getValue());
+    }
+
+    private void checkContent() throws ValidationException {
+        if (numberOfOperations == 0) {
+            throw new ValidationException(String.format("Parameter %1$s of class %2$s cannot be empty.",
+                    "operations", getClass().getSimpleName()));
+        }
+        for (int i = 0; i < priorityLevels.size(); i++) {
+            for (Integer operationIndex : priorityLevels.get(i).getOperations().keySet()) {
+                for (int j = 0; j < i; j++) {
+                    if (priorityLevels.get(j).getOperations().containsKey(operationIndex)) {
+                        throw new ValidationException("The operational priority can not be included twice");
+                    }
+                }
+            }
+        }
+    }
+
+    private void generateMessageId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificantBits = (random.nextLong() & ~0xC000000000000000L) | 0x8000000000000000L;
+        writeHex(mostSignificantBits >>> 32, 8, 0);
+        messageId[8] = '-';
+        writeHex(mostSignificantBits >>> 16, 4, 9);
+        messageId[13] = '-';
+        writeHex(mostSignificantBits, 4, 14);
+        messageId[18] = '-';
+        writeHex(leastSignificantBits >>> 48, 4, 19);
+        messageId[23] = '-';
+        writeHex(leastSignificantBits, 12, 24);
+        messageIdString = null;
+        customMessageId = false;
+    }
+
+    private void writeHex(long value, int digits, int offset) {
+        for (int i = digits - 1; i >= 0; i--) {
+            messageId[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private void packUtf8(CharSequence value) throws IOException {
+        int length = encodeUtf8(value, 0);
+        packer.packRawStringHeader(length);
+        packer.writePayload(scratch, 0, length);
+    }
+
+    private void packHexOfUtf8(CharSequence value) throws IOException {
+        int length = encodeUtf8(value, 0);
+        ensureScratchCapacity(3 * length);
+        for (int i = 0; i < length; i++) {
+            scratch[length + 2 * i] = HEX_DIGITS[(scratch[i] >> 4) & 0xF];
+            scratch[length + 2 * i + 1] = HEX_DIGITS[scratch[i] & 0xF];
+        }
+        packer.packRawStringHeader(2 * length);
+        packer.writePayload(scratch, length, 2 * length);
+    }
+
+    /**
+     * Encodes the value the same way as {@code String.getBytes(StandardCharsets.UTF_8)} does (malformed surrogates are
+     * replaced by {@code '?'}) into the scratch array.
+     *
+     * @return the number of bytes written
+     */
+    private int encodeUtf8(CharSequence value, int offset) {
+        ensureScratchCapacity(offset + 3 * value.length());
+        byte[] bytes = scratch;
+        int position = offset;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | (c >> 6));
+                bytes[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    bytes[position++] = '?';
+                }
+            } else {
+                bytes[position++] = (byte) (0xE0 | (c >> 12));
+                bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position - offset;
+    }
+
+    private void ensureScratchCapacity(int capacity) {
+        if (scratch.length < capacity) {
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+        }
+    }
+}
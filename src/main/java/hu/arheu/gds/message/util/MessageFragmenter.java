@@ -0,0 +1,124 @@
+package hu.arheu.gds.message.util;
+
+import hu.arheu.gds.message.data.MessageData;
+import hu.arheu.gds.message.errors.ValidationException;
+import hu.arheu.gds.message.header.MessageHeaderBase;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.io.IOException;
+
+/**
+ * Helper methods for sending messages in fragments ({@link MessageHeaderBase#getIsFragmented()}).
+ * <p>
+ * The data part of the message is serialized once into a buffer, and every fragment carries a chunk of it as a
+ * binary value in place of the data part, with the fragment fields of the header describing the position of the
+ * chunk. The fragments are composed of a small buffer holding the header and a slice of the serialized data part, so
+ * the content is not copied again, no matter how many fragments it is split into.
+ */
+public final class MessageFragmenter {
+
+    private MessageFragmenter() {
+    }
+
+    /**
+     * Serializes only the data part of a message into a (heap) buffer allocated by the given allocator.
+     * The caller becomes the owner of the returned buffer.
+     *
+     * @param data      the data part of the message
+     * @param allocator the allocator used to create the buffer
+     * @return the buffer containing the serialized data part
+     * @throws IOException         if the data cannot be packed
+     * @throws ValidationException if the data violates the class invariant
+     */
+    public static ByteBuf packData(MessageData data, ByteBufAllocator allocator) throws IOException, ValidationException {
+        Validator.requireNonNullValue(data, MessageFragmenter.class.getSimpleName(), "data");
+        ByteBuf buffer = allocator.heapBuffer();
+        try (ByteBufMessagePacker packer = new ByteBufMessagePacker(buffer)) {
+            data.packContentTo(packer);
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * Creates a full (not fragmented) message from the header and the already serialized data part (see
+     * {@link #packData(MessageData, ByteBufAllocator)}). The returned buffer takes over the ownership of the data.
+     *
+     * @param header    the header of the message
+     * @param data      the serialized data part
+     * @param allocator the allocator used to create the buffers
+     * @return the buffer containing the message
+     * @throws IOException         if the header cannot be packed
+     * @throws ValidationException if the header violates the class invariant
+     */
+    public static ByteBuf createMessage(MessageHeaderBase header, ByteBuf data, ByteBufAllocator allocator)
+            throws IOException, ValidationException {
+        ByteBuf headerPart = packHeader(header, -1, allocator);
+        CompositeByteBuf message = allocator.compositeHeapBuffer(2);
+        message.addComponents(true, headerPart, data);
+        return message;
+    }
+
+    /**
+     * Creates a fragment of a message, carrying the given chunk of the serialized data part. The data is not
+     * copied, the fragment holds a (retained) slice of it, so the caller keeps the ownership of the data and the
+     * returned buffer has to be released on its own (writing it to a Netty channel does that automatically).
+     *
+     * @param header    the header of the original message (its fragment fields are ignored)
+     * @param data      the serialized data part of the whole message
+     * @param offset    the offset of the chunk in the data part (relative to its reader index)
+     * @param length    the length of the chunk
+     * @param allocator the allocator used to create the header buffer
+     * @return the buffer containing the fragment
+     * @throws IOException         if the header cannot be packed
+     * @throws ValidationException if the header violates the class invariant
+     */
+    public static ByteBuf createFragment(MessageHeaderBase header, ByteBuf data, int offset, int length,
+                                         ByteBufAllocator allocator) throws IOException, ValidationException {
+        int fullDataSize = data.readableBytes();
+        if (offset < 0 || length < 0 || offset + length > fullDataSize) {
+            throw new IndexOutOfBoundsException("The fragment [" + offset + ", " + (offset + length)
+                    + ") is out of the data of size " + fullDataSize);
+        }
+        MessageHeaderBase fragmentHeader = MessageManager.createMessageHeaderBase(
+                header.getUserName(),
+                header.getMessageId(),
+                header.getCreateTime(),
+                header.getRequestTime(),
+                true,
+                offset == 0,
+                offset + length == fullDataSize,
+                (long) offset,
+                (long) fullDataSize,
+                header.getDataType());
+        ByteBuf headerPart = packHeader(fragmentHeader, length, allocator);
+        CompositeByteBuf fragment = allocator.compositeHeapBuffer(2);
+        fragment.addComponents(true, headerPart, data.retainedSlice(data.readerIndex() + offset, length));
+        return fragment;
+    }
+
+    /**
+     * Packs the array header of the message and the header fields, followed by the header of the binary chunk for
+     * fragments (if {@code fragmentLength} is not negative).
+     */
+    private static ByteBuf packHeader(MessageHeaderBase header, int fragmentLength, ByteBufAllocator allocator)
+            throws IOException, ValidationException {
+        Validator.requireNonNullValue(header, MessageFragmenter.class.getSimpleName(), "header");
+        ByteBuf buffer = allocator.heapBuffer(128);
+        try (ByteBufMessagePacker packer = new ByteBufMessagePacker(buffer)) {
+            WriterHelper.packArrayHeader(packer, MessageHeaderBase.NUMBER_OF_FIELDS + MessageManager.DATA_FIELD_COUNT);
+            header.packContentTo(packer);
+            if (fragmentLength >= 0) {
+                packer.packBinaryHeader(fragmentLength);
+            }
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+}
@@ -8,12 +8,13 @@ import hu.arheu.gds.message.header.MessageHeader;
 import hu.arheu.gds.message.header.MessageHeaderBase;
 import hu.arheu.gds.message.header.MessageHeaderExtended;
 import hu.arheu.gds.message.header.impl.MessageHeaderBaseImpl;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
 import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.Value;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
@@ -27,43 +28,79 @@ import java.util.UUID;
 public class MessageManager {
     public static final int DATA_FIELD_COUNT = 1;
 
-    private static byte[] packMessageWrapper(int arraySize) throws IOException {
+    /**
+     * Packs the given header and data to a full message by MessagePack, returning the raw bytes from the created message.
+     *
+     * @param header The header of the message.
+     * @param data   The data (content) of the message.
+     * @return the binary array containing the message packed by {@code MessagePack}
+     * @throws IOException         if any of the header fields contain illegal value(type)s
+     * @throws ValidationException if the contents of the header violate the class invariant (i.e. if {@code is_fragmented}
+     *                             is given, {@code first_fragment} cannot be {@code null} and so.)
+     */
+    public static byte[] createMessage(MessageHeader header, MessageData data) throws IOException, ValidationException {
         try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
-            packer.packArrayHeader(arraySize);
+            packMessage(packer, header, data);
             return packer.toByteArray();
         }
     }
 
     /**
-     * Packs the given header and data to a full message by MessagePack, returning the raw bytes from the created message.
+     * Packs the given header and data to a full message by MessagePack directly into a (heap) buffer allocated by the
+     * given allocator, without creating any intermediate binary arrays. If the allocator is pooled, the encoding does
+     * not create any garbage apart from the message objects themselves.
+     * The caller becomes the owner of the returned buffer and is responsible for releasing it (writing it to a Netty
+     * channel does that automatically).
      *
+     * @param header    The header of the message.
+     * @param data      The data (content) of the message.
+     * @param allocator The allocator used to create the buffer (e.g. {@code channel.alloc()}).
+     * @return the buffer containing the message packed by {@code MessagePack}
+     * @throws IOException         if any of the header fields contain illegal value(type)s
+     * @throws ValidationException if the contents of the header violate the class invariant (i.e. if {@code is_fragmented}
+     *                             is given, {@code first_fragment} cannot be {@code null} and so.)
+     */
+    public static ByteBuf createMessage(MessageHeader header, MessageData data, ByteBufAllocator allocator)
+            throws IOException, ValidationException {
+
+        ByteBuf buffer = allocator.heapBuffer();
+        try (ByteBufMessagePacker packer = new ByteBufMessagePacker(buffer)) {
+            packMessage(packer, header, data);
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * Packs the given header and data to a full message by MessagePack into the given packer.
+     *
+     * @param packer The packer the message is written into.
      * @param header The header of the message.
      * @param data   The data (content) of the message.
-     * @return the binary array containing the message packed by {@code MessagePack}
      * @throws IOException         if any of the header fields contain illegal value(type)s
      * @throws ValidationException if the contents of the header violate the class invariant (i.e. if {@code is_fragmented}
      *                             is given, {@code first_fragment} cannot be {@code null} and so.)
      */
-    public static byte[] createMessage(MessageHeader header, MessageData data) throws IOException, ValidationException {
+    public static void packMessage(MessageBufferPacker packer, MessageHeader header, MessageData data)
+            throws IOException, ValidationException {
 
         Validator.requireNonNullValue(header, MessageManager.class.getSimpleName(), "header");
         Validator.requireNonNullValue(data, MessageManager.class.getSimpleName(), "data");
 
-        ByteArrayOutputStream binary = new ByteArrayOutputStream();
         switch (header.getMessageHeaderType()) {
-            case BASE -> binary.write(packMessageWrapper(
-                    (MessageHeaderBase.NUMBER_OF_FIELDS + DATA_FIELD_COUNT)));
-            case EXTENDED -> binary.write(packMessageWrapper(
-                    (MessageHeaderBase.NUMBER_OF_FIELDS + MessageHeaderExtended.NUMBER_OF_FIELDS + DATA_FIELD_COUNT)));
+            case BASE -> WriterHelper.packArrayHeader(packer,
+                    MessageHeaderBase.NUMBER_OF_FIELDS + DATA_FIELD_COUNT);
+            case EXTENDED -> WriterHelper.packArrayHeader(packer,
+                    MessageHeaderBase.NUMBER_OF_FIELDS + MessageHeaderExtended.NUMBER_OF_FIELDS + DATA_FIELD_COUNT);
             default -> throw new ValidationException(String.format("%s: Unknown message header type (%s)",
                     MessageManager.class.getSimpleName(),
                     header.getMessageHeaderType()));
         }
 
-        binary.write(header.getBinary());
-        binary.write(data.getBinary());
-
-        return binary.toByteArray();
+        header.packContentTo(packer);
+        data.packContentTo(packer);
     }
 
     /**
@@ -3,11 +3,14 @@ package hu.arheu.gds.message.util;
 
 import hu.arheu.gds.message.errors.ReadException;
 import hu.arheu.gds.message.errors.ValidationException;
+import org.msgpack.core.MessageFormat;
 import org.msgpack.core.MessageUnpacker;
 import org.msgpack.value.Value;
 import org.msgpack.value.ValueType;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +19,8 @@ import java.util.Map;
 @SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
 public class ReaderHelper {
 
+    private static final int BINARY_CHUNK_SIZE = 64 * 1024;
+
     public static int unpackArrayHeader(MessageUnpacker unpacker) throws ReadException {
         try {
             return unpacker.unpackArrayHeader();
@@ -101,18 +106,23 @@ public class ReaderHelper {
                                            String fieldName,
                                            String className) throws ReadException {
 
-        Value unpackedValue = ReaderHelper.unpackValue(unpacker);
-        if (unpackedValue.isNilValue()) {
+        MessageFormat format = ReaderHelper.getNextFormat(unpacker);
+        if (format == MessageFormat.NIL) {
+            ReaderHelper.unpackNil(unpacker);
             return null;
-        } else if (unpackedValue.getValueType() != ValueType.STRING) {
+        } else if (format.getValueType() != ValueType.STRING) {
             throw new ReadException(
                     String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
                             className,
-                            unpackedValue.getValueType(),
+                            format.getValueType(),
                             ValueType.STRING,
                             fieldName));
         } else {
-            return unpackedValue.asStringValue().asString();
+            try {
+                return unpacker.unpackString();
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
         }
     }
 
@@ -121,23 +131,16 @@ public class ReaderHelper {
                                                                 String fieldName,
                                                                 String className) throws ReadException {
 
-        Value unpackedValue = ReaderHelper.unpackValue(unpacker);
-        if (unpackedValue.isNilValue()) {
+        String unpackedValue = ReaderHelper.unpackStringValue(unpacker, fieldName, className);
+        if (unpackedValue == null) {
             return null;
-        } else if (unpackedValue.getValueType() != ValueType.STRING) {
-            throw new ReadException(
-                    String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
-                            className,
-                            unpackedValue.getValueType(),
-                            ValueType.STRING,
-                            fieldName));
         } else {
             try {
-                return Enum.valueOf(enumType, unpackedValue.asStringValue().asString());
+                return Enum.valueOf(enumType, unpackedValue);
             } catch (IllegalArgumentException e) {
                 throw new ReadException(
                         String.format("Cannot convert field value (%s) to enum. Location: Field name: %s.",
-                                unpackedValue.asStringValue().asStringValue(),
+                                unpackedValue,
                                 fieldName));
             }
         }
@@ -147,18 +150,23 @@ public class ReaderHelper {
                                              String fieldName,
                                              String className) throws ReadException {
 
-        Value unpackedValue = ReaderHelper.unpackValue(unpacker);
-        if (unpackedValue.isNilValue()) {
+        MessageFormat format = ReaderHelper.getNextFormat(unpacker);
+        if (format == MessageFormat.NIL) {
+            ReaderHelper.unpackNil(unpacker);
             return null;
-        } else if (unpackedValue.getValueType() != ValueType.BOOLEAN) {
+        } else if (format.getValueType() != ValueType.BOOLEAN) {
             throw new ReadException(
                     String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
                             className,
-                            unpackedValue.getValueType(),
+                            format.getValueType(),
                             ValueType.BOOLEAN,
                             fieldName));
         } else {
-            return unpackedValue.asBooleanValue().getBoolean();
+            try {
+                return unpacker.unpackBoolean();
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
         }
     }
 
@@ -166,18 +174,23 @@ public class ReaderHelper {
                                              String fieldName,
                                              String className) throws ReadException {
 
-        Value unpackedValue = ReaderHelper.unpackValue(unpacker);
-        if (unpackedValue.isNilValue()) {
+        MessageFormat format = ReaderHelper.getNextFormat(unpacker);
+        if (format == MessageFormat.NIL) {
+            ReaderHelper.unpackNil(unpacker);
             return null;
-        } else if (unpackedValue.getValueType() != ValueType.INTEGER) {
+        } else if (format.getValueType() != ValueType.INTEGER) {
             throw new ReadException(
                     String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
                             className,
-                            unpackedValue.getValueType(),
+                            format.getValueType(),
                             ValueType.INTEGER,
                             fieldName));
         } else {
-            return unpackedValue.asIntegerValue().asInt();
+            try {
+                return unpacker.unpackInt();
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
         }
     }
 
@@ -185,20 +198,33 @@ public class ReaderHelper {
                                        String fieldName,
                                        String className) throws ReadException {
 
-        Value unpackedValue = ReaderHelper.unpackValue(unpacker);
-        if (unpackedValue.isNilValue()) {
+        MessageFormat format = ReaderHelper.getNextFormat(unpacker);
+        if (format == MessageFormat.NIL) {
+            ReaderHelper.unpackNil(unpacker);
             return null;
-        } else if (!unpackedValue.getValueType().isNumberType()) {
+        } else if (!format.getValueType().isNumberType()) {
             throw new ReadException(
                     String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
                             className,
-                            unpackedValue.getValueType(),
+                            format.getValueType(),
                             "NUMBER",
                             fieldName));
         } else {
-            return unpackedValue.asNumberValue().toLong();
+            try {
+                if (format.getValueType() == ValueType.FLOAT) {
+                    return (long) unpacker.unpackDouble();
+                } else if (format == MessageFormat.UINT64) {
+                    //values above Long.MAX_VALUE are truncated, just like NumberValue#toLong() does
+                    return unpacker.unpackBigInteger().longValue();
+                } else {
+                    return unpacker.unpackLong();
+                }
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
         }
     }
+
     public static long unpackNotNullLongValue(MessageUnpacker unpacker,
                                        String fieldName,
                                        String className) throws ReadException, ValidationException {
@@ -214,18 +240,70 @@ public class ReaderHelper {
                                       String fieldName,
                                       String className) throws ReadException {
 
-        Value unpackedValue = ReaderHelper.unpackValue(unpacker);
-        if (unpackedValue.isNilValue()) {
+        MessageFormat format = ReaderHelper.getNextFormat(unpacker);
+        if (format == MessageFormat.NIL) {
+            ReaderHelper.unpackNil(unpacker);
+            return null;
+        } else if (format.getValueType() != ValueType.BINARY) {
+            throw new ReadException(
+                    String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
+                            className,
+                            format.getValueType(),
+                            ValueType.BINARY,
+                            fieldName));
+        } else {
+            try {
+                return unpacker.readPayload(unpacker.unpackBinaryHeader());
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
+        }
+    }
+
+    /**
+     * Unpacks a binary field by copying its payload to the given sink in chunks, instead of reading it into an array.
+     *
+     * @param unpacker  the unpacker to read from
+     * @param sink      the channel the payload is written to. It is not closed here.
+     * @param fieldName the name of the field (used in the error messages)
+     * @param className the name of the class the field belongs to (used in the error messages)
+     * @return the size of the payload, {@code null} if the field was nil
+     * @throws ReadException if the field is not binary, or it cannot be read or written to the sink
+     */
+    public static Long unpackBinaryTo(MessageUnpacker unpacker,
+                                      WritableByteChannel sink,
+                                      String fieldName,
+                                      String className) throws ReadException {
+
+        MessageFormat format = ReaderHelper.getNextFormat(unpacker);
+        if (format == MessageFormat.NIL) {
+            ReaderHelper.unpackNil(unpacker);
             return null;
-        } else if (unpackedValue.getValueType() != ValueType.BINARY) {
+        } else if (format.getValueType() != ValueType.BINARY) {
             throw new ReadException(
                     String.format("%s: Field type (%s) does not match expected type (%s). Field name: %s.",
                             className,
-                            unpackedValue.getValueType(),
+                            format.getValueType(),
                             ValueType.BINARY,
                             fieldName));
         } else {
-            return unpackedValue.asBinaryValue().asByteArray();
+            try {
+                int remaining = unpacker.unpackBinaryHeader();
+                long size = remaining;
+                ByteBuffer chunk = ByteBuffer.allocate(Math.min(remaining, BINARY_CHUNK_SIZE));
+                while (remaining > 0) {
+                    chunk.clear().limit(Math.min(remaining, chunk.capacity()));
+                    unpacker.readPayload(chunk);
+                    chunk.flip();
+                    remaining -= chunk.remaining();
+                    while (chunk.hasRemaining()) {
+                        sink.write(chunk);
+                    }
+                }
+                return size;
+            } catch (IOException e) {
+                throw new ReadException(e);
+            }
         }
     }
 
@@ -261,8 +339,12 @@ public class ReaderHelper {
     }
 
     public static ValueType getNextValueType(MessageUnpacker unpacker) throws ReadException {
+        return ReaderHelper.getNextFormat(unpacker).getValueType();
+    }
+
+    public static MessageFormat getNextFormat(MessageUnpacker unpacker) throws ReadException {
         try {
-            return unpacker.getNextFormat().getValueType();
+            return unpacker.getNextFormat();
         } catch (IOException e) {
             throw new ReadException(e);
         }
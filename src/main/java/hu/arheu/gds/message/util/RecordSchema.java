@@ -0,0 +1,271 @@
+package hu.arheu.gds.message.util;
+
+import hu.arheu.gds.message.data.FieldHolder;
+import hu.arheu.gds.message.errors.ValueConvertException;
+import org.msgpack.value.Value;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+
+/**
+ * The field names of the records of an event document or a query response, resolved to the index of their value in
+ * the records.
+ * <p>
+ * The schema is built once from the field descriptors, and the records (the value lists) can be accessed through
+ * read-only {@link Map} views keyed by the field names. The views only hold a reference to the record and the
+ * schema, so presenting a large number of records as maps costs a single object per record instead of a hash map
+ * entry for every field of every record.
+ * <p>
+ * If a field name occurs more than once, the last field of that name is visible in the views (as it would be if the
+ * records were put into hash maps field by field). The fields missing from a (shorter) record are not present in
+ * its view.
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"}) //API class, not all methods are used across the project.
+public final class RecordSchema {
+
+    private static final VarHandle CONVERTED = MethodHandles.arrayElementVarHandle(Object[].class);
+    //marks the values not converted yet, as null is a valid converted value
+    private static final Object NOT_CONVERTED = new Object();
+
+    private final List<FieldHolder> fieldHolders;
+    private final Map<String, Integer> fieldIndexes;
+    //the distinct field names and the index of their value, in the order of the fields
+    private final String[] keys;
+    private final int[] keyIndexes;
+
+    private RecordSchema(List<FieldHolder> fieldHolders) {
+        this.fieldHolders = Collections.unmodifiableList(new ArrayList<>(fieldHolders));
+        this.fieldIndexes = new HashMap<>(fieldHolders.size() * 4 / 3 + 1);
+        for (int i = 0; i < fieldHolders.size(); i++) {
+            fieldIndexes.put(fieldHolders.get(i).getFieldName(), i);
+        }
+        this.keys = new String[fieldIndexes.size()];
+        this.keyIndexes = new int[fieldIndexes.size()];
+        int key = 0;
+        for (int i = 0; i < fieldHolders.size(); i++) {
+            String fieldName = fieldHolders.get(i).getFieldName();
+            if (fieldIndexes.get(fieldName) == i) {
+                keys[key] = fieldName;
+                keyIndexes[key] = i;
+                key++;
+            }
+        }
+    }
+
+    /**
+     * Creates the schema of the records described by the given fields.
+     *
+     * @param fieldHolders the descriptors of the fields, in the order of the values in the records
+     * @return the schema
+     */
+    public static RecordSchema of(List<FieldHolder> fieldHolders) {
+        return new RecordSchema(Objects.requireNonNull(fieldHolders, "fieldHolders"));
+    }
+
+    /**
+     * @return the descriptors of the fields, in the order of the values in the records
+     */
+    public List<FieldHolder> getFieldHolders() {
+        return fieldHolders;
+    }
+
+    /**
+     * @return the number of fields
+     */
+    public int getNumberOfFields() {
+        return fieldHolders.size();
+    }
+
+    /**
+     * Returns the index of the value of the given field in the records.
+     *
+     * @param fieldName the name of the field
+     * @return the index of the value, or {@code -1} if there is no such field
+     */
+    public int getFieldIndex(String fieldName) {
+        Integer index = fieldIndexes.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns a read-only map view of the given record.
+     *
+     * @param record the values of the record, {@code null} is viewed as an empty record
+     * @return the values of the record keyed by the field names
+     */
+    public Map<String, Value> asMap(List<Value> record) {
+        return new ValueRecord(record);
+    }
+
+    /**
+     * Returns a read-only map view of the given record, whose values are converted to plain Java types (see
+     * {@link Converters#convertToObject(Value)}). The values are converted the first time they are accessed.
+     *
+     * @param record the values of the record, {@code null} is viewed as an empty record
+     * @return the converted values of the record keyed by the field names
+     * @throws IllegalStateException by the methods of the view if a value cannot be converted
+     */
+    public Map<String, Object> asObjectMap(List<Value> record) {
+        return new ObjectRecord(record);
+    }
+
+    /**
+     * Returns the map views ({@link #asMap(List)}) of the given records.
+     *
+     * @param records the records
+     * @return the unmodifiable list of the views, in the order of the records
+     */
+    public List<Map<String, Value>> asMaps(List<List<Value>> records) {
+        List<Map<String, Value>> result = new ArrayList<>(records.size());
+        for (List<Value> record : records) {
+            result.add(new ValueRecord(record));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the converting map views ({@link #asObjectMap(List)}) of the given records.
+     *
+     * @param records the records
+     * @return the unmodifiable list of the views, in the order of the records
+     */
+    public List<Map<String, Object>> asObjectMaps(List<List<Value>> records) {
+        List<Map<String, Object>> result = new ArrayList<>(records.size());
+        for (List<Value> record : records) {
+            result.add(new ObjectRecord(record));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private abstract class RecordView<V> extends AbstractMap<String, V> {
+
+        final List<Value> record;
+        private Set<Entry<String, V>> entrySet;
+
+        RecordView(List<Value> record) {
+            this.record = record == null ? Collections.emptyList() : record;
+        }
+
+        abstract V valueAt(int index);
+
+        private boolean isPresent(int index) {
+            return index >= 0 && index < record.size();
+        }
+
+        @Override
+        public V get(Object key) {
+            int index = key instanceof String fieldName ? getFieldIndex(fieldName) : -1;
+            return isPresent(index) ? valueAt(index) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String fieldName && isPresent(getFieldIndex(fieldName));
+        }
+
+        @Override
+        public int size() {
+            if (record.size() >= fieldHolders.size()) {
+                return keys.length;
+            }
+            int size = 0;
+            for (int keyIndex : keyIndexes) {
+                if (isPresent(keyIndex)) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, V>> iterator() {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return RecordView.this.size();
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private final class EntryIterator implements Iterator<Entry<String, V>> {
+
+            private int key = nextPresent(0);
+
+            private int nextPresent(int from) {
+                while (from < keys.length && !isPresent(keyIndexes[from])) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return key < keys.length;
+            }
+
+            @Override
+            public Entry<String, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Entry<String, V> entry = new SimpleImmutableEntry<>(keys[key], valueAt(keyIndexes[key]));
+                key = nextPresent(key + 1);
+                return entry;
+            }
+        }
+    }
+
+    private final class ValueRecord extends RecordView<Value> {
+
+        ValueRecord(List<Value> record) {
+            super(record);
+        }
+
+        @Override
+        Value valueAt(int index) {
+            return record.get(index);
+        }
+    }
+
+    private final class ObjectRecord extends RecordView<Object> {
+
+        //allocated on the first access, the elements are published with release/acquire semantics
+        private volatile Object[] converted;
+
+        ObjectRecord(List<Value> record) {
+            super(record);
+        }
+
+        @Override
+        Object valueAt(int index) {
+            Object[] values = converted;
+            if (values == null) {
+                values = new Object[record.size()];
+                Arrays.fill(values, NOT_CONVERTED);
+                converted = values;
+            }
+            Object value = CONVERTED.getAcquire(values, index);
+            if (value == NOT_CONVERTED) {
+                Value original = record.get(index);
+                try {
+                    value = original == null ? null : Converters.convertToObject(original);
+                } catch (ValueConvertException e) {
+                    throw new IllegalStateException("The value of the field '" + fieldHolders.get(index).getFieldName()
+                            + "' cannot be converted!", e);
+                }
+                //a concurrent conversion of the same value gives an equal result, either of them can be kept
+                CONVERTED.setRelease(values, index, value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package hu.arheu.gds.benchmark;
+
+import hu.arheu.gds.message.FullGdsMessage;
+import hu.arheu.gds.message.data.ConsistencyType;
+import hu.arheu.gds.message.data.FieldHolder;
+import hu.arheu.gds.message.data.FieldValueType;
+import hu.arheu.gds.message.data.MessageData;
+import hu.arheu.gds.message.data.impl.AckStatus;
+import hu.arheu.gds.message.data.impl.FieldHolderImpl;
+import hu.arheu.gds.message.data.impl.GDSHolderImpl;
+import hu.arheu.gds.message.data.impl.QueryContextHolderImpl;
+import hu.arheu.gds.message.data.impl.QueryResponseHolderImpl;
+import hu.arheu.gds.message.header.MessageHeaderBase;
+import hu.arheu.gds.message.util.MessageManager;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import org.msgpack.value.Value;
+import org.msgpack.value.ValueFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A minimal GDS on the loopback interface for the benchmarks: it accepts every login, acknowledges the events and
+ * replies every query with a single page of generated rows. The settings are read when a connection is opened (the
+ * compression) or when a reply is sent (the rest), so they can be changed between the connections of a benchmark.
+ */
+final class GdsStub implements AutoCloseable {
+
+    private static final String PATH = "/gate";
+
+    private final NioEventLoopGroup group = new NioEventLoopGroup(2);
+    private final Channel server;
+
+    //whether permessage-deflate is accepted (the replies are compressed at the default level of Netty)
+    volatile boolean compression;
+    //the payload size the replies are split to (into continuation frames), 0 to send them in a single frame
+    volatile int frameSize;
+    //the number of rows in a query page
+    volatile int rows = 1;
+
+    GdsStub() throws InterruptedException {
+        server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(65536));
+                        if (compression) {
+                            ch.pipeline().addLast(new WebSocketServerCompressionHandler());
+                        }
+                        ch.pipeline().addLast(new WebSocketServerProtocolHandler(PATH, null, true, 64 << 20),
+                                new MessageHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+    }
+
+    /**
+     * @return the URI the clients connect to
+     */
+    String getURI() {
+        return "ws://127.0.0.1:" + ((InetSocketAddress) server.localAddress()).getPort() + PATH;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        server.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    private final class MessageHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) throws Exception {
+            if (!(frame instanceof BinaryWebSocketFrame)) {
+                return;
+            }
+            FullGdsMessage message = new FullGdsMessage(frame.content(), true);
+            message.decodeData(false);
+            MessageHeaderBase header = message.getHeader();
+            MessageData data = message.getData();
+            switch (data.getMessageDataType()) {
+                case CONNECTION_0 -> reply(ctx, header, MessageManager.createMessageData1ConnectionAck(
+                        data.asConnectionMessageData0(), null, AckStatus.OK, null));
+                case EVENT_2 -> reply(ctx, header, MessageManager.createMessageData3EventAck(List.of(), AckStatus.OK, null));
+                case QUERY_REQUEST_10 -> reply(ctx, header, MessageManager.createMessageData11QueryRequestAck(
+                        AckStatus.OK, page(), null));
+                default -> {
+                }
+            }
+        }
+
+        private void reply(ChannelHandlerContext ctx, MessageHeaderBase request, MessageData data) throws Exception {
+            MessageHeaderBase header = MessageManager.createMessageHeaderBase(request.getUserName(),
+                    request.getMessageId(), data.getMessageDataType());
+            byte[] message = MessageManager.createMessage(header, data);
+            int size = frameSize;
+            if (size <= 0 || message.length <= size) {
+                ctx.writeAndFlush(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(message)));
+                return;
+            }
+            for (int offset = 0; offset < message.length; offset += size) {
+                int length = Math.min(size, message.length - offset);
+                boolean last = offset + length == message.length;
+                ByteBuf content = Unpooled.wrappedBuffer(message, offset, length);
+                ctx.write(offset == 0 ? new BinaryWebSocketFrame(false, 0, content)
+                        : new ContinuationWebSocketFrame(last, 0, content));
+            }
+            ctx.flush();
+        }
+
+        private QueryResponseHolderImpl page() throws Exception {
+            List<FieldHolder> fields = List.of(new FieldHolderImpl("id", FieldValueType.KEYWORD, "text/plain"),
+                    new FieldHolderImpl("n", FieldValueType.LONG, ""));
+            int count = rows;
+            List<List<Value>> hits = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                hits.add(List.of(ValueFactory.newString("r" + i), ValueFactory.newInteger(i)));
+            }
+            QueryContextHolderImpl context = new QueryContextHolderImpl("p1", "SELECT * FROM benchmark", (long) count,
+                    0L, ConsistencyType.NONE, "last", new GDSHolderImpl("cluster", "node"), List.of(), List.of());
+            return new QueryResponseHolderImpl((long) count, 0L, false, context, fields, hits);
+        }
+    }
+}
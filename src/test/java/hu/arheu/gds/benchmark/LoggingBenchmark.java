@@ -0,0 +1,129 @@
+package hu.arheu.gds.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import hu.arheu.gds.client.AsyncGDSClient;
+import hu.arheu.gds.client.ConnectionState;
+import hu.arheu.gds.client.GDSMessageListener;
+import hu.arheu.gds.message.data.MessageData2Event;
+import hu.arheu.gds.message.util.MessageManager;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the per-message cost of the log statements of the {@link AsyncGDSClient} with logging disabled (the
+ * default logger of the client logs at {@link Level#SEVERE}).
+ * <p>
+ * The first part runs the two log statements of sending a message (the ID and type at {@link Level#CONFIG}, the frame
+ * size at {@link Level#FINE}) in a loop, once built unconditionally and once guarded by
+ * {@link Logger#isLoggable(Level)} as in the client, and reports the time and the bytes allocated per message. The
+ * second part sends small events to a {@link GdsStub} one at a time and reports the bytes allocated per acknowledged
+ * event by the threads of the client (the caller and the event loop of the client, not the stub).
+ * <p>
+ * Not a test, run it after {@code mvn test-compile} with the test classpath, e.g.
+ * {@code java -cp target/classes:target/test-classes:<dependencies> hu.arheu.gds.benchmark.LoggingBenchmark}.
+ */
+public final class LoggingBenchmark {
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final String CLIENT_THREAD_PREFIX = "benchmark-client";
+    private static final int LOG_ITERATIONS = 20_000_000;
+    private static final int EVENTS = 100_000;
+    private static final int ROUNDS = 3;
+
+    //read from volatile fields, so the messages cannot be built at compile time
+    private static volatile String messageId = UUID.randomUUID().toString();
+    private static volatile int messageSize = 1234;
+
+    private LoggingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Logger log = AsyncGDSClient.createDefaultLogger("LoggingBenchmark");
+        //the first round warms up the code
+        for (int round = 1; round <= ROUNDS; round++) {
+            long allocated = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < LOG_ITERATIONS; i++) {
+                log.config("Sending message with ID " + messageId + " of type EVENT_2");
+                log.fine("Sending BinaryWebSocketFrame of " + messageSize + " bytes");
+            }
+            report(round, "unguarded log statements", System.nanoTime() - start,
+                    THREADS.getCurrentThreadAllocatedBytes() - allocated, LOG_ITERATIONS);
+
+            allocated = THREADS.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < LOG_ITERATIONS; i++) {
+                if (log.isLoggable(Level.CONFIG)) {
+                    log.config("Sending message with ID " + messageId + " of type EVENT_2");
+                }
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Sending BinaryWebSocketFrame of " + messageSize + " bytes");
+                }
+            }
+            report(round, "guarded log statements", System.nanoTime() - start,
+                    THREADS.getCurrentThreadAllocatedBytes() - allocated, LOG_ITERATIONS);
+        }
+
+        MessageData2Event event = MessageManager.createMessageData2Event(
+                List.of("INSERT INTO benchmark (id) VALUES('1')"), Map.of(), List.of());
+        EventLoopGroup group = new NioEventLoopGroup(1, new DefaultThreadFactory(CLIENT_THREAD_PREFIX));
+        try (GdsStub stub = new GdsStub()) {
+            AsyncGDSClient client = AsyncGDSClient.getBuilder()
+                    .withURI(stub.getURI())
+                    .withUserName("benchmark")
+                    .withTimeout(10000)
+                    .withEventLoopGroup(group)
+                    .withListener(new GDSMessageListener() {
+                    })
+                    .build();
+            try {
+                client.connect();
+                while (client.getState() != ConnectionState.LOGGED_IN) {
+                    if (client.getState() == ConnectionState.FAILED) {
+                        throw new IllegalStateException("Could not connect to the stub!");
+                    }
+                    Thread.sleep(5);
+                }
+                for (int round = 1; round <= ROUNDS; round++) {
+                    long allocated = clientAllocatedBytes();
+                    long start = System.nanoTime();
+                    for (int i = 0; i < EVENTS; i++) {
+                        client.sendEvent2Async(event).join();
+                    }
+                    report(round, "events sent and acknowledged", System.nanoTime() - start,
+                            clientAllocatedBytes() - allocated, EVENTS);
+                }
+            } finally {
+                client.close();
+            }
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+        System.exit(0);
+    }
+
+    private static long clientAllocatedBytes() {
+        long allocated = 0;
+        for (ThreadInfo thread : THREADS.getThreadInfo(THREADS.getAllThreadIds())) {
+            if (thread != null && (thread.getThreadId() == Thread.currentThread().getId()
+                    || thread.getThreadName().startsWith(CLIENT_THREAD_PREFIX))) {
+                allocated += THREADS.getThreadAllocatedBytes(thread.getThreadId());
+            }
+        }
+        return allocated;
+    }
+
+    private static void report(int round, String name, long nanos, long allocatedBytes, int count) {
+        System.out.printf("round %d %-30s %10.1f ns %8d bytes per message%n", round, name, (double) nanos / count,
+                allocatedBytes / count);
+    }
+}
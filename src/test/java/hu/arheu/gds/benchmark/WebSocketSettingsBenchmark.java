@@ -0,0 +1,122 @@
+package hu.arheu.gds.benchmark;
+
+import com.sun.management.OperatingSystemMXBean;
+import hu.arheu.gds.client.AsyncGDSClient;
+import hu.arheu.gds.client.ConnectionState;
+import hu.arheu.gds.client.GDSMessageListener;
+import hu.arheu.gds.message.data.ConsistencyType;
+import hu.arheu.gds.message.data.MessageData10QueryRequest;
+import hu.arheu.gds.message.data.MessageData2Event;
+import hu.arheu.gds.message.util.MessageManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Measures the throughput and the CPU time of the WebSocket settings of the {@link AsyncGDSClient} (compression, its
+ * level and the frame size), with the client and a {@link GdsStub} in the same JVM, on the loopback interface.
+ * <p>
+ * Every setting is measured with query pages sent by the stub (20 000 rows, about 250 KB) and events sent by the
+ * client (5 000 operations, about 350 KB), one request at a time. The CPU time is that of the whole process, so it
+ * includes the stub as well. The compression level of the client only affects the events, the stub compresses the
+ * pages at its own level.
+ * <p>
+ * Not a test, run it after {@code mvn test-compile} with the test classpath, e.g.
+ * {@code java -cp target/classes:target/test-classes:<dependencies> hu.arheu.gds.benchmark.WebSocketSettingsBenchmark [iterations]}
+ * (80 iterations by default, after 20 of warm-up). All settings are measured twice, the results of the second round
+ * are the ones to compare.
+ */
+public final class WebSocketSettingsBenchmark {
+
+    private static final OperatingSystemMXBean OS =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private static final int WARM_UP = 20;
+    private static final int ROUNDS = 2;
+
+    private WebSocketSettingsBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 80;
+        List<String> operations = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            operations.add("INSERT INTO events (id, n, name) VALUES ('e" + i + "', " + i + ", 'some name " + (i % 50) + "')");
+        }
+        MessageData2Event event = MessageManager.createMessageData2Event(operations, Map.of(), List.of());
+        MessageData10QueryRequest query = MessageManager.createMessageData10QueryRequest("SELECT * FROM benchmark",
+                ConsistencyType.NONE, 10000L);
+
+        try (GdsStub stub = new GdsStub()) {
+            stub.rows = 20000;
+            //the first round warms up the code paths shared by the settings
+            for (int round = 1; round <= ROUNDS; round++) {
+                System.out.printf("round %d%n%-34s %9s %10s %9s %10s%n", round, "setting", "pages/s", "CPU/page",
+                        "events/s", "CPU/event");
+                run("no compression", stub, false, 0,
+                        builder -> builder.withCompression(false), query, event, iterations);
+                run("deflate level 6, 15 bits (default)", stub, true, 0,
+                        builder -> builder, query, event, iterations);
+                run("deflate level 1, 15 bits", stub, true, 0,
+                        builder -> builder.withCompression(1, 15), query, event, iterations);
+                run("no compression, 16 KiB frames", stub, false, 16384,
+                        builder -> builder.withCompression(false), query, event, iterations);
+                run("no compression, 64 KiB frames", stub, false, 65536,
+                        builder -> builder.withCompression(false).withMaxFramePayloadLength(65536), query, event,
+                        iterations);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void run(String setting, GdsStub stub, boolean stubCompression, int frameSize,
+                            UnaryOperator<AsyncGDSClient.AsyncGDSClientBuilder> settings,
+                            MessageData10QueryRequest query, MessageData2Event event, int iterations) throws Exception {
+        stub.compression = stubCompression;
+        stub.frameSize = frameSize;
+        AsyncGDSClient client = settings.apply(AsyncGDSClient.getBuilder()
+                .withURI(stub.getURI())
+                .withUserName("benchmark")
+                .withTimeout(10000)
+                .withListener(new GDSMessageListener() {
+                })).build();
+        try {
+            client.connect();
+            while (client.getState() != ConnectionState.LOGGED_IN) {
+                if (client.getState() == ConnectionState.FAILED) {
+                    throw new IllegalStateException("Could not connect with the setting: " + setting);
+                }
+                Thread.sleep(5);
+            }
+
+            for (int i = 0; i < WARM_UP; i++) {
+                client.sendQueryRequest10Async(query).join();
+            }
+            long cpu = OS.getProcessCpuTime();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                client.sendQueryRequest10Async(query).join();
+            }
+            double pagesPerSecond = iterations * 1e9 / (System.nanoTime() - start);
+            double cpuPerPage = (OS.getProcessCpuTime() - cpu) / 1e6 / iterations;
+
+            for (int i = 0; i < WARM_UP; i++) {
+                client.sendEvent2Async(event).join();
+            }
+            cpu = OS.getProcessCpuTime();
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                client.sendEvent2Async(event).join();
+            }
+            double eventsPerSecond = iterations * 1e9 / (System.nanoTime() - start);
+            double cpuPerEvent = (OS.getProcessCpuTime() - cpu) / 1e6 / iterations;
+
+            System.out.printf("%-34s %9.1f %7.1f ms %9.1f %7.1f ms%n", setting, pagesPerSecond, cpuPerPage,
+                    eventsPerSecond, cpuPerEvent);
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package hu.arheu.gds.message.util;
+
+import hu.arheu.gds.message.FullGdsMessage;
+import hu.arheu.gds.message.data.MessageData2Event;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Tests of the {@link EventMessageEncoder}, run by the POJO provider of Surefire (public {@code test*} methods,
+ * failing by throwing).
+ */
+public class EventMessageEncoderTest {
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * An event whose attachment cannot be read must not leave the packer writing into the released buffer, which
+     * may already be used by another owner when the next event is encoded.
+     */
+    public void testFailedEncodeDoesNotAffectTheNextEvent() throws Exception {
+        ByteBufAllocator allocator = new PooledByteBufAllocator(false);
+        EventMessageEncoder encoder = new EventMessageEncoder("user");
+
+        //the attachment is too large to be sent, which is found out with the packed header still pending
+        encoder.addOperation("INSERT INTO multi_event (id) VALUES('failing')")
+                .addAttachment("a1", AttachmentSource.of(new ByteArrayInputStream(new byte[0]), Integer.MAX_VALUE + 1L));
+        try {
+            encoder.encode(allocator).release();
+            throw new AssertionError("The encoding of the event with the too large attachment did not fail!");
+        } catch (IOException expected) {
+            //the buffer of the failed event is released
+        }
+
+        //the buffer released by the failed encoding is handed out to another owner
+        ByteBuf other = allocator.heapBuffer();
+        other.writeLong(42);
+        int otherWriterIndex = other.writerIndex();
+
+        encoder.reset().addOperation("INSERT INTO multi_event (id) VALUES('valid')");
+        ByteBuf message = encoder.encode(allocator);
+        try {
+            check(other.writerIndex() == otherWriterIndex,
+                    "The buffer of another owner was written by the encoder: " + other);
+            check(other.getLong(0) == 42, "The content of the buffer of another owner was changed!");
+
+            FullGdsMessage decoded = new FullGdsMessage(message, false);
+            check(encoder.getMessageId().equals(decoded.getHeader().getMessageId()),
+                    "The message ID of the valid event is " + decoded.getHeader().getMessageId());
+            MessageData2Event event = decoded.getData().asEventMessageData2();
+            check("INSERT INTO multi_event (id) VALUES('valid')".equals(event.getOperations()),
+                    "The operations of the valid event are " + event.getOperations());
+        } finally {
+            message.release();
+            other.release();
+        }
+    }
+}